@@ -0,0 +1,907 @@
+package data;
+
+import errors.DuplicateEntryException;
+import errors.VersionConflictException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public abstract class AbstractEntityStore<T> implements StoreHooks<T>
+{
+    private static final int LOCK_STRIPES = 64;
+    private static final int[] ALL_STRIPES = IntStream.range(0,LOCK_STRIPES).toArray();
+    private static final long LATEST = Long.MAX_VALUE;
+
+    private final EntityType<T> type;
+    private final Map<String, SecondaryIndex<T, Object>> indexes;
+    private final Map<String, UniqueIndex<T, Object>> uniqueIndexes;
+    private final List<StoreListener<T>> listeners;
+    // writes to one id are serialized so the indexes always follow the stored model
+    private final ReentrantLock[] locks;
+    private final VersionHistory<T> history;
+    // the store keeps its own copy of every model it is given and hands out copies, so a caller changing a model
+    // never changes a stored row and the stored rows can serve as before images; null when read() decodes anyway or
+    // the type has no codec to copy with
+    private final ModelCodec<T> copier;
+    private volatile VersionClock clock;
+    // replaced as a whole by partitionIds
+    private volatile IdSequence ids;
+
+    protected AbstractEntityStore(EntityType<T> type)
+    {
+        this(type,false);
+    }
+
+    protected AbstractEntityStore(EntityType<T> type, boolean readsCopies)
+    {
+        this(type,readsCopies,SortedSetIndex::new);
+    }
+
+    // newIndex makes the secondary index of each field out of the field's key function
+    AbstractEntityStore(EntityType<T> type, boolean readsCopies, Function<Function<T, ?>, SecondaryIndex<T, Object>> newIndex)
+    {
+        this.type = type;
+        ids = new IdSequence();
+
+        indexes = new LinkedHashMap<>();
+        for(Map.Entry<String, Function<T, ?>> index : type.getIndexes().entrySet())
+            indexes.put(index.getKey(),newIndex.apply(index.getValue()));
+
+        uniqueIndexes = new LinkedHashMap<>();
+        for(Map.Entry<String, Function<T, ?>> index : type.getUniqueIndexes().entrySet())
+            uniqueIndexes.put(index.getKey(),new UniqueIndex<>(type.getName(),index.getKey(),index.getValue()));
+
+        listeners = new CopyOnWriteArrayList<>();
+
+        locks = new ReentrantLock[LOCK_STRIPES];
+        for(int i = 0; i < LOCK_STRIPES; i++)
+            locks[i] = new ReentrantLock();
+
+        history = new VersionHistory<>();
+        copier = readsCopies ? null : type.getCodec();
+    }
+
+    protected abstract T read(long id);
+
+    protected abstract void write(long id, T model);
+
+    protected abstract boolean erase(long id);
+
+    protected abstract List<T> readAll();
+
+    // every stored model in any order
+    protected abstract Spliterator<T> spliteratorAll();
+
+    // models with ids above afterId, in ascending id order
+    protected abstract Spliterator<T> spliteratorAfter(long afterId);
+
+    // throws for a model write() couldn't store, before the indexes or the listeners see it
+    protected void checkWrite(T model)
+    {
+    }
+
+    protected boolean contains(long id)
+    {
+        return read(id)!=null;
+    }
+
+    @Override
+    public EntityType<T> getType()
+    {
+        return type;
+    }
+
+    @Override
+    public void add(T model)
+    {
+        insert(reserveId(),model);
+    }
+
+    @Override
+    public long reserveId()
+    {
+        return ids.next();
+    }
+
+    // called before the first add, ids are then partition, partition + partitions, ... so an id tells its partition;
+    // ids a replayed store already holds are never handed out again
+    @Override
+    public void partitionIds(int partition, int partitions)
+    {
+        ids = new IdSequence(partition,partitions,ids.getLast());
+    }
+
+    // adds a model under an id taken with reserveId()
+    @Override
+    public void insert(long id, T model)
+    {
+        checkWrite(model);
+        type.setId(model,id);
+
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try
+        {
+            long version = beginWrite();
+            try
+            {
+                remember(id,version);
+                try
+                {
+                    index(id,model);
+                    type.setVersion(model,1);
+                    for(StoreListener<T> listener : listeners)
+                        listener.added(id,model);
+                    save(id,model);
+                }
+                catch(RuntimeException e)
+                {
+                    unindex(id);
+                    type.setId(model,null);
+                    type.setVersion(model,0);
+                    throw e;
+                }
+            }
+            finally
+            {
+                endWrite(version);
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void update(T model)
+    {
+        Long id = type.getId(model);
+        if(id==null)
+            return;
+
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try
+        {
+            if(!type.isVersioned())
+            {
+                if(contains(id))
+                    replace(id,model,0);
+                return;
+            }
+
+            T current = read(id);
+            if(current!=null)
+                replace(id,model,type.getVersion(current) + 1);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    // rejects the write unless the model carries the version that is stored now
+    @Override
+    public void compareAndUpdate(T model)
+    {
+        Long id = type.getId(model);
+        if(id==null)
+            throw new IllegalArgumentException(type.getName() + " without id can't be updated");
+        if(!type.isVersioned())
+            throw new UnsupportedOperationException(type.getName() + " has no version");
+
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try
+        {
+            T current = read(id);
+            if(current==null)
+                throw new VersionConflictException(type.getName(),id);
+
+            long expected = type.getVersion(model);
+            long stored = type.getVersion(current);
+            if(expected!=stored)
+                throw new VersionConflictException(type.getName(),id,expected,stored);
+
+            replace(id,model,stored + 1);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    // called under the id's lock once the id is known to hold a model
+    private void replace(long id, T model, long next)
+    {
+        checkWrite(model);
+        long version = beginWrite();
+        try
+        {
+            remember(id,version);
+            index(id,model);
+            long previous = type.getVersion(model);
+            type.setVersion(model,next);
+            try
+            {
+                for(StoreListener<T> listener : listeners)
+                    listener.updated(id,model);
+                save(id,model);
+            }
+            catch(RuntimeException e)
+            {
+                type.setVersion(model,previous);
+                reindex(id,read(id));
+                throw e;
+            }
+        }
+        finally
+        {
+            endWrite(version);
+        }
+    }
+
+    @Override
+    public T get(long id)
+    {
+        return copy(read(id));
+    }
+
+    // the row itself rather than a copy, it never changes once stored; meant for before images and revert(), not to
+    // be handed to callers
+    @Override
+    public T getCommitted(long id)
+    {
+        return read(id);
+    }
+
+    @Override
+    public List<T> getAll()
+    {
+        List<T> models = readAll();
+        if(copier!=null)
+            models.replaceAll(this::copy);
+        return models;
+    }
+
+    // iterates the backing storage in place, models added or removed meanwhile may or may not be seen
+    @Override
+    public Spliterator<T> spliterator()
+    {
+        Spliterator<T> stored = spliteratorAll();
+        return copier==null ? stored : new MappingSpliterator<>(stored,this::copy);
+    }
+
+    @Override
+    public List<T> getPage(long afterId, int limit)
+    {
+        checkLimit(limit);
+
+        List<T> page = new ArrayList<>(Math.min(limit,1024));
+        Spliterator<T> models = spliteratorAfter(afterId);
+        while(page.size() < limit && models.tryAdvance(model -> page.add(copy(model))))
+            ;
+        return page;
+    }
+
+    @Override
+    public Stream<T> stream()
+    {
+        return StreamSupport.stream(spliterator(),false);
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action)
+    {
+        spliterator().forEachRemaining(action);
+    }
+
+    @Override
+    public void delete(T model)
+    {
+        Long id = type.getId(model);
+        if(id==null)
+            return;
+
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try
+        {
+            if(!contains(id))
+                return;
+
+            long version = beginWrite();
+            try
+            {
+                remember(id,version);
+                for(StoreListener<T> listener : listeners)
+                    listener.deleted(id);
+                if(erase(id))
+                    unindex(id);
+            }
+            finally
+            {
+                endWrite(version);
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    // ids are taken in one step and every lock stripe is held once for the whole batch
+    @Override
+    public BatchResult<T> addAll(List<T> models)
+    {
+        BatchResult<T> result = new BatchResult<>(models.size());
+        if(models.isEmpty())
+            return result;
+
+        IdSequence sequence = ids;
+        long firstId = sequence.next(models.size());
+        withAllLocks(version -> {
+            long[] ids = new long[models.size()];
+            List<T> added = new ArrayList<>(models.size());
+            for(int i = 0; i < models.size(); i++)
+            {
+                T model = models.get(i);
+                long id = firstId + (long)i * sequence.stride();
+                type.setId(model,id);
+                remember(id,version);
+                try
+                {
+                    checkWrite(model);
+                    index(id,model);
+                }
+                catch(DuplicateEntryException | IllegalArgumentException e)
+                {
+                    unindex(id);
+                    type.setId(model,null);
+                    result.failed(i,model,e);
+                    continue;
+                }
+                type.setVersion(model,1);
+                ids[added.size()] = id;
+                added.add(model);
+            }
+            ids = Arrays.copyOf(ids,added.size());
+
+            int saved = 0;
+            try
+            {
+                for(StoreListener<T> listener : listeners)
+                    listener.addedAll(ids,added);
+                for(; saved < ids.length; saved++)
+                    save(ids[saved],added.get(saved));
+            }
+            catch(RuntimeException e)
+            {
+                for(int i = 0; i < ids.length; i++)
+                {
+                    if(i < saved)
+                        erase(ids[i]);
+                    unindex(ids[i]);
+                    type.setId(added.get(i),null);
+                    type.setVersion(added.get(i),0);
+                }
+                throw e;
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public BatchResult<T> updateAll(List<T> models)
+    {
+        BatchResult<T> result = new BatchResult<>(models.size());
+        if(models.isEmpty())
+            return result;
+
+        withAllLocks(version -> {
+            long[] ids = new long[models.size()];
+            long[] versions = new long[models.size()];
+            List<T> before = new ArrayList<>(models.size());
+            List<T> updated = new ArrayList<>(models.size());
+            for(int i = 0; i < models.size(); i++)
+            {
+                T model = models.get(i);
+                Long id = type.getId(model);
+                T current = id==null ? null : read(id);
+                if(current==null)
+                    continue;
+
+                remember(id,version);
+                try
+                {
+                    checkWrite(model);
+                    index(id,model);
+                }
+                catch(DuplicateEntryException | IllegalArgumentException e)
+                {
+                    result.failed(i,model,e);
+                    continue;
+                }
+                ids[updated.size()] = id;
+                versions[updated.size()] = type.getVersion(model);
+                before.add(current);
+                type.setVersion(model,type.getVersion(current) + 1);
+                updated.add(model);
+            }
+            ids = Arrays.copyOf(ids,updated.size());
+
+            int saved = 0;
+            try
+            {
+                for(StoreListener<T> listener : listeners)
+                    listener.updatedAll(ids,updated);
+                for(; saved < ids.length; saved++)
+                    save(ids[saved],updated.get(saved));
+            }
+            catch(RuntimeException e)
+            {
+                for(int i = 0; i < ids.length; i++)
+                {
+                    if(i < saved)
+                        write(ids[i],before.get(i));
+                    reindex(ids[i],before.get(i));
+                    type.setVersion(updated.get(i),versions[i]);
+                }
+                throw e;
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public BatchResult<T> deleteAll(List<T> models)
+    {
+        BatchResult<T> result = new BatchResult<>(models.size());
+        if(models.isEmpty())
+            return result;
+
+        withAllLocks(version -> {
+            long[] ids = models.stream()
+                    .map(type::getId)
+                    .filter(id -> id!=null && contains(id))
+                    .mapToLong(Long::longValue)
+                    .distinct()
+                    .toArray();
+
+            for(long id : ids)
+                remember(id,version);
+            for(StoreListener<T> listener : listeners)
+                listener.deletedAll(ids);
+            for(long id : ids)
+                if(erase(id))
+                    unindex(id);
+        });
+        return result;
+    }
+
+    @Override
+    public void useClock(VersionClock clock)
+    {
+        this.clock = clock;
+    }
+
+    // reads current storage first and the history second, a write racing with the read is then always caught
+    @Override
+    public T get(long id, long asOf)
+    {
+        return copy(history.resolve(id,read(id),asOf));
+    }
+
+    @Override
+    public List<T> getAll(long asOf)
+    {
+        TreeMap<Long, T> visible = new TreeMap<>();
+        spliteratorAfter(0).forEachRemaining(model -> {
+            long id = type.getId(model);
+            T version = history.resolve(id,model,asOf);
+            if(version!=null)
+                visible.put(id,copy(version));
+        });
+        for(Long id : history.changedAfter(asOf))
+        {
+            T version = visible.containsKey(id) ? null : get(id,asOf);
+            if(version!=null)
+                visible.put(id,version);
+        }
+        return new ArrayList<>(visible.values());
+    }
+
+    @Override
+    public List<T> find(String index, Object key, long asOf)
+    {
+        SecondaryIndex<T, Object> secondaryIndex = indexes.get(index);
+        UniqueIndex<T, Object> uniqueIndex = uniqueIndexes.get(index);
+        if(secondaryIndex==null && uniqueIndex==null)
+            throw new IllegalArgumentException("There is no index " + index + " on " + type.getName());
+
+        TreeSet<Long> ids = new TreeSet<>();
+        if(secondaryIndex!=null)
+            ids.addAll(secondaryIndex.get(key));
+        else
+        {
+            Long id = uniqueIndex.get(key);
+            if(id!=null)
+                ids.add(id);
+        }
+        ids.addAll(history.changedAfter(asOf));
+
+        List<T> models = new ArrayList<>();
+        for(Long id : ids)
+        {
+            T model = get(id,asOf);
+            Object modelKey = model==null ? null : secondaryIndex!=null ? secondaryIndex.keyOf(model) : uniqueIndex.keyOf(model);
+            if(modelKey!=null && modelKey.equals(key))
+                models.add(model);
+        }
+        return models;
+    }
+
+    @Override
+    public void trimVersions(long horizon)
+    {
+        history.trim(horizon);
+    }
+
+    @Override
+    public void addListener(StoreListener<T> listener)
+    {
+        listeners.add(listener);
+    }
+
+    // puts back what an id held before a write as getCommitted() returned it, or nothing; listeners see it as one
+    // more write, so a log replays to the same state
+    @Override
+    public void revert(long id, T before)
+    {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try
+        {
+            long version = beginWrite();
+            try
+            {
+                remember(id,version);
+                if(before==null)
+                {
+                    for(StoreListener<T> listener : listeners)
+                        listener.deleted(id);
+                    if(erase(id))
+                        unindex(id);
+                    return;
+                }
+
+                boolean existed = contains(id);
+                reindex(id,before);
+                for(StoreListener<T> listener : listeners)
+                {
+                    if(existed)
+                        listener.updated(id,before);
+                    else
+                        listener.added(id,before);
+                }
+                write(id,before);
+            }
+            finally
+            {
+                endWrite(version);
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    // puts a model back under its own id, e.g. while replaying a log, without notifying listeners; the model is
+    // stored as it is, a decoded one is nobody else's
+    @Override
+    public void restore(T model)
+    {
+        long id = type.getId(model);
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try
+        {
+            reindex(id,model);
+            write(id,model);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        restoreLastId(id);
+    }
+
+    @Override
+    public long getLastId()
+    {
+        return ids.getLast();
+    }
+
+    @Override
+    public void restoreLastId(long id)
+    {
+        ids.restore(id);
+    }
+
+    @Override
+    public void restoreDelete(long id)
+    {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try
+        {
+            if(erase(id))
+                unindex(id);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<T> find(String index, Object key)
+    {
+        SecondaryIndex<T, Object> secondaryIndex = indexes.get(index);
+        if(secondaryIndex==null)
+            throw new IllegalArgumentException("There is no index " + index + " on " + type.getName());
+
+        return secondaryIndex.lookup(key,this::get);
+    }
+
+    // models matching any of the keys, in ascending id order
+    @Override
+    public List<T> findPage(String index, Collection<?> keys, long afterId, int limit)
+    {
+        SecondaryIndex<T, Object> secondaryIndex = indexes.get(index);
+        if(secondaryIndex==null)
+            throw new IllegalArgumentException("There is no index " + index + " on " + type.getName());
+        checkLimit(limit);
+
+        return secondaryIndex.page(keys,afterId,limit,this::get);
+    }
+
+    @Override
+    public T findUnique(String index, Object key)
+    {
+        UniqueIndex<T, Object> uniqueIndex = uniqueIndexes.get(index);
+        if(uniqueIndex==null)
+            throw new IllegalArgumentException("There is no unique index " + index + " on " + type.getName());
+
+        return uniqueIndex.lookup(key,this::get);
+    }
+
+    // probes the index with the fewest candidate ids for an equality condition, scans when no condition is indexed,
+    // the candidate ids are taken when the plan is made
+    @Override
+    public QueryPlan<T> plan(Query query)
+    {
+        return plan(query,LATEST);
+    }
+
+    // a snapshot plan also takes the ids changed since the snapshot, the index only knows where they are now
+    @Override
+    public QueryPlan<T> plan(Query query, long asOf)
+    {
+        List<Query.Condition> conditions = type.bind(query);
+
+        Query.Condition probe = null;
+        TreeSet<Long> candidates = null;
+        for(Query.Condition condition : conditions)
+        {
+            TreeSet<Long> ids = probe(condition);
+            if(ids!=null && (candidates==null || ids.size() < candidates.size()))
+            {
+                probe = condition;
+                candidates = ids;
+            }
+        }
+
+        if(probe==null && asOf==LATEST)
+            return QueryPlan.scan(type,conditions,() -> StreamSupport.stream(spliteratorAfter(0),false).map(this::copy));
+        if(probe==null)
+            return QueryPlan.scan(type,conditions,() -> getAll(asOf).stream());
+
+        TreeSet<Long> ids = candidates;
+        if(asOf!=LATEST)
+            ids.addAll(history.changedAfter(asOf));
+        return QueryPlan.index(type,probe,ids.size(),conditions,() -> ids.stream().map(id -> get(id,asOf)).filter(Objects::nonNull));
+    }
+
+    // ids an index holds for the keys of an equality condition, null when the field is not indexed
+    private TreeSet<Long> probe(Query.Condition condition)
+    {
+        UniqueIndex<T, Object> uniqueIndex = uniqueIndexes.get(condition.getField());
+        SecondaryIndex<T, Object> secondaryIndex = indexes.get(condition.getField());
+        if(condition.getKeys().isEmpty() && condition.getOp()!=Query.Op.IN || uniqueIndex==null && secondaryIndex==null)
+            return null;
+
+        TreeSet<Long> ids = new TreeSet<>();
+        for(Object key : condition.getKeys())
+        {
+            if(key==null)
+                return null;
+            if(uniqueIndex!=null)
+            {
+                Long id = uniqueIndex.get(key);
+                if(id!=null)
+                    ids.add(id);
+            }
+            else
+                ids.addAll(secondaryIndex.get(key));
+        }
+        return ids;
+    }
+
+    // unique indexes go first, they are the only ones that can reject a model
+    private void index(long id, T model)
+    {
+        for(UniqueIndex<T, Object> index : uniqueIndexes.values())
+            index.put(id,model);
+        for(SecondaryIndex<T, Object> index : indexes.values())
+            index.put(id,model);
+    }
+
+    private void unindex(long id)
+    {
+        for(UniqueIndex<T, Object> index : uniqueIndexes.values())
+            index.remove(id);
+        for(SecondaryIndex<T, Object> index : indexes.values())
+            index.remove(id);
+    }
+
+    // puts back the keys of a model the id held, the latest claim of a unique key wins like during recovery
+    private void reindex(long id, T model)
+    {
+        unindex(id);
+        if(model==null)
+            return;
+        for(UniqueIndex<T, Object> index : uniqueIndexes.values())
+            index.forcePut(id,model);
+        for(SecondaryIndex<T, Object> index : indexes.values())
+            index.put(id,model);
+    }
+
+    private static void checkLimit(int limit)
+    {
+        if(limit <= 0)
+            throw new IllegalArgumentException("Page limit must be positive");
+    }
+
+    private long beginWrite()
+    {
+        VersionClock current = clock;
+        return current==null ? 0 : current.beginWrite();
+    }
+
+    private void endWrite(long version)
+    {
+        if(version!=0)
+            clock.endWrite(version);
+    }
+
+    // keeps what the id holds now for the snapshots that may still read it, before indexes or storage change
+    private void remember(long id, long version)
+    {
+        if(version!=0 && clock.isReading())
+            history.record(id,read(id),version,clock);
+    }
+
+    // stores a copy of a caller's model
+    private void save(long id, T model)
+    {
+        write(id,copy(model));
+    }
+
+    private T copy(T model)
+    {
+        if(model==null || copier==null)
+            return model;
+
+        ByteBuffer buffer = ByteBuffer.allocate(copier.maxBytes(model));
+        copier.encode(model,buffer);
+        buffer.flip();
+        return copier.decode(buffer);
+    }
+
+    private ReentrantLock lockFor(long id)
+    {
+        return locks[(int)(id & (LOCK_STRIPES - 1))];
+    }
+
+    // runs the action holding the locks of the given ids, e.g. while a transaction checks and writes them
+    @Override
+    public void withLocks(long[] ids, Runnable action)
+    {
+        withLocksFrom(stripesOf(ids),0,action);
+    }
+
+    // runs the action only if the locks of the given ids can be had without waiting, so they may be taken on top of
+    // others out of order; false when one of them was held by another thread
+    @Override
+    public boolean tryWithLocks(long[] ids, Runnable action)
+    {
+        int[] stripes = stripesOf(ids);
+        int taken = 0;
+        try
+        {
+            while(taken < stripes.length && locks[stripes[taken]].tryLock())
+                taken++;
+            if(taken < stripes.length)
+                return false;
+
+            action.run();
+            return true;
+        }
+        finally
+        {
+            for(int i = taken - 1; i >= 0; i--)
+                locks[stripes[i]].unlock();
+        }
+    }
+
+    private static int[] stripesOf(long[] ids)
+    {
+        return Arrays.stream(ids).mapToInt(id -> (int)(id & (LOCK_STRIPES - 1))).distinct().sorted().toArray();
+    }
+
+    // the whole batch is one write, a snapshot sees all of it or none of it
+    private void withAllLocks(LongConsumer action)
+    {
+        withLocksFrom(ALL_STRIPES,0,() -> {
+            long version = beginWrite();
+            try
+            {
+                action.accept(version);
+            }
+            finally
+            {
+                endWrite(version);
+            }
+        });
+    }
+
+    // stripes are always taken in ascending order, so two batches cannot deadlock
+    private void withLocksFrom(int[] stripes, int next, Runnable action)
+    {
+        if(next==stripes.length)
+        {
+            action.run();
+            return;
+        }
+
+        locks[stripes[next]].lock();
+        try
+        {
+            withLocksFrom(stripes,next + 1,action);
+        }
+        finally
+        {
+            locks[stripes[next]].unlock();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package data;
+
+import errors.VersionConflictException;
+import models.Reservation;
+import models.Table;
+import models.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+
+// keeps the read set and the pending writes, other reads than get() go straight to the repository and are not checked
+abstract class AbstractTransaction implements Transaction
+{
+    // the version a read remembers for an id that held no model
+    static final long ABSENT = -1;
+
+    enum Kind
+    {
+        ADD, UPDATE, DELETE
+    }
+
+    static class Read
+    {
+        final EntityType<?> type;
+        final long id;
+        final long version;
+
+        Read(EntityType<?> type, long id, long version)
+        {
+            this.type = type;
+            this.id = id;
+            this.version = version;
+        }
+    }
+
+    static class Write
+    {
+        final Kind kind;
+        final Object model;
+
+        Write(Kind kind, Object model)
+        {
+            this.kind = kind;
+            this.model = model;
+        }
+    }
+
+    protected final Repository repository;
+    protected final List<Read> reads = new ArrayList<>();
+    protected final List<Write> writes = new ArrayList<>();
+    private boolean finished;
+
+    AbstractTransaction(Repository repository)
+    {
+        this.repository = repository;
+    }
+
+    // checks the read set and applies the writes
+    protected abstract void apply();
+
+    @Override
+    public void commit()
+    {
+        checkOpen();
+        finished = true;
+        apply();
+    }
+
+    @Override
+    public <T> void add(T model) {
+        write(Kind.ADD,model);
+    }
+
+    @Override
+    public <T> void update(T model) {
+        write(Kind.UPDATE,model);
+    }
+
+    @Override
+    public <T> void delete(T model) {
+        write(Kind.DELETE,model);
+    }
+
+    @Override
+    public <T> T get(long id, Class<T> modelClass) {
+        T model = repository.get(id,modelClass);
+        expect(id,modelClass,model);
+        return model;
+    }
+
+    @Override
+    public <T> void expect(long id, Class<T> modelClass, T model) {
+        EntityType<T> type = EntityType.of(modelClass);
+        reads.add(new Read(type,id,versionOf(type,model)));
+    }
+
+    @Override
+    public <T> List<T> getAll(Class<T> modelClass) {
+        return repository.getAll(modelClass);
+    }
+
+    @Override
+    public <T> Spliterator<T> spliterator(Class<T> modelClass) {
+        return repository.spliterator(modelClass);
+    }
+
+    @Override
+    public <T> List<T> getPage(Class<T> modelClass, long afterId, int limit) {
+        return repository.getPage(modelClass,afterId,limit);
+    }
+
+    @Override
+    public <T> QueryPlan<T> plan(Class<T> modelClass, Query query) {
+        return repository.plan(modelClass,query);
+    }
+
+    @Override
+    public List<Reservation> getUserReservations(long userId) {
+        return repository.getUserReservations(userId);
+    }
+
+    @Override
+    public List<Reservation> getUserReservations(long userId, long afterId, int limit) {
+        return repository.getUserReservations(userId,afterId,limit);
+    }
+
+    @Override
+    public List<Table> getRestaurantTables(long restaurantId) {
+        return repository.getRestaurantTables(restaurantId);
+    }
+
+    @Override
+    public List<Table> getRestaurantTables(long restaurantId, long afterId, int limit) {
+        return repository.getRestaurantTables(restaurantId,afterId,limit);
+    }
+
+    @Override
+    public List<Reservation> getTableReservations(Collection<Long> tableIds, long afterId, int limit) {
+        return repository.getTableReservations(tableIds,afterId,limit);
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        return repository.getUserByEmail(email);
+    }
+
+    // every id read still holds the version it was read at
+    protected void checkReads()
+    {
+        for(Read read : reads)
+            check(read);
+    }
+
+    private <T> void check(Read read)
+    {
+        @SuppressWarnings("unchecked")
+        EntityType<T> type = (EntityType<T>)read.type;
+        long version = versionOf(type,repository.get(read.id,type.getModelClass()));
+        if(version==read.version)
+            return;
+
+        if(version==ABSENT)
+            throw new VersionConflictException(type.getName(),read.id);
+        throw new VersionConflictException(type.getName(),read.id,Math.max(read.version,0),version);
+    }
+
+    private static <T> long versionOf(EntityType<T> type, T model)
+    {
+        return model==null ? ABSENT : type.getVersion(model);
+    }
+
+    private void write(Kind kind, Object model)
+    {
+        checkOpen();
+        writes.add(new Write(kind,model));
+    }
+
+    private void checkOpen()
+    {
+        if(finished)
+            throw new IllegalStateException("The transaction is already committed");
+    }
+}
@@ -0,0 +1,203 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class ArrayEntityStore<T> extends AbstractEntityStore<T>
+{
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final Object TOMBSTONE = new Object();
+
+    private static final class Chunk
+    {
+        final AtomicReferenceArray<Object> slots = new AtomicReferenceArray<>(CHUNK_SIZE);
+        final AtomicInteger live = new AtomicInteger();
+        final AtomicInteger tombstones = new AtomicInteger();
+    }
+
+    // ids start at 1 and are never reused, id n lives in slot (n - 1)
+    private volatile Chunk[] chunks;
+    private final Object growLock;
+
+    public ArrayEntityStore(EntityType<T> type)
+    {
+        super(type);
+        chunks = new Chunk[16];
+        growLock = new Object();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected T read(long id)
+    {
+        Chunk chunk = chunkOf(id);
+        if(chunk==null)
+            return null;
+
+        Object model = chunk.slots.get(slotOf(id));
+        return model==TOMBSTONE ? null : (T)model;
+    }
+
+    @Override
+    protected void write(long id, T model)
+    {
+        Chunk chunk = ensureChunk(id);
+        // a deleted id comes back when a failed transaction is undone; compact() may be dropping its chunk, so the
+        // chunk is looked up again while compact() can't run
+        if(chunk.slots.get(slotOf(id))==TOMBSTONE)
+        {
+            synchronized(growLock)
+            {
+                store(ensureChunk(id),id,model);
+            }
+        }
+        else
+            store(chunk,id,model);
+    }
+
+    @Override
+    protected boolean erase(long id)
+    {
+        Chunk chunk = chunkOf(id);
+        if(chunk==null)
+            return false;
+
+        Object previous = chunk.slots.get(slotOf(id));
+        if(previous==null || previous==TOMBSTONE)
+            return false;
+
+        chunk.slots.set(slotOf(id),TOMBSTONE);
+        chunk.live.decrementAndGet();
+        chunk.tombstones.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected List<T> readAll()
+    {
+        List<T> models = new ArrayList<>();
+        for(Chunk chunk : chunks)
+        {
+            if(chunk==null || chunk.live.get()==0)
+                continue;
+
+            for(int i = 0; i < CHUNK_SIZE; i++)
+            {
+                Object model = chunk.slots.get(i);
+                if(model!=null && model!=TOMBSTONE)
+                    models.add((T)model);
+            }
+        }
+        return models;
+    }
+
+    @Override
+    protected Spliterator<T> spliteratorAll()
+    {
+        return spliteratorAfter(0);
+    }
+
+    @Override
+    protected Spliterator<T> spliteratorAfter(long afterId)
+    {
+        return new IdRangeSpliterator<>(this::read,this::skipMissingChunks,Math.max(afterId,0) + 1,getLastId() + 1);
+    }
+
+    // a chunk whose every slot is a tombstone is only written again when an undone delete brings an id back, which
+    // write() does under growLock, so it is dropped
+    public int compact()
+    {
+        int released = 0;
+        synchronized(growLock)
+        {
+            Chunk[] current = chunks;
+            for(int i = 0; i < current.length; i++)
+            {
+                if(current[i]!=null && current[i].tombstones.get()==CHUNK_SIZE)
+                {
+                    current[i] = null;
+                    released++;
+                }
+            }
+            chunks = current;
+        }
+        return released;
+    }
+
+    public int getAllocatedChunks()
+    {
+        int allocated = 0;
+        for(Chunk chunk : chunks)
+        {
+            if(chunk!=null)
+                allocated++;
+        }
+        return allocated;
+    }
+
+    private long skipMissingChunks(long id)
+    {
+        Chunk[] current = chunks;
+        long index = (id - 1) >>> CHUNK_BITS;
+        if(index < current.length && current[(int)index]!=null)
+            return id;
+
+        while(index < current.length && current[(int)index]==null)
+            index++;
+        return index < current.length ? (index << CHUNK_BITS) + 1 : Long.MAX_VALUE;
+    }
+
+    private Chunk chunkOf(long id)
+    {
+        if(id<1)
+            return null;
+
+        long index = (id - 1) >>> CHUNK_BITS;
+        Chunk[] current = chunks;
+        return index < current.length ? current[(int)index] : null;
+    }
+
+    private Chunk ensureChunk(long id)
+    {
+        Chunk chunk = chunkOf(id);
+        if(chunk!=null)
+            return chunk;
+
+        int index = (int)((id - 1) >>> CHUNK_BITS);
+        synchronized(growLock)
+        {
+            Chunk[] current = chunks;
+            if(index >= current.length)
+            {
+                Chunk[] grown = new Chunk[Math.max(current.length * 2, index + 1)];
+                System.arraycopy(current,0,grown,0,current.length);
+                current = grown;
+            }
+            if(current[index]==null)
+                current[index] = new Chunk();
+            chunks = current;
+            return current[index];
+        }
+    }
+
+    private static void store(Chunk chunk, long id, Object model)
+    {
+        Object previous = chunk.slots.getAndSet(slotOf(id),model);
+        if(previous==TOMBSTONE)
+            chunk.tombstones.decrementAndGet();
+        if(previous==null || previous==TOMBSTONE)
+            chunk.live.incrementAndGet();
+    }
+
+    private static int slotOf(long id)
+    {
+        return (int)((id - 1) & CHUNK_MASK);
+    }
+}
@@ -0,0 +1,21 @@
+package data;
+
+public class ArrayRepository extends StoreRepository
+{
+    public ArrayRepository()
+    {
+        super(StoreRegistry.of(ArrayEntityStore::new));
+    }
+
+    public int compact()
+    {
+        int released = 0;
+        for(EntityType<?> type : EntityType.values())
+        {
+            EntityStore<?> store = getRegistry().storeFor(type.getModelClass());
+            if(store instanceof ArrayEntityStore)
+                released += ((ArrayEntityStore<?>)store).compact();
+        }
+        return released;
+    }
+}
@@ -0,0 +1,43 @@
+package data;
+
+import models.Reservation;
+import models.Table;
+import models.User;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// the Repository calls as futures, so a caller can start several independent reads and wait once for all of them;
+// failures complete the future exceptionally with the exception the call would have thrown
+public interface AsyncRepository
+{
+    <T> CompletableFuture<Void> add(T model);
+    <T> CompletableFuture<Void> update(T model);
+    <T> CompletableFuture<Void> compareAndUpdate(T model);
+    <T> CompletableFuture<Void> delete(T model);
+    <T> CompletableFuture<T> get(long id, Class<T> modelClass);
+    <T> CompletableFuture<List<T>> getAll(Class<T> modelClass);
+    <T> CompletableFuture<List<T>> getPage(Class<T> modelClass, long afterId, int limit);
+    <T> CompletableFuture<List<T>> find(Class<T> modelClass, Query query);
+
+    CompletableFuture<List<Reservation>> getUserReservations(long userId);
+    CompletableFuture<List<Table>> getRestaurantTables(long restaurantId);
+    CompletableFuture<User> getUserByEmail(String email);
+
+    // checks the transaction's reads and applies its writes, see Transaction.commit()
+    CompletableFuture<Void> commit(Transaction transaction);
+
+    // every call runs on the executor, a blocking repository then only holds up the executor's threads
+    static AsyncRepository of(Repository repository, Executor executor)
+    {
+        return new ExecutorAsyncRepository(repository,executor);
+    }
+
+    // repository calls may block, so they get a bounded pool of their own rather than the common fork/join pool;
+    // a repository that needs more threads than that takes an executor of its own
+    static AsyncRepository of(Repository repository)
+    {
+        return of(repository,ExecutorAsyncRepository.DefaultExecutor.POOL);
+    }
+}
@@ -0,0 +1,77 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// outcome of a batch call, failed items are reported by their position in the batch and the rest are applied
+public class BatchResult<T>
+{
+    public static class Failure<T>
+    {
+        private final int index;
+        private final T model;
+        private final Exception error;
+
+        public Failure(int index, T model, Exception error)
+        {
+            this.index = index;
+            this.model = model;
+            this.error = error;
+        }
+
+        public int getIndex()
+        {
+            return index;
+        }
+
+        public T getModel()
+        {
+            return model;
+        }
+
+        public Exception getError()
+        {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return index + ": " + error.getMessage();
+        }
+    }
+
+    private final int size;
+    private final List<Failure<T>> failures = new ArrayList<>();
+
+    public BatchResult(int size)
+    {
+        this.size = size;
+    }
+
+    public void failed(int index, T model, Exception error)
+    {
+        failures.add(new Failure<>(index,model,error));
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    public int getSucceeded()
+    {
+        return size - failures.size();
+    }
+
+    public boolean isSuccessful()
+    {
+        return failures.isEmpty();
+    }
+
+    public List<Failure<T>> getFailures()
+    {
+        failures.sort(Comparator.comparingInt(Failure::getIndex));
+        return failures;
+    }
+}
@@ -0,0 +1,348 @@
+package data;
+
+import models.Reservation;
+import models.Restaurant;
+import models.Table;
+import models.User;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// compact model encoding: a null mask byte followed by the present fields as varints, slots, epoch days and UTF-8,
+// then the version
+public final class BinaryCodecs
+{
+    public static final ModelCodec<Reservation> RESERVATION = new ReservationCodec();
+    public static final ModelCodec<Restaurant> RESTAURANT = new RestaurantCodec();
+    public static final ModelCodec<Table> TABLE = new TableCodec();
+    public static final ModelCodec<User> USER = new UserCodec();
+
+    private static final int MAX_VARINT_BYTES = 5;
+    private static final int MAX_VARLONG_BYTES = 10;
+    private static final int MAX_TIME_BYTES = 5;
+    private static final User.Type[] USER_TYPES = User.Type.values();
+
+    private BinaryCodecs()
+    {
+    }
+
+    private static final class ReservationCodec implements ModelCodec<Reservation>
+    {
+        @Override
+        public int maxBytes(Reservation model) {
+            return 1 + 4 * MAX_VARLONG_BYTES + MAX_TIME_BYTES + MAX_VARINT_BYTES;
+        }
+
+        @Override
+        public void encode(Reservation model, ByteBuffer out) {
+            out.put(mask(model.getId(),model.getUserId(),model.getTableId(),model.getTime(),model.getDate()));
+            putId(out,model.getId());
+            putId(out,model.getUserId());
+            putId(out,model.getTableId());
+            putTime(out,model.getTime());
+            putDate(out,model.getDate());
+            putVarLong(out,model.getVersion());
+        }
+
+        @Override
+        public Reservation decode(ByteBuffer in) {
+            int mask = in.get();
+            Long id = (mask & 1) != 0 ? getId(in) : null;
+            Long userId = (mask & 2) != 0 ? getId(in) : null;
+            Long tableId = (mask & 4) != 0 ? getId(in) : null;
+            LocalTime time = (mask & 8) != 0 ? getTime(in) : null;
+            LocalDate date = (mask & 16) != 0 ? getDate(in) : null;
+            Reservation reservation = new Reservation(id,userId,tableId,time,date);
+            reservation.setVersion(getVarLong(in));
+            return reservation;
+        }
+    }
+
+    private static final class RestaurantCodec implements ModelCodec<Restaurant>
+    {
+        @Override
+        public int maxBytes(Restaurant model) {
+            return 1 + 2 * MAX_VARLONG_BYTES + maxStringBytes(model.getName()) + maxStringBytes(model.getAddress()) + 2 * MAX_TIME_BYTES;
+        }
+
+        @Override
+        public void encode(Restaurant model, ByteBuffer out) {
+            out.put(mask(model.getId(),model.getName(),model.getAddress(),model.getOpenHour(),model.getCloseHour()));
+            putId(out,model.getId());
+            putString(out,model.getName());
+            putString(out,model.getAddress());
+            putTime(out,model.getOpenHour());
+            putTime(out,model.getCloseHour());
+            putVarLong(out,model.getVersion());
+        }
+
+        @Override
+        public Restaurant decode(ByteBuffer in) {
+            int mask = in.get();
+            Long id = (mask & 1) != 0 ? getId(in) : null;
+            String name = (mask & 2) != 0 ? getString(in) : null;
+            String address = (mask & 4) != 0 ? getString(in) : null;
+            LocalTime openHour = (mask & 8) != 0 ? getTime(in) : null;
+            LocalTime closeHour = (mask & 16) != 0 ? getTime(in) : null;
+            Restaurant restaurant = new Restaurant(id,name,address,openHour,closeHour);
+            restaurant.setVersion(getVarLong(in));
+            return restaurant;
+        }
+    }
+
+    private static final class TableCodec implements ModelCodec<Table>
+    {
+        @Override
+        public int maxBytes(Table model) {
+            return 1 + 3 * MAX_VARLONG_BYTES + MAX_VARINT_BYTES;
+        }
+
+        @Override
+        public void encode(Table model, ByteBuffer out) {
+            out.put(mask(model.getId(),model.getRestaurantId()));
+            putId(out,model.getId());
+            putVarInt(out,zigZag(model.getSeats()));
+            putId(out,model.getRestaurantId());
+            putVarLong(out,model.getVersion());
+        }
+
+        @Override
+        public Table decode(ByteBuffer in) {
+            int mask = in.get();
+            Long id = (mask & 1) != 0 ? getId(in) : null;
+            int seats = unZigZag(getVarInt(in));
+            Long restaurantId = (mask & 2) != 0 ? getId(in) : null;
+            Table table = new Table(id,seats,restaurantId);
+            table.setVersion(getVarLong(in));
+            return table;
+        }
+    }
+
+    private static final class UserCodec implements ModelCodec<User>
+    {
+        private static final int ACTIVE = 1 << 7;
+
+        @Override
+        public int maxBytes(User model) {
+            return 2 + 2 * MAX_VARLONG_BYTES + maxStringBytes(model.getEmail()) + maxStringBytes(model.getPassword());
+        }
+
+        @Override
+        public void encode(User model, ByteBuffer out) {
+            int mask = mask(model.getId(),model.getEmail(),model.getPassword(),model.getUserType());
+            out.put((byte)(model.isActive() ? mask | ACTIVE : mask));
+            putId(out,model.getId());
+            putString(out,model.getEmail());
+            putString(out,model.getPassword());
+            if(model.getUserType()!=null)
+                out.put((byte)model.getUserType().ordinal());
+            putVarLong(out,model.getVersion());
+        }
+
+        @Override
+        public User decode(ByteBuffer in) {
+            int mask = in.get();
+            Long id = (mask & 1) != 0 ? getId(in) : null;
+            String email = (mask & 2) != 0 ? getString(in) : null;
+            String password = (mask & 4) != 0 ? getString(in) : null;
+            User.Type type = (mask & 8) != 0 ? USER_TYPES[in.get()] : null;
+            User user = new User(id,email,password,(mask & ACTIVE) != 0,type);
+            user.setVersion(getVarLong(in));
+            return user;
+        }
+    }
+
+    // bit i is set when the i-th field is present
+    private static byte mask(Object... fields)
+    {
+        int mask = 0;
+        for(int i = 0; i < fields.length; i++)
+            if(fields[i]!=null)
+                mask |= 1 << i;
+        return (byte)mask;
+    }
+
+    private static void putId(ByteBuffer out, Long id)
+    {
+        if(id!=null)
+            putVarLong(out,(id << 1) ^ (id >> 63));
+    }
+
+    private static long getId(ByteBuffer in)
+    {
+        long value = getVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // a half hour slot fits in one byte, any other time of day follows as millis
+    private static void putTime(ByteBuffer out, LocalTime time)
+    {
+        if(time==null)
+            return;
+
+        if(time.getMillisOfSecond()==0 && time.getSecondOfMinute()==0 && time.getMinuteOfHour() % 30 == 0)
+            putVarInt(out,TimeSlots.slotOf(time));
+        else putVarInt(out,TimeSlots.SLOTS_PER_DAY + time.getMillisOfDay());
+    }
+
+    private static LocalTime getTime(ByteBuffer in)
+    {
+        int value = getVarInt(in);
+        return value < TimeSlots.SLOTS_PER_DAY
+                ? TimeSlots.timeOf((byte)value)
+                : LocalTime.fromMillisOfDay(value - TimeSlots.SLOTS_PER_DAY);
+    }
+
+    private static void putDate(ByteBuffer out, LocalDate date)
+    {
+        if(date!=null)
+            putVarInt(out,zigZag(TimeSlots.epochDayOf(date)));
+    }
+
+    private static LocalDate getDate(ByteBuffer in)
+    {
+        return TimeSlots.dateOf(unZigZag(getVarInt(in)));
+    }
+
+    static int maxStringBytes(String value)
+    {
+        return value==null ? 0 : MAX_VARINT_BYTES + 3 * value.length();
+    }
+
+    // writes UTF-8 straight into the buffer, lone surrogates become '?' like in String.getBytes
+    static void putString(ByteBuffer out, String value)
+    {
+        if(value==null)
+            return;
+
+        putVarInt(out,utf8Length(value));
+        int length = value.length();
+        for(int i = 0; i < length; i++)
+        {
+            char c = value.charAt(i);
+            if(c < 0x80)
+                out.put((byte)c);
+            else if(c < 0x800)
+            {
+                out.put((byte)(0xC0 | c >> 6));
+                out.put((byte)(0x80 | c & 0x3F));
+            }
+            else if(Character.isSurrogate(c))
+            {
+                if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1)))
+                {
+                    int codePoint = Character.toCodePoint(c,value.charAt(++i));
+                    out.put((byte)(0xF0 | codePoint >> 18));
+                    out.put((byte)(0x80 | codePoint >> 12 & 0x3F));
+                    out.put((byte)(0x80 | codePoint >> 6 & 0x3F));
+                    out.put((byte)(0x80 | codePoint & 0x3F));
+                }
+                else out.put((byte)'?');
+            }
+            else
+            {
+                out.put((byte)(0xE0 | c >> 12));
+                out.put((byte)(0x80 | c >> 6 & 0x3F));
+                out.put((byte)(0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    static String getString(ByteBuffer in)
+    {
+        int length = getVarInt(in);
+        if(!in.hasArray())
+        {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            return new String(bytes,StandardCharsets.UTF_8);
+        }
+
+        String value = new String(in.array(),in.arrayOffset() + in.position(),length,StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static int utf8Length(String value)
+    {
+        int length = value.length();
+        int bytes = 0;
+        for(int i = 0; i < length; i++)
+        {
+            char c = value.charAt(i);
+            if(c < 0x80)
+                bytes += 1;
+            else if(c < 0x800)
+                bytes += 2;
+            else if(Character.isSurrogate(c))
+            {
+                if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1)))
+                {
+                    bytes += 4;
+                    i++;
+                }
+                else bytes += 1;
+            }
+            else bytes += 3;
+        }
+        return bytes;
+    }
+
+    static void putVarInt(ByteBuffer out, int value)
+    {
+        while((value & ~0x7F) != 0)
+        {
+            out.put((byte)(value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte)value);
+    }
+
+    static int getVarInt(ByteBuffer in)
+    {
+        int value = 0;
+        for(int shift = 0; shift < 35; shift += 7)
+        {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if(b >= 0)
+                return value;
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    static void putVarLong(ByteBuffer out, long value)
+    {
+        while((value & ~0x7FL) != 0)
+        {
+            out.put((byte)(value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte)value);
+    }
+
+    static long getVarLong(ByteBuffer in)
+    {
+        long value = 0;
+        for(int shift = 0; shift < 70; shift += 7)
+        {
+            byte b = in.get();
+            value |= (long)(b & 0x7F) << shift;
+            if(b >= 0)
+                return value;
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static int zigZag(int value)
+    {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(int value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
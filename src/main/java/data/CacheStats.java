@@ -0,0 +1,57 @@
+package data;
+
+// counts of one model type's cache at the moment they were taken
+public class CacheStats
+{
+    private final long hits;
+    private final long misses;
+    private final long coalesced;
+    private final long evictions;
+    private final int size;
+
+    public CacheStats(long hits, long misses, long coalesced, long evictions, int size)
+    {
+        this.hits = hits;
+        this.misses = misses;
+        this.coalesced = coalesced;
+        this.evictions = evictions;
+        this.size = size;
+    }
+
+    public long getHits()
+    {
+        return hits;
+    }
+
+    public long getMisses()
+    {
+        return misses;
+    }
+
+    // misses that waited for a load another caller had already started instead of reading the backend
+    public long getCoalesced()
+    {
+        return coalesced;
+    }
+
+    public long getEvictions()
+    {
+        return evictions;
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    public double getHitRate()
+    {
+        long requests = hits + misses;
+        return requests==0 ? 0 : (double)hits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "hits " + hits + ", misses " + misses + " (" + coalesced + " coalesced), evictions " + evictions + ", size " + size;
+    }
+}
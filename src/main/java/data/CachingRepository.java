@@ -0,0 +1,232 @@
+package data;
+
+import models.Reservation;
+import models.Table;
+import models.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+// keeps the models of the configured types in front of a slower repository: get() is served from memory and every
+// write made through this repository drops the models it touched, the other reads go to the backend; concurrent
+// get() misses of one id, cached type or not, share a single backend read
+public class CachingRepository implements Repository
+{
+    private final Repository backend;
+    private final ConcurrentHashMap<Class<?>, TinyLfuCache<?>> caches = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>, SingleFlight<?>> loads = new ConcurrentHashMap<>();
+
+    public CachingRepository(Repository backend)
+    {
+        this.backend = backend;
+    }
+
+    // every model type gets a cache of the same capacity
+    public CachingRepository(Repository backend, int capacity)
+    {
+        this(backend);
+        for(EntityType<?> type : EntityType.values())
+            withCapacity(type.getModelClass(),capacity);
+    }
+
+    public CachingRepository withCapacity(Class<?> modelClass, int capacity)
+    {
+        EntityType.of(modelClass);
+        caches.put(modelClass,new TinyLfuCache<>(capacity));
+        return this;
+    }
+
+    public CacheStats getStats(Class<?> modelClass)
+    {
+        TinyLfuCache<?> cache = caches.get(modelClass);
+        if(cache==null)
+            throw new IllegalArgumentException("There is no cache for " + modelClass.getSimpleName());
+        SingleFlight<?> flight = loads.get(modelClass);
+        return cache.getStats(flight==null ? 0 : flight.getShared());
+    }
+
+    @Override
+    public <T> T get(long id, Class<T> modelClass) {
+        TinyLfuCache<T> cache = cacheFor(modelClass);
+        if(cache==null)
+            return loadsFor(modelClass).load(id,i -> backend.get(i,modelClass));
+
+        T model = cache.get(id);
+        if(model!=null)
+            return model;
+
+        return loadsFor(modelClass).load(id,i -> {
+            long stamp = cache.stamp(i);
+            T loaded = backend.get(i,modelClass);
+            if(loaded!=null)
+                cache.put(i,loaded,stamp);
+            return loaded;
+        });
+    }
+
+    @Override
+    public <T> void add(T model) {
+        backend.add(model);
+    }
+
+    @Override
+    public <T> void update(T model) {
+        try
+        {
+            backend.update(model);
+        }
+        finally
+        {
+            invalidate(model);
+        }
+    }
+
+    // a conflict may come from a stale cached copy, it is dropped either way
+    @Override
+    public <T> void compareAndUpdate(T model) {
+        try
+        {
+            backend.compareAndUpdate(model);
+        }
+        finally
+        {
+            invalidate(model);
+        }
+    }
+
+    @Override
+    public <T> void delete(T model) {
+        try
+        {
+            backend.delete(model);
+        }
+        finally
+        {
+            invalidate(model);
+        }
+    }
+
+    @Override
+    public <T> BatchResult<T> addAll(Class<T> modelClass, List<T> models) {
+        return backend.addAll(modelClass,models);
+    }
+
+    @Override
+    public <T> BatchResult<T> updateAll(Class<T> modelClass, List<T> models) {
+        try
+        {
+            return backend.updateAll(modelClass,models);
+        }
+        finally
+        {
+            models.forEach(this::invalidate);
+        }
+    }
+
+    @Override
+    public <T> BatchResult<T> deleteAll(Class<T> modelClass, List<T> models) {
+        try
+        {
+            return backend.deleteAll(modelClass,models);
+        }
+        finally
+        {
+            models.forEach(this::invalidate);
+        }
+    }
+
+    @Override
+    public <T> List<T> getAll(Class<T> modelClass) {
+        return backend.getAll(modelClass);
+    }
+
+    @Override
+    public <T> Spliterator<T> spliterator(Class<T> modelClass) {
+        return backend.spliterator(modelClass);
+    }
+
+    @Override
+    public <T> List<T> getPage(Class<T> modelClass, long afterId, int limit) {
+        return backend.getPage(modelClass,afterId,limit);
+    }
+
+    @Override
+    public <T> QueryPlan<T> plan(Class<T> modelClass, Query query) {
+        return backend.plan(modelClass,query);
+    }
+
+    @Override
+    public <T> List<T> find(Class<T> modelClass, Query query) {
+        return backend.find(modelClass,query);
+    }
+
+    @Override
+    public List<Reservation> getUserReservations(long userId) {
+        return backend.getUserReservations(userId);
+    }
+
+    @Override
+    public List<Reservation> getUserReservations(long userId, long afterId, int limit) {
+        return backend.getUserReservations(userId,afterId,limit);
+    }
+
+    @Override
+    public List<Table> getRestaurantTables(long restaurantId) {
+        return backend.getRestaurantTables(restaurantId);
+    }
+
+    @Override
+    public List<Table> getRestaurantTables(long restaurantId, long afterId, int limit) {
+        return backend.getRestaurantTables(restaurantId,afterId,limit);
+    }
+
+    @Override
+    public List<Reservation> getTableReservations(Collection<Long> tableIds, long afterId, int limit) {
+        return backend.getTableReservations(tableIds,afterId,limit);
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        return backend.getUserByEmail(email);
+    }
+
+    private <T> void invalidate(T model)
+    {
+        for(Class<?> c = model.getClass(); c!=null; c = c.getSuperclass())
+        {
+            TinyLfuCache<?> cache = caches.get(c);
+            SingleFlight<?> flight = loads.get(c);
+            if(cache==null && flight==null)
+                continue;
+
+            Long id = typeOf(c).getId(model);
+            if(id==null)
+                return;
+            if(flight!=null)
+                flight.forget(id);
+            if(cache!=null)
+                cache.invalidate(id);
+            return;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> EntityType<T> typeOf(Class<?> modelClass)
+    {
+        return EntityType.of((Class<T>)modelClass);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> SingleFlight<T> loadsFor(Class<T> modelClass)
+    {
+        return (SingleFlight<T>)loads.computeIfAbsent(modelClass,c -> new SingleFlight<>());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> TinyLfuCache<T> cacheFor(Class<T> modelClass)
+    {
+        return (TinyLfuCache<T>)caches.get(modelClass);
+    }
+}
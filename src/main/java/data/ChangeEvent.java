@@ -0,0 +1,93 @@
+package data;
+
+import java.nio.ByteBuffer;
+
+// one write to one id; the before image is the model the store held, which never changes, the after image is kept
+// encoded so changes made to the written model afterwards don't show up in it (types without a codec keep the
+// models themselves)
+public final class ChangeEvent
+{
+    public enum Operation
+    {
+        ADD, UPDATE, DELETE
+    }
+
+    private final long sequence;
+    private final EntityType<?> type;
+    private final long id;
+    private final Operation operation;
+    // null when the id held no model before or after the write
+    private final Object before;
+    private final Object after;
+
+    ChangeEvent(long sequence, EntityType<?> type, long id, Operation operation, Object before, Object after)
+    {
+        this.sequence = sequence;
+        this.type = type;
+        this.id = id;
+        this.operation = operation;
+        this.before = before;
+        this.after = after;
+    }
+
+    // events are numbered from 0 in the order they were published, a missing number is an event a subscriber lost
+    public long getSequence()
+    {
+        return sequence;
+    }
+
+    public EntityType<?> getType()
+    {
+        return type;
+    }
+
+    public long getId()
+    {
+        return id;
+    }
+
+    public Operation getOperation()
+    {
+        return operation;
+    }
+
+    // every call hands out a fresh copy
+    public <T> T getBefore(Class<T> modelClass)
+    {
+        checkType(modelClass);
+        return modelClass.cast(copy(type,before));
+    }
+
+    public <T> T getAfter(Class<T> modelClass)
+    {
+        checkType(modelClass);
+        ModelCodec<?> codec = type.getCodec();
+        if(after==null || codec==null)
+            return modelClass.cast(after);
+        return modelClass.cast(codec.decode(ByteBuffer.wrap((byte[])after)));
+    }
+
+    private void checkType(Class<?> modelClass)
+    {
+        if(modelClass!=type.getModelClass())
+            throw new IllegalArgumentException("Wrong argument type");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T copy(EntityType<T> type, Object model)
+    {
+        ModelCodec<T> codec = type.getCodec();
+        if(model==null || codec==null)
+            return (T)model;
+
+        ByteBuffer buffer = ByteBuffer.allocate(codec.maxBytes((T)model));
+        codec.encode((T)model,buffer);
+        buffer.flip();
+        return codec.decode(buffer);
+    }
+
+    @Override
+    public String toString() {
+        return sequence + " " + operation + " " + type.getName() + " " + id;
+    }
+}
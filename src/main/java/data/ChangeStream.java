@@ -0,0 +1,228 @@
+package data;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+// the writes of the attached stores as one ordered stream of events in a ring of slots: writers claim a sequence
+// number, subscribers read behind them at their own pace; writes to one id are published under its lock, so their
+// events keep the order of the writes
+public class ChangeStream
+{
+    // what happens when the writers get a whole ring ahead of a subscriber
+    public enum Overflow
+    {
+        // writers wait for the subscribers to catch up, but only so long for all of them together: they hold the
+        // lock stripes of what they write, a subscriber that stops reading drops events like DROP until it has read
+        // everything published
+        BLOCK,
+        // writers overwrite the events it hasn't read, it finds out from the gap in the sequence numbers
+        DROP
+    }
+
+    private final int capacity;
+    private final long maxWaitNanos;
+    private final int mask;
+    private final AtomicReferenceArray<ChangeEvent> slots;
+    private final AtomicLong next = new AtomicLong();
+    private final CopyOnWriteArrayList<Subscription> blocking = new CopyOnWriteArrayList<>();
+
+    public ChangeStream(int capacity)
+    {
+        this(capacity,10,TimeUnit.MILLISECONDS);
+    }
+
+    // the capacity is rounded up to a power of two, writers wait up to maxWait for the BLOCK subscribers
+    public ChangeStream(int capacity, long maxWait, TimeUnit unit)
+    {
+        if(capacity <= 0)
+            throw new IllegalArgumentException("Stream capacity must be positive");
+
+        maxWaitNanos = unit.toNanos(maxWait);
+        this.capacity = capacity==1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        mask = this.capacity - 1;
+        slots = new AtomicReferenceArray<>(this.capacity);
+    }
+
+    // publishes the writes of every store the repository has now, before the writes land: a subscriber may see
+    // an event before the repository shows its write
+    public ChangeStream attach(StoreRepository repository)
+    {
+        for(EntityStore<?> store : repository.getRegistry().getStores())
+            attach(store);
+        return this;
+    }
+
+    public <T> ChangeStream attach(EntityStore<T> store)
+    {
+        EntityType<T> type = store.getType();
+        StoreHooks<T> hooks = StoreHooks.of(store);
+        // called under the id's lock before the store is written, so the committed model is the one being replaced;
+        // it never changes, so it is the before image as it is
+        store.addListener(new StoreListener<T>() {
+            @Override
+            public void added(long id, T model) {
+                publish(type,id,ChangeEvent.Operation.ADD,null,image(type,model));
+            }
+
+            @Override
+            public void updated(long id, T model) {
+                publish(type,id,ChangeEvent.Operation.UPDATE,hooks.getCommitted(id),image(type,model));
+            }
+
+            @Override
+            public void deleted(long id) {
+                publish(type,id,ChangeEvent.Operation.DELETE,hooks.getCommitted(id),null);
+            }
+        });
+        return this;
+    }
+
+    // reads the events published from now on, one thread at a time
+    public Subscription subscribe(Overflow overflow)
+    {
+        Subscription subscription = new Subscription(next.get(),overflow);
+        if(overflow==Overflow.BLOCK)
+            blocking.add(subscription);
+        return subscription;
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    // a writer that took its sequence later may have filled the slot first, then this event is one that was
+    // overwritten already and is left out
+    <T> void publish(EntityType<T> type, long id, ChangeEvent.Operation operation, T committed, Object afterImage)
+    {
+        long sequence = next.getAndIncrement();
+        awaitRoom(sequence);
+
+        ChangeEvent event = new ChangeEvent(sequence,type,id,operation,committed,afterImage);
+        int index = index(sequence);
+        ChangeEvent current = slots.get(index);
+        while((current==null || current.getSequence() < sequence) && !slots.compareAndSet(index,current,event))
+            current = slots.get(index);
+    }
+
+    // the slot still holds the event a ring back, every blocking subscriber has to be past it; those that don't get
+    // there within maxWait of the writer starting to wait stop holding writers back
+    private void awaitRoom(long sequence)
+    {
+        long wrapped = sequence - capacity;
+        long deadline = System.nanoTime() + maxWaitNanos;
+        for(Subscription subscription : blocking)
+        {
+            while(subscription.cursor <= wrapped && !subscription.closed)
+            {
+                if(System.nanoTime() - deadline >= 0)
+                {
+                    blocking.remove(subscription);
+                    subscription.detached = true;
+                    break;
+                }
+                LockSupport.parkNanos(1000);
+            }
+        }
+    }
+
+    private int index(long sequence)
+    {
+        return (int)(sequence & mask);
+    }
+
+    private static <T> Object image(EntityType<T> type, T model)
+    {
+        ModelCodec<T> codec = type.getCodec();
+        if(model==null || codec==null)
+            return model;
+
+        ByteBuffer buffer = ByteBuffer.allocate(codec.maxBytes(model));
+        codec.encode(model,buffer);
+        return Arrays.copyOf(buffer.array(),buffer.position());
+    }
+
+    public class Subscription implements AutoCloseable
+    {
+        private final Overflow overflow;
+        // the sequence of the next event to read, written only by the reading thread
+        private volatile long cursor;
+        private volatile long missed;
+        private volatile boolean closed;
+        // a BLOCK subscription the writers stopped waiting for
+        private volatile boolean detached;
+
+        private Subscription(long cursor, Overflow overflow)
+        {
+            this.cursor = cursor;
+            this.overflow = overflow;
+        }
+
+        // the next event, or null if it hasn't been published yet
+        public ChangeEvent poll()
+        {
+            while(true)
+            {
+                long sequence = cursor;
+                ChangeEvent event = slots.get(index(sequence));
+                if(event==null || event.getSequence() < sequence)
+                {
+                    // caught up, writers wait for it again
+                    if(detached && !closed)
+                    {
+                        detached = false;
+                        blocking.addIfAbsent(this);
+                    }
+                    return null;
+                }
+
+                if(event.getSequence()==sequence)
+                {
+                    cursor = sequence + 1;
+                    return event;
+                }
+
+                // overwritten, the oldest event that can still be in the ring is a ring behind the one found
+                long oldest = event.getSequence() - capacity + 1;
+                missed += oldest - sequence;
+                cursor = oldest;
+            }
+        }
+
+        // hands every published event to the action, returns how many there were
+        public int drain(Consumer<? super ChangeEvent> action)
+        {
+            int drained = 0;
+            for(ChangeEvent event = poll(); event!=null; event = poll())
+            {
+                action.accept(event);
+                drained++;
+            }
+            return drained;
+        }
+
+        // events overwritten before they were read, for BLOCK only those lost while the writers didn't wait
+        public long getMissed()
+        {
+            return missed;
+        }
+
+        public Overflow getOverflow()
+        {
+            return overflow;
+        }
+
+        // a closed subscription holds back no writer
+        @Override
+        public void close() {
+            closed = true;
+            blocking.remove(this);
+        }
+    }
+}
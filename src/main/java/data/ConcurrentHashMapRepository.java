@@ -0,0 +1,9 @@
+package data;
+
+public class ConcurrentHashMapRepository extends StoreRepository
+{
+    public ConcurrentHashMapRepository()
+    {
+        super(StoreRegistry.of(MapEntityStore::concurrent));
+    }
+}
@@ -0,0 +1,32 @@
+package data;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// the models of one type as a repository's callers use them; what transactions, snapshots, shards and the log need
+// on top of that is in StoreHooks
+public interface EntityStore<T>
+{
+    EntityType<T> getType();
+    void add(T model);
+    void update(T model);
+    void compareAndUpdate(T model);
+    T get(long id);
+    List<T> getAll();
+    Spliterator<T> spliterator();
+    List<T> getPage(long afterId, int limit);
+    Stream<T> stream();
+    void forEach(Consumer<? super T> action);
+    void delete(T model);
+    BatchResult<T> addAll(List<T> models);
+    BatchResult<T> updateAll(List<T> models);
+    BatchResult<T> deleteAll(List<T> models);
+    List<T> find(String index, Object key);
+    List<T> findPage(String index, Collection<?> keys, long afterId, int limit);
+    T findUnique(String index, Object key);
+    QueryPlan<T> plan(Query query);
+    void addListener(StoreListener<T> listener);
+}
@@ -0,0 +1,208 @@
+package data;
+
+import models.Reservation;
+import models.Restaurant;
+import models.Table;
+import models.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToLongFunction;
+
+public final class EntityType<T>
+{
+    public static final String USER_ID = "userId";
+    public static final String TABLE_ID = "tableId";
+    public static final String RESTAURANT_ID = "restaurantId";
+    public static final String EMAIL = "email";
+    public static final String DATE = "date";
+    public static final String USER_TYPE = "userType";
+
+    public static final EntityType<Reservation> RESERVATION =
+            new EntityType<>(Reservation.class,Reservation::getId,Reservation::setId)
+                    .withIndex(USER_ID,Reservation::getUserId)
+                    .withIndex(TABLE_ID,Reservation::getTableId)
+                    .withField(DATE,Reservation::getDate)
+                    .withVersion(Reservation::getVersion,Reservation::setVersion)
+                    .withCodec(BinaryCodecs.RESERVATION);
+    public static final EntityType<Restaurant> RESTAURANT =
+            new EntityType<>(Restaurant.class,Restaurant::getId,Restaurant::setId)
+                    .withVersion(Restaurant::getVersion,Restaurant::setVersion)
+                    .withCodec(BinaryCodecs.RESTAURANT);
+    public static final EntityType<Table> TABLE =
+            new EntityType<>(Table.class,Table::getId,Table::setId)
+                    .withIndex(RESTAURANT_ID,Table::getRestaurantId)
+                    .withVersion(Table::getVersion,Table::setVersion)
+                    .withCodec(BinaryCodecs.TABLE);
+    public static final EntityType<User> USER =
+            new EntityType<>(User.class,User::getId,User::setId)
+                    .withUniqueIndex(EMAIL,u -> emailKey(u.getEmail()))
+                    .withFieldKey(EMAIL,email -> emailKey(email.toString()))
+                    .withField(USER_TYPE,User::getUserType)
+                    .withVersion(User::getVersion,User::setVersion)
+                    .withCodec(BinaryCodecs.USER);
+
+    private static final List<EntityType<?>> VALUES =
+            Collections.unmodifiableList(Arrays.asList(RESERVATION,RESTAURANT,TABLE,USER));
+
+    private final Class<T> modelClass;
+    private final Function<T, Long> idGetter;
+    private final BiConsumer<T, Long> idSetter;
+    private final Map<String, Function<T, ?>> indexes;
+    private final Map<String, Function<T, ?>> uniqueIndexes;
+    private final Map<String, Function<T, ?>> fields;
+    private final Map<String, Function<Object, ?>> fieldKeys;
+    private ModelCodec<T> codec;
+    private ToLongFunction<T> versionGetter;
+    private ObjLongConsumer<T> versionSetter;
+
+    public EntityType(Class<T> modelClass, Function<T, Long> idGetter, BiConsumer<T, Long> idSetter)
+    {
+        this.modelClass = modelClass;
+        this.idGetter = idGetter;
+        this.idSetter = idSetter;
+        indexes = new LinkedHashMap<>();
+        uniqueIndexes = new LinkedHashMap<>();
+        fields = new LinkedHashMap<>();
+        fieldKeys = new LinkedHashMap<>();
+    }
+
+    public static List<EntityType<?>> values()
+    {
+        return VALUES;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> EntityType<T> of(Class<T> modelClass)
+    {
+        for(EntityType<?> type : VALUES)
+            if(type.modelClass==modelClass)
+                return (EntityType<T>)type;
+        throw new IllegalArgumentException("Wrong argument type");
+    }
+
+    public static String emailKey(String email)
+    {
+        return email==null ? null : email.toLowerCase(Locale.ROOT);
+    }
+
+    // an indexed field can be queried too, the index key is its value
+    public EntityType<T> withIndex(String name, Function<T, ?> key)
+    {
+        indexes.put(name,key);
+        return withField(name,key);
+    }
+
+    public EntityType<T> withUniqueIndex(String name, Function<T, ?> key)
+    {
+        uniqueIndexes.put(name,key);
+        return withField(name,key);
+    }
+
+    public EntityType<T> withField(String name, Function<T, ?> value)
+    {
+        fields.put(name,value);
+        return this;
+    }
+
+    // maps query values the way the field value was mapped, e.g. lowercased emails
+    public EntityType<T> withFieldKey(String name, Function<Object, ?> key)
+    {
+        fieldKeys.put(name,key);
+        return this;
+    }
+
+    // types with a version can be updated with compare-and-set
+    public EntityType<T> withVersion(ToLongFunction<T> getter, ObjLongConsumer<T> setter)
+    {
+        versionGetter = getter;
+        versionSetter = setter;
+        return this;
+    }
+
+    public EntityType<T> withCodec(ModelCodec<T> codec)
+    {
+        this.codec = codec;
+        return this;
+    }
+
+    public Class<T> getModelClass()
+    {
+        return modelClass;
+    }
+
+    public String getName()
+    {
+        return modelClass.getSimpleName();
+    }
+
+    public ModelCodec<T> getCodec()
+    {
+        return codec;
+    }
+
+    public Long getId(T model)
+    {
+        return idGetter.apply(model);
+    }
+
+    public void setId(T model, Long id)
+    {
+        idSetter.accept(model,id);
+    }
+
+    public boolean isVersioned()
+    {
+        return versionGetter!=null;
+    }
+
+    // bumped by the repository on every write, an update based on an older version is rejected
+    public long getVersion(T model)
+    {
+        return versionGetter==null ? 0 : versionGetter.applyAsLong(model);
+    }
+
+    public void setVersion(T model, long version)
+    {
+        if(versionSetter!=null)
+            versionSetter.accept(model,version);
+    }
+
+    Object getField(T model, String field)
+    {
+        return fields.get(field).apply(model);
+    }
+
+    // checks every field exists on this type and maps the values to the stored form
+    List<Query.Condition> bind(Query query)
+    {
+        List<Query.Condition> conditions = new ArrayList<>();
+        for(Query.Condition condition : query.getConditions())
+        {
+            if(!fields.containsKey(condition.getField()))
+                throw new IllegalArgumentException("There is no field " + condition.getField() + " on " + getName());
+
+            Function<Object, ?> key = fieldKeys.get(condition.getField());
+            conditions.add(key==null ? condition : condition.withKey(key));
+        }
+        return conditions;
+    }
+
+    Map<String, Function<T, ?>> getIndexes()
+    {
+        return indexes;
+    }
+
+    Map<String, Function<T, ?>> getUniqueIndexes()
+    {
+        return uniqueIndexes;
+    }
+}
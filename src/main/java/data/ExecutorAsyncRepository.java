@@ -0,0 +1,111 @@
+package data;
+
+import models.Reservation;
+import models.Table;
+import models.User;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ExecutorAsyncRepository implements AsyncRepository
+{
+    // started on first use, its idle threads end after a minute; calls may block, so there are a few threads per
+    // core, and calls beyond them queue up instead of starting one thread each
+    static final class DefaultExecutor
+    {
+        private static final int THREADS = Math.max(4,Runtime.getRuntime().availableProcessors() * 4);
+        private static final AtomicInteger threads = new AtomicInteger();
+
+        static final ExecutorService POOL = pool();
+
+        private static ExecutorService pool()
+        {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(THREADS,THREADS,1,TimeUnit.MINUTES,new LinkedBlockingQueue<>(),r -> {
+                Thread thread = new Thread(r,"async-repository-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+
+        private DefaultExecutor()
+        {
+        }
+    }
+
+    private final Repository repository;
+    private final Executor executor;
+
+    ExecutorAsyncRepository(Repository repository, Executor executor)
+    {
+        this.repository = repository;
+        this.executor = executor;
+    }
+
+    @Override
+    public <T> CompletableFuture<Void> add(T model) {
+        return CompletableFuture.runAsync(() -> repository.add(model),executor);
+    }
+
+    @Override
+    public <T> CompletableFuture<Void> update(T model) {
+        return CompletableFuture.runAsync(() -> repository.update(model),executor);
+    }
+
+    @Override
+    public <T> CompletableFuture<Void> compareAndUpdate(T model) {
+        return CompletableFuture.runAsync(() -> repository.compareAndUpdate(model),executor);
+    }
+
+    @Override
+    public <T> CompletableFuture<Void> delete(T model) {
+        return CompletableFuture.runAsync(() -> repository.delete(model),executor);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> get(long id, Class<T> modelClass) {
+        return CompletableFuture.supplyAsync(() -> repository.get(id,modelClass),executor);
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> getAll(Class<T> modelClass) {
+        return CompletableFuture.supplyAsync(() -> repository.getAll(modelClass),executor);
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> getPage(Class<T> modelClass, long afterId, int limit) {
+        return CompletableFuture.supplyAsync(() -> repository.getPage(modelClass,afterId,limit),executor);
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> find(Class<T> modelClass, Query query) {
+        return CompletableFuture.supplyAsync(() -> repository.find(modelClass,query),executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Reservation>> getUserReservations(long userId) {
+        return CompletableFuture.supplyAsync(() -> repository.getUserReservations(userId),executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Table>> getRestaurantTables(long restaurantId) {
+        return CompletableFuture.supplyAsync(() -> repository.getRestaurantTables(restaurantId),executor);
+    }
+
+    @Override
+    public CompletableFuture<User> getUserByEmail(String email) {
+        return CompletableFuture.supplyAsync(() -> repository.getUserByEmail(email),executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> commit(Transaction transaction) {
+        return CompletableFuture.runAsync(transaction::commit,executor);
+    }
+}
@@ -0,0 +1,62 @@
+package data;
+
+// approximate read counts of ids for the cache admission check: a count-min sketch of four rows of counters that
+// stop at 15, a few counters per cached entry keep collisions rare; all counters are halved every sampleSize
+// increments so old popularity fades
+final class FrequencySketch
+{
+    private static final long[] SEEDS = {0x9e3779b97f4a7c15L, 0xc2b2ae3d27d4eb4fL, 0x165667b19e3779f9L, 0xd6e8feb86659fd93L};
+    private static final int MAX_COUNT = 15;
+
+    private final byte[][] rows;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int capacity)
+    {
+        int width = Integer.highestOneBit(Math.max(capacity,8) * 2 - 1) * 4;
+        rows = new byte[SEEDS.length][width];
+        mask = width - 1;
+        sampleSize = 10 * Math.max(capacity,1);
+    }
+
+    int frequency(long id)
+    {
+        int frequency = MAX_COUNT;
+        for(int row = 0; row < rows.length; row++)
+            frequency = Math.min(frequency,rows[row][index(id,row)]);
+        return frequency;
+    }
+
+    void increment(long id)
+    {
+        boolean added = false;
+        for(int row = 0; row < rows.length; row++)
+        {
+            int index = index(id,row);
+            if(rows[row][index] < MAX_COUNT)
+            {
+                rows[row][index]++;
+                added = true;
+            }
+        }
+
+        if(added && ++additions==sampleSize)
+            reset();
+    }
+
+    private int index(long id, int row)
+    {
+        long hash = (id + SEEDS[row]) * SEEDS[row];
+        return (int)(hash ^ hash >>> 32) & mask;
+    }
+
+    private void reset()
+    {
+        for(byte[] row : rows)
+            for(int i = 0; i < row.length; i++)
+                row[i] >>= 1;
+        additions /= 2;
+    }
+}
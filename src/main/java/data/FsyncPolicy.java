@@ -0,0 +1,11 @@
+package data;
+
+public enum FsyncPolicy
+{
+    // every mutation is forced to disk before the call returns
+    PER_OPERATION,
+    // mutations are forced by a background thread on a fixed interval, a crash loses at most one interval
+    GROUP_COMMIT,
+    // the OS writes pages back when it wants, a crash can lose anything not yet written back
+    OS_MANAGED
+}
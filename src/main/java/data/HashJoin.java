@@ -0,0 +1,67 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+public final class HashJoin
+{
+    private HashJoin()
+    {
+    }
+
+    public static <T, K> Set<K> keys(Collection<T> models, Function<T, K> key)
+    {
+        Set<K> keys = new HashSet<>(Math.max(16, models.size() * 2));
+        for(T model : models)
+            keys.add(key.apply(model));
+        return keys;
+    }
+
+    // one row per input, each distinct key is loaded only once
+    public static <T, K, R> List<R> join(Collection<T> models, Function<T, K> key, Function<K, R> loader)
+    {
+        Map<K, R> loaded = new HashMap<>();
+        List<R> joined = new ArrayList<>(models.size());
+        for(T model : models)
+        {
+            K k = key.apply(model);
+            R r;
+            if(loaded.containsKey(k))
+                r = loaded.get(k);
+            else
+            {
+                r = loader.apply(k);
+                loaded.put(k,r);
+            }
+            joined.add(r);
+        }
+        return joined;
+    }
+
+    // one row per distinct key in encounter order, keys without a match are skipped
+    public static <T, K, R> List<R> joinDistinct(Iterable<T> models, Function<T, K> key, Function<K, R> loader)
+    {
+        Map<K, R> loaded = new LinkedHashMap<>();
+        for(T model : models)
+        {
+            K k = key.apply(model);
+            if(!loaded.containsKey(k))
+                loaded.put(k,loader.apply(k));
+        }
+
+        List<R> joined = new ArrayList<>(loaded.size());
+        for(R r : loaded.values())
+        {
+            if(r!=null)
+                joined.add(r);
+        }
+        return joined;
+    }
+}
@@ -0,0 +1,69 @@
+package data;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.LongUnaryOperator;
+
+// walks ids [from, to) of a store addressed by id, reading models in place and skipping unallocated chunks
+class IdRangeSpliterator<T> implements Spliterator<T>
+{
+    private static final long MIN_SPLIT = 1 << 12;
+
+    private final LongFunction<T> reader;
+    // maps an id to the first id at or after it that can hold a model
+    private final LongUnaryOperator skip;
+    private long next;
+    private final long end;
+
+    IdRangeSpliterator(LongFunction<T> reader, LongUnaryOperator skip, long from, long to)
+    {
+        this.reader = reader;
+        this.skip = skip;
+        next = from;
+        end = to;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while(next < end)
+        {
+            long id = skip.applyAsLong(next);
+            if(id >= end)
+            {
+                next = end;
+                return false;
+            }
+
+            next = id + 1;
+            T model = reader.apply(id);
+            if(model!=null)
+            {
+                action.accept(model);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        if(end - next < 2 * MIN_SPLIT)
+            return null;
+
+        long middle = next + (end - next) / 2;
+        Spliterator<T> prefix = new IdRangeSpliterator<>(reader,skip,next,middle);
+        next = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - next;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | NONNULL | CONCURRENT;
+    }
+}
@@ -0,0 +1,62 @@
+package data;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// the ids one store hands out: partition, partition + partitions, ... so an id alone tells its partition;
+// a store that is not partitioned is partition 0 of 1
+final class IdSequence
+{
+    private final int partition;
+    private final int partitions;
+    // the last id handed out or restored, always in the partition so adding the stride gives the next one
+    private final AtomicLong last;
+
+    IdSequence()
+    {
+        this(0,1,0);
+    }
+
+    // continues after the ids up to used, which may already be taken by models restored before partitioning
+    IdSequence(int partition, int partitions, long used)
+    {
+        if(partition < 0 || partition >= partitions)
+            throw new IllegalArgumentException("Partition " + partition + " is not between 0 and " + (partitions - 1));
+
+        this.partition = partition;
+        this.partitions = partitions;
+        last = new AtomicLong(lastBefore(used + 1));
+    }
+
+    long next()
+    {
+        return last.addAndGet(partitions);
+    }
+
+    // the first of count ids, the others follow it stride apart
+    long next(int count)
+    {
+        return last.getAndAdd((long)count * partitions) + partitions;
+    }
+
+    int stride()
+    {
+        return partitions;
+    }
+
+    long getLast()
+    {
+        return last.get();
+    }
+
+    // ids up to id are taken, the next one handed out is the first id of the partition above it
+    void restore(long id)
+    {
+        last.accumulateAndGet(lastBefore(id + 1),Math::max);
+    }
+
+    // the id of the partition one stride below its first id from from on
+    private long lastBefore(long from)
+    {
+        return from + Math.floorMod(partition - from,(long)partitions) - partitions;
+    }
+}
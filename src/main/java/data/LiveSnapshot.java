@@ -0,0 +1,99 @@
+package data;
+
+import models.Reservation;
+import models.Table;
+import models.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+
+// reads go straight to the repository, for repositories that keep no versions
+class LiveSnapshot implements Snapshot
+{
+    private final Repository repository;
+
+    LiveSnapshot(Repository repository)
+    {
+        this.repository = repository;
+    }
+
+    @Override
+    public <T> void add(T model) {
+        throw new UnsupportedOperationException("Snapshots are read-only");
+    }
+
+    @Override
+    public <T> void update(T model) {
+        throw new UnsupportedOperationException("Snapshots are read-only");
+    }
+
+    @Override
+    public <T> void delete(T model) {
+        throw new UnsupportedOperationException("Snapshots are read-only");
+    }
+
+    @Override
+    public <T> T get(long id, Class<T> modelClass) {
+        return repository.get(id,modelClass);
+    }
+
+    @Override
+    public <T> List<T> getAll(Class<T> modelClass) {
+        return repository.getAll(modelClass);
+    }
+
+    @Override
+    public <T> Spliterator<T> spliterator(Class<T> modelClass) {
+        return repository.spliterator(modelClass);
+    }
+
+    @Override
+    public <T> List<T> getPage(Class<T> modelClass, long afterId, int limit) {
+        return repository.getPage(modelClass,afterId,limit);
+    }
+
+    @Override
+    public <T> List<T> find(Class<T> modelClass, Query query) {
+        return repository.find(modelClass,query);
+    }
+
+    @Override
+    public <T> QueryPlan<T> plan(Class<T> modelClass, Query query) {
+        return repository.plan(modelClass,query);
+    }
+
+    @Override
+    public List<Reservation> getUserReservations(long userId) {
+        return repository.getUserReservations(userId);
+    }
+
+    @Override
+    public List<Reservation> getUserReservations(long userId, long afterId, int limit) {
+        return repository.getUserReservations(userId,afterId,limit);
+    }
+
+    @Override
+    public List<Table> getRestaurantTables(long restaurantId) {
+        return repository.getRestaurantTables(restaurantId);
+    }
+
+    @Override
+    public List<Table> getRestaurantTables(long restaurantId, long afterId, int limit) {
+        return repository.getRestaurantTables(restaurantId,afterId,limit);
+    }
+
+    @Override
+    public List<Reservation> getTableReservations(Collection<Long> tableIds, long afterId, int limit) {
+        return repository.getTableReservations(tableIds,afterId,limit);
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        return repository.getUserByEmail(email);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,26 @@
+package data;
+
+// for repositories without stores, the reads are checked again right before the writes but nothing holds back
+// another writer in between
+class LiveTransaction extends AbstractTransaction
+{
+    LiveTransaction(Repository repository)
+    {
+        super(repository);
+    }
+
+    @Override
+    protected void apply()
+    {
+        checkReads();
+        for(Write write : writes)
+        {
+            if(write.kind==Kind.ADD)
+                repository.add(write.model);
+            else if(write.kind==Kind.UPDATE)
+                repository.update(write.model);
+            else
+                repository.delete(write.model);
+        }
+    }
+}
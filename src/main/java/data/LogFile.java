@@ -0,0 +1,223 @@
+package data;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// append-only file of [length][crc32][body] records, written through a memory-mapped window; with PER_OPERATION
+// every record is written and forced through the channel instead, so a sync costs the record and not the whole window
+class LogFile implements Closeable
+{
+    interface RecordHandler
+    {
+        void handle(byte[] body) throws IOException;
+    }
+
+    private static final int HEADER_BYTES = 8;
+    private static final long WINDOW_BYTES = 64L << 20;
+
+    private final Path path;
+    private final FsyncPolicy policy;
+    private final ScheduledExecutorService committer;
+
+    private FileChannel channel;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+    private boolean dirty;
+
+    LogFile(Path path, FsyncPolicy policy, long groupCommitMillis) throws IOException
+    {
+        this.path = path;
+        this.policy = policy;
+        channel = open(path);
+
+        if(policy==FsyncPolicy.GROUP_COMMIT)
+        {
+            committer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r,"log-group-commit");
+                thread.setDaemon(true);
+                return thread;
+            });
+            committer.scheduleWithFixedDelay(this::commit,groupCommitMillis,groupCommitMillis,TimeUnit.MILLISECONDS);
+        }
+        else committer = null;
+    }
+
+    // hands every complete record to the handler and cuts off a torn or corrupt tail
+    synchronized void replay(RecordHandler handler) throws IOException
+    {
+        long size = channel.size();
+        long valid = 0;
+
+        channel.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        try
+        {
+            while(valid + HEADER_BYTES <= size)
+            {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if(length <= 0 || valid + HEADER_BYTES + length > size)
+                    break;
+
+                byte[] body = new byte[length];
+                in.readFully(body);
+                if(checksum!=checksum(ByteBuffer.wrap(body)))
+                    break;
+
+                handler.handle(body);
+                valid += HEADER_BYTES + length;
+            }
+        }
+        catch(EOFException e)
+        {
+            // torn header, everything before it is kept
+        }
+
+        channel.truncate(valid);
+        position = valid;
+        if(policy!=FsyncPolicy.PER_OPERATION)
+            map(position,WINDOW_BYTES);
+    }
+
+    // appends the remaining bytes of body as one record
+    synchronized void append(ByteBuffer body) throws IOException
+    {
+        if(!channel.isOpen())
+            throw new ClosedChannelException();
+
+        int length = body.remaining();
+        int recordBytes = HEADER_BYTES + length;
+        if(policy==FsyncPolicy.PER_OPERATION)
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(length);
+            header.putInt(checksum(body.duplicate()));
+            header.flip();
+
+            long start = position;
+            try
+            {
+                write(header);
+                write(body);
+                channel.force(false);
+            }
+            catch(IOException e)
+            {
+                // the next record overwrites whatever part of this one reached the file
+                position = start;
+                throw e;
+            }
+            return;
+        }
+
+        if(window==null || position + recordBytes > windowStart + window.capacity())
+        {
+            if(window!=null && policy!=FsyncPolicy.OS_MANAGED)
+                window.force();
+            map(position,Math.max(WINDOW_BYTES,recordBytes));
+        }
+
+        window.position((int)(position - windowStart));
+        window.putInt(length);
+        window.putInt(checksum(body.duplicate()));
+        window.put(body);
+        position += recordBytes;
+        dirty = true;
+    }
+
+    synchronized long size()
+    {
+        return position;
+    }
+
+    // moves everything written so far to archive and continues in an empty file
+    synchronized void roll(Path archive) throws IOException
+    {
+        if(!channel.isOpen())
+            throw new ClosedChannelException();
+
+        closeChannel();
+        Files.move(path,archive);
+
+        channel = open(path);
+        windowStart = 0;
+        position = 0;
+        dirty = false;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if(committer!=null)
+            committer.shutdown();
+
+        synchronized(this)
+        {
+            if(channel.isOpen())
+                closeChannel();
+        }
+    }
+
+    private void closeChannel() throws IOException
+    {
+        if(window!=null)
+            window.force();
+        window = null;
+        channel.truncate(position);
+        channel.force(true);
+        channel.close();
+    }
+
+    private static FileChannel open(Path path) throws IOException
+    {
+        return FileChannel.open(path,StandardOpenOption.CREATE,StandardOpenOption.READ,StandardOpenOption.WRITE);
+    }
+
+    private void commit()
+    {
+        MappedByteBuffer toForce;
+        synchronized(this)
+        {
+            if(!dirty || !channel.isOpen())
+                return;
+            dirty = false;
+            toForce = window;
+        }
+        toForce.force();
+    }
+
+    private void write(ByteBuffer bytes) throws IOException
+    {
+        while(bytes.hasRemaining())
+            position += channel.write(bytes,position);
+    }
+
+    private void map(long start, long size) throws IOException
+    {
+        window = channel.map(FileChannel.MapMode.READ_WRITE,start,size);
+        windowStart = start;
+    }
+
+    private static int checksum(ByteBuffer body)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int)crc.getValue();
+    }
+}
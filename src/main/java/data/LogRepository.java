@@ -0,0 +1,302 @@
+package data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class LogRepository extends StoreRepository implements Closeable
+{
+    private static final byte ADD = 1;
+    private static final byte UPDATE = 2;
+    private static final byte DELETE = 3;
+    private static final byte SEQUENCE = 4;
+    private static final byte BATCH = 5;
+
+    private final LogFile log;
+    private final Path snapshotFile;
+    private final Path archiveFile;
+    private final Path snapshotTempFile;
+    private final Object snapshotLock = new Object();
+    private final ScheduledExecutorService snapshotter;
+
+    public LogRepository(Path file) throws IOException
+    {
+        this(file,FsyncPolicy.PER_OPERATION,0);
+    }
+
+    public LogRepository(Path file, FsyncPolicy policy, long groupCommitMillis) throws IOException
+    {
+        this(file,policy,groupCommitMillis,0);
+    }
+
+    // a positive snapshotIntervalMillis compacts the log in the background at that interval
+    public LogRepository(Path file, FsyncPolicy policy, long groupCommitMillis, long snapshotIntervalMillis) throws IOException
+    {
+        super(StoreRegistry.of(MapEntityStore::concurrent));
+
+        snapshotFile = sibling(file,".snapshot");
+        archiveFile = sibling(file,".old");
+        snapshotTempFile = sibling(file,".snapshot.tmp");
+
+        replay(snapshotFile,getRegistry());
+        replay(archiveFile,getRegistry());
+        log = new LogFile(file,policy,groupCommitMillis);
+        log.replay(record -> apply(getRegistry(),record));
+
+        for(EntityStore<?> store : getRegistry().getStores())
+            attach(store);
+
+        // a snapshot was interrupted before its archived log was folded in
+        if(Files.exists(archiveFile))
+            compact();
+
+        if(snapshotIntervalMillis > 0)
+        {
+            snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r,"log-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotter.scheduleWithFixedDelay(this::periodicSnapshot,snapshotIntervalMillis,snapshotIntervalMillis,TimeUnit.MILLISECONDS);
+        }
+        else snapshotter = null;
+    }
+
+    @Override
+    public <T> void register(EntityStore<T> store)
+    {
+        super.register(store);
+        attach(store);
+    }
+
+    public long getLogSize()
+    {
+        return log.size();
+    }
+
+    // archives the current log and folds it into the snapshot, writers only wait for the file switch
+    public void snapshot() throws IOException
+    {
+        synchronized(snapshotLock)
+        {
+            if(Files.exists(archiveFile))
+                compact();
+
+            log.roll(archiveFile);
+            compact();
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if(snapshotter!=null)
+            snapshotter.shutdown();
+
+        synchronized(snapshotLock)
+        {
+            log.close();
+        }
+    }
+
+    private void periodicSnapshot()
+    {
+        try
+        {
+            snapshot();
+        }
+        catch(IOException e)
+        {
+            // the archived log stays on disk and is folded in by the next snapshot or restart
+        }
+    }
+
+    // rebuilds state from the previous snapshot and the archived log only, so live writes never race with it
+    private void compact() throws IOException
+    {
+        StoreRegistry registry = StoreRegistry.of(MapEntityStore::hashMap);
+        replay(snapshotFile,registry);
+        replay(archiveFile,registry);
+
+        Files.deleteIfExists(snapshotTempFile);
+        try(LogFile snapshot = new LogFile(snapshotTempFile,FsyncPolicy.OS_MANAGED,0))
+        {
+            for(EntityStore<?> store : registry.getStores())
+                writeStore(snapshot,store);
+        }
+        Files.move(snapshotTempFile,snapshotFile,StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(archiveFile);
+    }
+
+    private static <T> void writeStore(LogFile snapshot, EntityStore<T> store) throws IOException
+    {
+        EntityType<T> type = store.getType();
+        // keeps ids of deleted entities from being handed out again
+        snapshot.append(encode(SEQUENCE,type,StoreHooks.of(store).getLastId(),null));
+        for(T model : store.getAll())
+            snapshot.append(encode(ADD,type,type.getId(model),model));
+    }
+
+    private static void replay(Path file, StoreRegistry registry) throws IOException
+    {
+        if(!Files.exists(file))
+            return;
+
+        try(LogFile log = new LogFile(file,FsyncPolicy.OS_MANAGED,0))
+        {
+            log.replay(record -> apply(registry,record));
+        }
+    }
+
+    private static Path sibling(Path file, String suffix)
+    {
+        return file.resolveSibling(file.getFileName() + suffix);
+    }
+
+    private <T> void attach(EntityStore<T> store)
+    {
+        EntityType<T> type = store.getType();
+        store.addListener(new StoreListener<T>() {
+            @Override
+            public void added(long id, T model) {
+                append(ADD,type,id,model);
+            }
+
+            @Override
+            public void updated(long id, T model) {
+                append(UPDATE,type,id,model);
+            }
+
+            @Override
+            public void deleted(long id) {
+                append(DELETE,type,id,null);
+            }
+
+            @Override
+            public void addedAll(long[] ids, List<T> models) {
+                appendBatch(ADD,type,ids,models);
+            }
+
+            @Override
+            public void updatedAll(long[] ids, List<T> models) {
+                appendBatch(UPDATE,type,ids,models);
+            }
+
+            @Override
+            public void deletedAll(long[] ids) {
+                appendBatch(DELETE,type,ids,null);
+            }
+        });
+    }
+
+    private <T> void append(byte operation, EntityType<T> type, long id, T model)
+    {
+        append(encode(operation,type,id,model));
+    }
+
+    // the whole batch is one checksummed record, so replay applies all of it or none
+    private <T> void appendBatch(byte operation, EntityType<T> type, long[] ids, List<T> models)
+    {
+        if(ids.length==0)
+            return;
+
+        int bytes = 1 + 5;
+        for(int i = 0; i < ids.length; i++)
+            bytes += maxRecordBytes(type,models==null ? null : models.get(i));
+
+        ByteBuffer record = ByteBuffer.allocate(bytes);
+        record.put(BATCH);
+        BinaryCodecs.putVarInt(record,ids.length);
+        for(int i = 0; i < ids.length; i++)
+            encodeInto(record,operation,type,ids[i],models==null ? null : models.get(i));
+        record.flip();
+        append(record);
+    }
+
+    private void append(ByteBuffer record)
+    {
+        try
+        {
+            log.append(record);
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static <T> ByteBuffer encode(byte operation, EntityType<T> type, long id, T model)
+    {
+        ByteBuffer record = ByteBuffer.allocate(maxRecordBytes(type,model));
+        encodeInto(record,operation,type,id,model);
+        record.flip();
+        return record;
+    }
+
+    private static <T> int maxRecordBytes(EntityType<T> type, T model)
+    {
+        int modelBytes = model==null ? 0 : type.getCodec().maxBytes(model);
+        return 1 + BinaryCodecs.maxStringBytes(type.getName()) + 10 + modelBytes;
+    }
+
+    private static <T> void encodeInto(ByteBuffer record, byte operation, EntityType<T> type, long id, T model)
+    {
+        record.put(operation);
+        BinaryCodecs.putString(record,type.getName());
+        BinaryCodecs.putVarLong(record,id);
+        if(model!=null)
+            type.getCodec().encode(model,record);
+    }
+
+    private static void apply(StoreRegistry registry, byte[] body) throws IOException
+    {
+        ByteBuffer record = ByteBuffer.wrap(body);
+        if(record.get(0)!=BATCH)
+        {
+            applyOne(registry,record);
+            return;
+        }
+
+        record.get();
+        int count = BinaryCodecs.getVarInt(record);
+        for(int i = 0; i < count; i++)
+            applyOne(registry,record);
+    }
+
+    private static void applyOne(StoreRegistry registry, ByteBuffer record) throws IOException
+    {
+        byte operation = record.get();
+        String type = BinaryCodecs.getString(record);
+        long id = BinaryCodecs.getVarLong(record);
+
+        StoreHooks<?> store;
+        try
+        {
+            store = StoreHooks.of(registry.storeNamed(type));
+        }
+        catch(IllegalArgumentException e)
+        {
+            throw new IOException("Log contains unknown entity type " + type,e);
+        }
+
+        if(operation==DELETE)
+            store.restoreDelete(id);
+        else if(operation==SEQUENCE)
+            store.restoreLastId(id);
+        else
+            restore(store,record);
+    }
+
+    private static <T> void restore(StoreHooks<T> store, ByteBuffer record)
+    {
+        store.restore(store.getType().getCodec().decode(record));
+    }
+}
@@ -0,0 +1,266 @@
+package data;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// an index over Long keys without a boxed Long per model: the ids of a key are a sorted long[] and the key each id
+// was indexed under sits in chunks of longs laid out by id, about 20 bytes a model instead of two map entries
+class LongArrayIndex<T> extends SecondaryIndex<T, Object>
+{
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final long NO_KEY = Long.MIN_VALUE;
+    private static final long NO_ID = Long.MIN_VALUE;
+
+    // id n is in slot (n - 1), a final array so its filled slots are visible wherever the chunk is
+    private static final class Chunk
+    {
+        final long[] keys = new long[CHUNK_SIZE];
+
+        Chunk()
+        {
+            Arrays.fill(keys,NO_KEY);
+        }
+    }
+
+    // ascending ids of one key, changed inside the key's compute() and read under its monitor
+    private static final class Postings
+    {
+        private long[] ids = new long[4];
+        private int size;
+
+        synchronized void add(long id)
+        {
+            int at = Arrays.binarySearch(ids,0,size,id);
+            if(at >= 0)
+                return;
+
+            at = -at - 1;
+            if(size==ids.length)
+                ids = Arrays.copyOf(ids,size + (size >> 1));
+            System.arraycopy(ids,at,ids,at + 1,size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        synchronized boolean remove(long id)
+        {
+            int at = Arrays.binarySearch(ids,0,size,id);
+            if(at >= 0)
+            {
+                System.arraycopy(ids,at + 1,ids,at,size - at - 1);
+                size--;
+                if(size > 4 && size < ids.length >> 2)
+                    ids = Arrays.copyOf(ids,ids.length >> 1);
+            }
+            return size==0;
+        }
+
+        synchronized long[] toArray()
+        {
+            return Arrays.copyOf(ids,size);
+        }
+
+        synchronized long nextAfter(long id)
+        {
+            int at = Arrays.binarySearch(ids,0,size,id);
+            at = at >= 0 ? at + 1 : -at - 1;
+            return at < size ? ids[at] : NO_ID;
+        }
+    }
+
+    private final ConcurrentHashMap<Long, Postings> idsByKey;
+    private volatile Chunk[] chunks;
+    private final Object growLock;
+
+    LongArrayIndex(Function<T, ?> keyExtractor)
+    {
+        super(keyExtractor);
+        idsByKey = new ConcurrentHashMap<>();
+        chunks = new Chunk[16];
+        growLock = new Object();
+    }
+
+    @Override
+    void put(Long id, T model) {
+        if(id==null)
+            return;
+
+        Long newKey = longKeyOf(model);
+        Chunk chunk = ensureChunk(id);
+        int slot = slotOf(id);
+        long oldKey = chunk.keys[slot];
+        if(oldKey!=NO_KEY && (newKey==null || oldKey!=newKey))
+            unlink(oldKey,id);
+        if(newKey!=null)
+            link(newKey,id);
+        chunk.keys[slot] = newKey==null ? NO_KEY : newKey;
+    }
+
+    @Override
+    void remove(Long id) {
+        if(id==null)
+            return;
+
+        Chunk chunk = chunkOf(id);
+        if(chunk==null)
+            return;
+
+        int slot = slotOf(id);
+        long oldKey = chunk.keys[slot];
+        if(oldKey!=NO_KEY)
+            unlink(oldKey,id);
+        chunk.keys[slot] = NO_KEY;
+    }
+
+    @Override
+    Set<Long> get(Object key) {
+        Postings postings = key instanceof Long ? idsByKey.get(key) : null;
+        return postings==null ? Collections.emptySet() : new IdSet(postings.toArray());
+    }
+
+    @Override
+    Iterator<Long> idsAfter(Object key, long afterId) {
+        Postings postings = key instanceof Long ? idsByKey.get(key) : null;
+        return postings==null ? null : new IdsAfter(postings,afterId);
+    }
+
+    private Long longKeyOf(T model)
+    {
+        Object key = keyOf(model);
+        if(key!=null && !(key instanceof Long))
+            throw new IllegalArgumentException("Index keys have to be Long, not " + key.getClass().getSimpleName());
+        return (Long)key;
+    }
+
+    private void link(long key, long id)
+    {
+        idsByKey.compute(key, (k, postings) -> {
+            if(postings==null)
+                postings = new Postings();
+            postings.add(id);
+            return postings;
+        });
+    }
+
+    private void unlink(long key, long id)
+    {
+        idsByKey.computeIfPresent(key, (k, postings) -> postings.remove(id) ? null : postings);
+    }
+
+    private Chunk chunkOf(long id)
+    {
+        if(id<1)
+            return null;
+
+        long index = (id - 1) >>> CHUNK_BITS;
+        Chunk[] current = chunks;
+        return index < current.length ? current[(int)index] : null;
+    }
+
+    private Chunk ensureChunk(long id)
+    {
+        if(id<1)
+            throw new IllegalArgumentException("Id " + id + " can't be indexed");
+
+        Chunk chunk = chunkOf(id);
+        if(chunk!=null)
+            return chunk;
+
+        int index = (int)((id - 1) >>> CHUNK_BITS);
+        synchronized(growLock)
+        {
+            Chunk[] current = chunks;
+            if(index >= current.length)
+            {
+                Chunk[] grown = new Chunk[Math.max(current.length * 2, index + 1)];
+                System.arraycopy(current,0,grown,0,current.length);
+                current = grown;
+            }
+            if(current[index]==null)
+                current[index] = new Chunk();
+            chunks = current;
+            return current[index];
+        }
+    }
+
+    private static int slotOf(long id)
+    {
+        return (int)((id - 1) & CHUNK_MASK);
+    }
+
+    // a copy of the ids of a key, boxed one at a time as they are read
+    private static final class IdSet extends AbstractSet<Long>
+    {
+        private final long[] ids;
+
+        IdSet(long[] ids)
+        {
+            this.ids = ids;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Long && Arrays.binarySearch(ids,(Long)o) >= 0;
+        }
+
+        @Override
+        public Iterator<Long> iterator() {
+            return new Iterator<Long>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < ids.length;
+                }
+
+                @Override
+                public Long next() {
+                    if(next >= ids.length)
+                        throw new NoSuchElementException();
+                    return ids[next++];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+
+    // looks the next id up as it goes, so a page reads only as many ids as it returns
+    private static final class IdsAfter implements Iterator<Long>
+    {
+        private final Postings postings;
+        private long next;
+
+        IdsAfter(Postings postings, long afterId)
+        {
+            this.postings = postings;
+            next = postings.nextAfter(afterId);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next!=NO_ID;
+        }
+
+        @Override
+        public Long next() {
+            if(next==NO_ID)
+                throw new NoSuchElementException();
+            long id = next;
+            next = postings.nextAfter(id);
+            return id;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+public class MapEntityStore<T> extends AbstractEntityStore<T>
+{
+    private final Map<Long, T> models;
+    // hash maps have no order, pages are served from this set instead
+    private final NavigableSet<Long> ids;
+
+    public MapEntityStore(EntityType<T> type, Map<Long, T> models)
+    {
+        super(type);
+        this.models = models;
+        ids = models instanceof ConcurrentMap ? new ConcurrentSkipListSet<>(models.keySet()) : new TreeSet<>(models.keySet());
+    }
+
+    public static <T> MapEntityStore<T> hashMap(EntityType<T> type)
+    {
+        return new MapEntityStore<>(type,new HashMap<>());
+    }
+
+    public static <T> MapEntityStore<T> concurrent(EntityType<T> type)
+    {
+        return new MapEntityStore<>(type,new ConcurrentHashMap<>());
+    }
+
+    @Override
+    protected T read(long id)
+    {
+        return models.get(id);
+    }
+
+    @Override
+    protected void write(long id, T model)
+    {
+        if(models.put(id,model)==null)
+            ids.add(id);
+    }
+
+    @Override
+    protected boolean erase(long id)
+    {
+        ids.remove(id);
+        return models.remove(id)!=null;
+    }
+
+    @Override
+    protected List<T> readAll()
+    {
+        return new ArrayList<>(models.values());
+    }
+
+    @Override
+    protected Spliterator<T> spliteratorAll()
+    {
+        return models.values().spliterator();
+    }
+
+    @Override
+    protected Spliterator<T> spliteratorAfter(long afterId)
+    {
+        return ids.tailSet(afterId,false).stream().map(models::get).filter(Objects::nonNull).spliterator();
+    }
+}
@@ -0,0 +1,50 @@
+package data;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// hands out mapper(model) for every model of the source, splits where the source splits
+class MappingSpliterator<T> implements Spliterator<T>
+{
+    private final Spliterator<T> source;
+    private final Function<T, T> mapper;
+
+    MappingSpliterator(Spliterator<T> source, Function<T, T> mapper)
+    {
+        this.source = source;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        return source.tryAdvance(model -> action.accept(mapper.apply(model)));
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        source.forEachRemaining(model -> action.accept(mapper.apply(model)));
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        Spliterator<T> prefix = source.trySplit();
+        return prefix==null ? null : new MappingSpliterator<>(prefix,mapper);
+    }
+
+    @Override
+    public long estimateSize() {
+        return source.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+        return source.characteristics();
+    }
+
+    @Override
+    public Comparator<? super T> getComparator() {
+        return source.getComparator();
+    }
+}
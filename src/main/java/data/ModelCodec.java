@@ -0,0 +1,11 @@
+package data;
+
+import java.nio.ByteBuffer;
+
+public interface ModelCodec<T>
+{
+    // upper bound of the encoded size, enough room for encode to never overflow
+    int maxBytes(T model);
+    void encode(T model, ByteBuffer out);
+    T decode(ByteBuffer in);
+}
@@ -0,0 +1,10 @@
+package data;
+
+public class OffHeapRepository extends StoreRepository
+{
+    public OffHeapRepository()
+    {
+        super(StoreRegistry.of(ArrayEntityStore::new));
+        register(new OffHeapReservationStore());
+    }
+}
@@ -0,0 +1,286 @@
+package data;
+
+import models.Reservation;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.locks.StampedLock;
+
+public class OffHeapReservationStore extends AbstractEntityStore<Reservation>
+{
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_ROWS = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_ROWS - 1;
+
+    private static final byte EMPTY = 0;
+    private static final byte LIVE = 1;
+    private static final byte DELETED = 2;
+
+    private static final long NULL_ID = Long.MIN_VALUE;
+
+    public static final int BYTES_PER_ROW = 8 + 8 + 4 + 4 + 1 + 1;
+
+    // one direct buffer per column, row n of the chunk holds id (chunk << CHUNK_BITS) + n + 1
+    private static final class Chunk
+    {
+        final ByteBuffer userIds = column(8);
+        final ByteBuffer tableIds = column(8);
+        final ByteBuffer days = column(4);
+        // unsigned, so a row can be written four billion times before its version wraps
+        final ByteBuffer versions = column(4);
+        final ByteBuffer slots = column(1);
+        final ByteBuffer states = column(1);
+        final StampedLock lock = new StampedLock();
+        int live;
+
+        private static ByteBuffer column(int width)
+        {
+            return ByteBuffer.allocateDirect(CHUNK_ROWS * width).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    private volatile Chunk[] chunks;
+    private final Object growLock;
+
+    public OffHeapReservationStore()
+    {
+        super(EntityType.RESERVATION,true,LongArrayIndex::new);
+        chunks = new Chunk[16];
+        growLock = new Object();
+    }
+
+    @Override
+    protected Reservation read(long id)
+    {
+        Chunk chunk = chunkOf(id);
+        if(chunk==null)
+            return null;
+
+        int row = rowOf(id);
+        long stamp = chunk.lock.tryOptimisticRead();
+        Reservation reservation = readRow(chunk,row,id);
+        if(!chunk.lock.validate(stamp))
+        {
+            stamp = chunk.lock.readLock();
+            try
+            {
+                reservation = readRow(chunk,row,id);
+            }
+            finally
+            {
+                chunk.lock.unlockRead(stamp);
+            }
+        }
+        return reservation;
+    }
+
+    @Override
+    protected boolean contains(long id)
+    {
+        Chunk chunk = chunkOf(id);
+        if(chunk==null)
+            return false;
+
+        long stamp = chunk.lock.readLock();
+        try
+        {
+            return chunk.states.get(rowOf(id))==LIVE;
+        }
+        finally
+        {
+            chunk.lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    protected void checkWrite(Reservation model)
+    {
+        encodeId(model.getUserId());
+        encodeId(model.getTableId());
+        TimeSlots.slotOf(model.getTime());
+    }
+
+    @Override
+    protected void write(long id, Reservation model)
+    {
+        long userId = encodeId(model.getUserId());
+        long tableId = encodeId(model.getTableId());
+        int day = TimeSlots.epochDayOf(model.getDate());
+        byte slot = TimeSlots.slotOf(model.getTime());
+
+        Chunk chunk = ensureChunk(id);
+        int row = rowOf(id);
+        long stamp = chunk.lock.writeLock();
+        try
+        {
+            chunk.userIds.putLong(row * 8,userId);
+            chunk.tableIds.putLong(row * 8,tableId);
+            chunk.days.putInt(row * 4,day);
+            chunk.versions.putInt(row * 4,(int)model.getVersion());
+            chunk.slots.put(row,slot);
+            if(chunk.states.get(row)!=LIVE)
+                chunk.live++;
+            chunk.states.put(row,LIVE);
+        }
+        finally
+        {
+            chunk.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    protected boolean erase(long id)
+    {
+        Chunk chunk = chunkOf(id);
+        if(chunk==null)
+            return false;
+
+        int row = rowOf(id);
+        long stamp = chunk.lock.writeLock();
+        try
+        {
+            if(chunk.states.get(row)!=LIVE)
+                return false;
+
+            chunk.states.put(row,DELETED);
+            chunk.live--;
+            return true;
+        }
+        finally
+        {
+            chunk.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    protected List<Reservation> readAll()
+    {
+        List<Reservation> reservations = new ArrayList<>();
+        Chunk[] current = chunks;
+        for(int c = 0; c < current.length; c++)
+        {
+            Chunk chunk = current[c];
+            if(chunk==null)
+                continue;
+
+            long firstId = ((long)c << CHUNK_BITS) + 1;
+            long stamp = chunk.lock.readLock();
+            try
+            {
+                for(int row = 0; chunk.live > 0 && row < CHUNK_ROWS; row++)
+                {
+                    Reservation reservation = readRow(chunk,row,firstId + row);
+                    if(reservation!=null)
+                        reservations.add(reservation);
+                }
+            }
+            finally
+            {
+                chunk.lock.unlockRead(stamp);
+            }
+        }
+        return reservations;
+    }
+
+    // rows are decoded one at a time as the caller advances
+    @Override
+    protected Spliterator<Reservation> spliteratorAll()
+    {
+        return spliteratorAfter(0);
+    }
+
+    @Override
+    protected Spliterator<Reservation> spliteratorAfter(long afterId)
+    {
+        return new IdRangeSpliterator<>(this::read,this::skipMissingChunks,Math.max(afterId,0) + 1,getLastId() + 1);
+    }
+
+    public long getOffHeapBytes()
+    {
+        long bytes = 0;
+        for(Chunk chunk : chunks)
+        {
+            if(chunk!=null)
+                bytes += (long)CHUNK_ROWS * BYTES_PER_ROW;
+        }
+        return bytes;
+    }
+
+    private static Reservation readRow(Chunk chunk, int row, long id)
+    {
+        if(chunk.states.get(row)!=LIVE)
+            return null;
+
+        Reservation reservation = new Reservation(
+                id,
+                decodeId(chunk.userIds.getLong(row * 8)),
+                decodeId(chunk.tableIds.getLong(row * 8)),
+                TimeSlots.timeOf(chunk.slots.get(row)),
+                TimeSlots.dateOf(chunk.days.getInt(row * 4)));
+        reservation.setVersion(Integer.toUnsignedLong(chunk.versions.getInt(row * 4)));
+        return reservation;
+    }
+
+    private static long encodeId(Long id)
+    {
+        return id==null ? NULL_ID : id;
+    }
+
+    private static Long decodeId(long id)
+    {
+        return id==NULL_ID ? null : id;
+    }
+
+    private long skipMissingChunks(long id)
+    {
+        Chunk[] current = chunks;
+        long index = (id - 1) >>> CHUNK_BITS;
+        if(index < current.length && current[(int)index]!=null)
+            return id;
+
+        while(index < current.length && current[(int)index]==null)
+            index++;
+        return index < current.length ? (index << CHUNK_BITS) + 1 : Long.MAX_VALUE;
+    }
+
+    private Chunk chunkOf(long id)
+    {
+        if(id<1)
+            return null;
+
+        long index = (id - 1) >>> CHUNK_BITS;
+        Chunk[] current = chunks;
+        return index < current.length ? current[(int)index] : null;
+    }
+
+    private Chunk ensureChunk(long id)
+    {
+        Chunk chunk = chunkOf(id);
+        if(chunk!=null)
+            return chunk;
+
+        int index = (int)((id - 1) >>> CHUNK_BITS);
+        synchronized(growLock)
+        {
+            Chunk[] current = chunks;
+            if(index >= current.length)
+            {
+                Chunk[] grown = new Chunk[Math.max(current.length * 2, index + 1)];
+                System.arraycopy(current,0,grown,0,current.length);
+                current = grown;
+            }
+            if(current[index]==null)
+                current[index] = new Chunk();
+            chunks = current;
+            return current[index];
+        }
+    }
+
+    private static int rowOf(long id)
+    {
+        return (int)((id - 1) & CHUNK_MASK);
+    }
+}
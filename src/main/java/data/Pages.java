@@ -0,0 +1,26 @@
+package data;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// pages cut from unordered models, only used by repositories that have no id-ordered storage
+final class Pages
+{
+    private Pages()
+    {
+    }
+
+    static <T> List<T> of(Stream<T> models, Class<T> modelClass, long afterId, int limit)
+    {
+        if(limit <= 0)
+            throw new IllegalArgumentException("Page limit must be positive");
+
+        EntityType<T> type = EntityType.of(modelClass);
+        return models.filter(model -> type.getId(model) > afterId)
+                .sorted(Comparator.comparing(type::getId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,160 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// conditions on model fields joined with "and", field names are the EntityType constants
+public class Query
+{
+    public enum Op
+    {
+        EQ("="), IN("in"), LT("<"), LE("<="), GT(">"), GE(">=");
+
+        private final String symbol;
+
+        Op(String symbol)
+        {
+            this.symbol = symbol;
+        }
+
+        @Override
+        public String toString() {
+            return symbol;
+        }
+    }
+
+    public static class Condition
+    {
+        private final String field;
+        private final Op op;
+        private final Object value;
+
+        Condition(String field, Op op, Object value)
+        {
+            this.field = field;
+            this.op = op;
+            this.value = value;
+        }
+
+        public String getField()
+        {
+            return field;
+        }
+
+        public Op getOp()
+        {
+            return op;
+        }
+
+        public Object getValue()
+        {
+            return value;
+        }
+
+        Condition withKey(Function<Object, ?> key)
+        {
+            if(op==Op.IN)
+                return new Condition(field,op,((Set<?>)value).stream().map(key).collect(Collectors.toSet()));
+            return new Condition(field,op,value==null ? null : key.apply(value));
+        }
+
+        // the keys an index has to be probed with, empty for range conditions
+        Collection<?> getKeys()
+        {
+            if(op==Op.EQ)
+                return Collections.singleton(value);
+            if(op==Op.IN)
+                return (Collection<?>)value;
+            return Collections.emptySet();
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        boolean test(Object actual)
+        {
+            if(op==Op.EQ)
+                return Objects.equals(actual,value);
+            if(op==Op.IN)
+                return ((Set<?>)value).contains(actual);
+            if(actual==null)
+                return false;
+
+            int order = ((Comparable)actual).compareTo(value);
+            switch(op)
+            {
+                case LT: return order < 0;
+                case LE: return order <= 0;
+                case GT: return order > 0;
+                default: return order >= 0;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return field + " " + op + " " + value;
+        }
+    }
+
+    private final List<Condition> conditions = new ArrayList<>();
+
+    public Query eq(String field, Object value)
+    {
+        return add(field,Op.EQ,value);
+    }
+
+    public Query in(String field, Collection<?> values)
+    {
+        return add(field,Op.IN,new HashSet<>(values));
+    }
+
+    public Query lessThan(String field, Comparable<?> value)
+    {
+        return add(field,Op.LT,value);
+    }
+
+    public Query atMost(String field, Comparable<?> value)
+    {
+        return add(field,Op.LE,value);
+    }
+
+    public Query greaterThan(String field, Comparable<?> value)
+    {
+        return add(field,Op.GT,value);
+    }
+
+    public Query atLeast(String field, Comparable<?> value)
+    {
+        return add(field,Op.GE,value);
+    }
+
+    // both ends are included
+    public Query between(String field, Comparable<?> from, Comparable<?> to)
+    {
+        return atLeast(field,from).atMost(field,to);
+    }
+
+    public List<Condition> getConditions()
+    {
+        return Collections.unmodifiableList(conditions);
+    }
+
+    @Override
+    public String toString() {
+        return conditions.stream().map(Condition::toString).collect(Collectors.joining(" and "));
+    }
+
+    private Query add(String field, Op op, Object value)
+    {
+        if(op!=Op.EQ && value==null)
+            throw new IllegalArgumentException("Condition " + field + " " + op + " needs a value");
+
+        conditions.add(new Condition(field,op,value));
+        return this;
+    }
+}
@@ -0,0 +1,92 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// the access path chosen for a query, execute() runs it and explain() tells which one it is
+public class QueryPlan<T>
+{
+    private final String description;
+    private final Supplier<Stream<T>> candidates;
+    private final Predicate<T> filter;
+
+    private QueryPlan(String description, Supplier<Stream<T>> candidates, Predicate<T> filter)
+    {
+        this.description = description;
+        this.candidates = candidates;
+        this.filter = filter;
+    }
+
+    static <T> QueryPlan<T> scan(EntityType<T> type, List<Query.Condition> conditions, Supplier<Stream<T>> models)
+    {
+        return new QueryPlan<>(describe(type,"scan",conditions),models,matcher(type,conditions));
+    }
+
+    // the probed condition is checked again, index entries can be stale while a model is being updated
+    static <T> QueryPlan<T> index(EntityType<T> type, Query.Condition probe, long candidates,
+                                  List<Query.Condition> conditions, Supplier<Stream<T>> models)
+    {
+        List<Query.Condition> rest = new ArrayList<>(conditions);
+        rest.remove(probe);
+        String path = "index " + probe + " (" + candidates + (candidates==1 ? " candidate)" : " candidates)");
+        return new QueryPlan<>(describe(type,path,rest),models,matcher(type,conditions));
+    }
+
+    // for repositories without stores, every model is read and sorted by id
+    static <T> QueryPlan<T> unordered(EntityType<T> type, Query query, Supplier<Stream<T>> models)
+    {
+        return scan(type,type.bind(query),() -> models.get().sorted(Comparator.comparing(type::getId)));
+    }
+
+    // one plan per shard, their matches are merged back into ascending id order
+    static <T> QueryPlan<T> merged(EntityType<T> type, List<QueryPlan<T>> plans)
+    {
+        StringBuilder description = new StringBuilder(type.getName()).append(": ").append(plans.size()).append(" shards");
+        for(int i = 0; i < plans.size(); i++)
+            description.append(i==0 ? ", " : "; ").append("shard ").append(i).append(' ')
+                    .append(plans.get(i).description.substring(type.getName().length() + 2));
+
+        return new QueryPlan<>(description.toString(),
+                () -> plans.stream().flatMap(plan -> plan.execute().stream()).sorted(Comparator.comparing(type::getId)),
+                model -> true);
+    }
+
+    // matching models in ascending id order
+    public List<T> execute()
+    {
+        return candidates.get().filter(filter).collect(Collectors.toList());
+    }
+
+    public String explain()
+    {
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+
+    private static <T> Predicate<T> matcher(EntityType<T> type, List<Query.Condition> conditions)
+    {
+        return model -> {
+            for(Query.Condition condition : conditions)
+                if(!condition.test(type.getField(model,condition.getField())))
+                    return false;
+            return true;
+        };
+    }
+
+    private static String describe(EntityType<?> type, String path, List<Query.Condition> filters)
+    {
+        String description = type.getName() + ": " + path;
+        if(filters.isEmpty())
+            return description;
+        return description + ", filter " + filters.stream().map(Query.Condition::toString).collect(Collectors.joining(" and "));
+    }
+}
@@ -1,6 +1,16 @@
 package data;
 
+import errors.DuplicateEntryException;
+import models.Reservation;
+import models.Table;
+import models.User;
+
+import java.util.Collection;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public interface Repository {
     <T> void add(T model);
@@ -8,4 +18,123 @@ public interface Repository {
     <T> T get(long id, Class<T> modelClass);
     <T> List<T> getAll(Class<T> modelClass);
     <T> void delete(T model);
+
+    // writes only if nobody wrote the model since it was read, otherwise throws VersionConflictException;
+    // repositories that keep no versions can't tell a stale model and write it like update()
+    default <T> void compareAndUpdate(T model)
+    {
+        update(model);
+    }
+
+    // scans unless the repository overrides them with an index lookup
+    default List<Reservation> getUserReservations(long userId)
+    {
+        return find(Reservation.class,new Query().eq(EntityType.USER_ID,userId));
+    }
+
+    default List<Table> getRestaurantTables(long restaurantId)
+    {
+        return find(Table.class,new Query().eq(EntityType.RESTAURANT_ID,restaurantId));
+    }
+
+    default User getUserByEmail(String email)
+    {
+        List<User> users = find(User.class,new Query().eq(EntityType.EMAIL,email));
+        return users.isEmpty() ? null : users.get(0);
+    }
+
+    // keyset pages in ascending id order, pass 0 for the first page and the last id seen for the next one
+    default <T> List<T> getPage(Class<T> modelClass, long afterId, int limit)
+    {
+        return Pages.of(stream(modelClass),modelClass,afterId,limit);
+    }
+
+    default List<Reservation> getUserReservations(long userId, long afterId, int limit)
+    {
+        return Pages.of(getUserReservations(userId).stream(),Reservation.class,afterId,limit);
+    }
+
+    default List<Table> getRestaurantTables(long restaurantId, long afterId, int limit)
+    {
+        return Pages.of(getRestaurantTables(restaurantId).stream(),Table.class,afterId,limit);
+    }
+
+    default List<Reservation> getTableReservations(Collection<Long> tableIds, long afterId, int limit)
+    {
+        return Pages.of(stream(Reservation.class).filter(r -> tableIds.contains(r.getTableId())),Reservation.class,afterId,limit);
+    }
+
+    // walks the stored models without copying them, stop early with tryAdvance or a short-circuiting stream
+    default <T> Spliterator<T> spliterator(Class<T> modelClass)
+    {
+        return getAll(modelClass).spliterator();
+    }
+
+    default <T> Stream<T> stream(Class<T> modelClass)
+    {
+        return StreamSupport.stream(spliterator(modelClass),false);
+    }
+
+    default <T> void forEach(Class<T> modelClass, Consumer<? super T> action)
+    {
+        spliterator(modelClass).forEachRemaining(action);
+    }
+
+    // matching models in ascending id order
+    default <T> List<T> find(Class<T> modelClass, Query query)
+    {
+        return plan(modelClass,query).execute();
+    }
+
+    default <T> String explain(Class<T> modelClass, Query query)
+    {
+        return plan(modelClass,query).explain();
+    }
+
+    default <T> QueryPlan<T> plan(Class<T> modelClass, Query query)
+    {
+        return QueryPlan.unordered(EntityType.of(modelClass),query,() -> stream(modelClass));
+    }
+
+    // failed items are reported in the result instead of aborting the batch
+    default <T> BatchResult<T> addAll(Class<T> modelClass, List<T> models)
+    {
+        BatchResult<T> result = new BatchResult<>(models.size());
+        for(int i = 0; i < models.size(); i++)
+        {
+            try
+            {
+                add(models.get(i));
+            }
+            catch(DuplicateEntryException e)
+            {
+                result.failed(i,models.get(i),e);
+            }
+        }
+        return result;
+    }
+
+    default <T> BatchResult<T> updateAll(Class<T> modelClass, List<T> models)
+    {
+        BatchResult<T> result = new BatchResult<>(models.size());
+        for(int i = 0; i < models.size(); i++)
+        {
+            try
+            {
+                update(models.get(i));
+            }
+            catch(DuplicateEntryException e)
+            {
+                result.failed(i,models.get(i),e);
+            }
+        }
+        return result;
+    }
+
+    default <T> BatchResult<T> deleteAll(Class<T> modelClass, List<T> models)
+    {
+        for(T model : models)
+            delete(model);
+        return new BatchResult<>(models.size());
+    }
 }
@@ -0,0 +1,98 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Function;
+
+// ids of the models holding each key, in ascending order; writes to one id are serialized by the store
+abstract class SecondaryIndex<T, K>
+{
+    private final Function<T, ? extends K> keyExtractor;
+
+    SecondaryIndex(Function<T, ? extends K> keyExtractor)
+    {
+        this.keyExtractor = keyExtractor;
+    }
+
+    K keyOf(T model)
+    {
+        return keyExtractor.apply(model);
+    }
+
+    abstract void put(Long id, T model);
+
+    abstract void remove(Long id);
+
+    abstract Set<Long> get(K key);
+
+    // ids of the key above afterId in ascending order, null when the key has none
+    abstract Iterator<Long> idsAfter(K key, long afterId);
+
+    // models are re-checked against the key, so a stale entry never leaks into the result
+    List<T> lookup(K key, Function<Long, T> loader)
+    {
+        List<T> models = new ArrayList<>();
+        for(Long id : get(key))
+        {
+            T model = loader.apply(id);
+            if(model!=null && key.equals(keyOf(model)))
+                models.add(model);
+        }
+        return models;
+    }
+
+    // merges the id-ordered ids of every key, only the ids of the returned page are read
+    List<T> page(Collection<? extends K> keys, long afterId, int limit, Function<Long, T> loader)
+    {
+        PriorityQueue<Cursor<K>> cursors = new PriorityQueue<>(Comparator.comparingLong(c -> c.id));
+        for(K key : new HashSet<>(keys))
+        {
+            Iterator<Long> ids = key==null ? null : idsAfter(key,afterId);
+            if(ids==null)
+                continue;
+
+            Cursor<K> cursor = new Cursor<>(key,ids);
+            if(cursor.advance())
+                cursors.add(cursor);
+        }
+
+        List<T> models = new ArrayList<>();
+        while(models.size() < limit && !cursors.isEmpty())
+        {
+            Cursor<K> cursor = cursors.poll();
+            T model = loader.apply(cursor.id);
+            if(model!=null && cursor.key.equals(keyOf(model)))
+                models.add(model);
+            if(cursor.advance())
+                cursors.add(cursor);
+        }
+        return models;
+    }
+
+    private static class Cursor<K>
+    {
+        private final K key;
+        private final Iterator<Long> ids;
+        private long id;
+
+        Cursor(K key, Iterator<Long> ids)
+        {
+            this.key = key;
+            this.ids = ids;
+        }
+
+        boolean advance()
+        {
+            if(!ids.hasNext())
+                return false;
+            id = ids.next();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package data;
+
+import errors.DuplicateEntryException;
+import models.Reservation;
+import models.Table;
+import models.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+// spreads models over shards, every shard hands out ids with id % shards equal to its own index so an id alone
+// routes to its shard; tables go to their restaurant's shard and reservations to their table's, so a restaurant's
+// data stays together and only reads that can span restaurants fan out over the executor
+public class ShardedRepository implements Repository
+{
+    private static final int EMAIL_LOCKS = 64;
+
+    private final List<StoreRepository> shards;
+    private final Executor executor;
+    // restaurants and users are dealt out in turn
+    private final AtomicInteger nextShard = new AtomicInteger();
+    // adds and updates of one email are serialized while the other shards are checked for it
+    private final Object[] emailLocks;
+
+    public ShardedRepository(int count, Supplier<? extends StoreRepository> factory)
+    {
+        this(count,factory,ForkJoinPool.commonPool());
+    }
+
+    public ShardedRepository(int count, Supplier<? extends StoreRepository> factory, Executor executor)
+    {
+        if(count <= 0)
+            throw new IllegalArgumentException("There has to be at least one shard");
+
+        List<StoreRepository> created = new ArrayList<>(count);
+        for(int i = 0; i < count; i++)
+        {
+            StoreRepository shard = factory.get();
+            for(EntityStore<?> store : shard.getRegistry().getStores())
+                StoreHooks.of(store).partitionIds(i,count);
+            created.add(shard);
+        }
+        shards = Collections.unmodifiableList(created);
+        this.executor = executor;
+
+        emailLocks = new Object[EMAIL_LOCKS];
+        for(int i = 0; i < EMAIL_LOCKS; i++)
+            emailLocks[i] = new Object();
+    }
+
+    public int getShardCount()
+    {
+        return shards.size();
+    }
+
+    public Repository getShard(int index)
+    {
+        return shards.get(index);
+    }
+
+    @Override
+    public <T> void add(T model) {
+        int shard = shardForNew(model);
+        if(model instanceof User)
+            withEmailLock((User)model,() -> {
+                checkEmail((User)model,shard);
+                shards.get(shard).add(model);
+            });
+        else
+            shards.get(shard).add(model);
+    }
+
+    @Override
+    public <T> void update(T model) {
+        int shard = shardOfStored(model);
+        if(model instanceof User)
+            withEmailLock((User)model,() -> {
+                checkEmail((User)model,shard);
+                shards.get(shard).update(model);
+            });
+        else
+            shards.get(shard).update(model);
+    }
+
+    @Override
+    public <T> void compareAndUpdate(T model) {
+        int shard = shardOfStored(model);
+        if(model instanceof User)
+            withEmailLock((User)model,() -> {
+                checkEmail((User)model,shard);
+                shards.get(shard).compareAndUpdate(model);
+            });
+        else
+            shards.get(shard).compareAndUpdate(model);
+    }
+
+    @Override
+    public <T> void delete(T model) {
+        shards.get(shardOf(idOf(model))).delete(model);
+    }
+
+    @Override
+    public <T> T get(long id, Class<T> modelClass) {
+        return shards.get(shardOf(id)).get(id,modelClass);
+    }
+
+    @Override
+    public <T> List<T> getAll(Class<T> modelClass) {
+        return mergeById(modelClass,fanOut(shards,shard -> shard.getAll(modelClass)));
+    }
+
+    @Override
+    public <T> List<T> getPage(Class<T> modelClass, long afterId, int limit) {
+        return firstPage(mergeById(modelClass,fanOut(shards,shard -> shard.getPage(modelClass,afterId,limit))),limit);
+    }
+
+    @Override
+    public <T> List<T> find(Class<T> modelClass, Query query) {
+        return mergeById(modelClass,fanOut(shards,shard -> shard.find(modelClass,query)));
+    }
+
+    @Override
+    public <T> QueryPlan<T> plan(Class<T> modelClass, Query query) {
+        List<QueryPlan<T>> plans = new ArrayList<>(shards.size());
+        for(StoreRepository shard : shards)
+            plans.add(shard.plan(modelClass,query));
+        return QueryPlan.merged(EntityType.of(modelClass),plans);
+    }
+
+    @Override
+    public <T> BatchResult<T> addAll(Class<T> modelClass, List<T> models) {
+        if(modelClass==User.class)
+            return Repository.super.addAll(modelClass,models);
+        return inBatches(models,this::shardForNew,(shard, part) -> shard.addAll(modelClass,part));
+    }
+
+    @Override
+    public <T> BatchResult<T> updateAll(Class<T> modelClass, List<T> models) {
+        if(modelClass==User.class)
+            return Repository.super.updateAll(modelClass,models);
+        return inBatches(models,this::shardOfStored,(shard, part) -> shard.updateAll(modelClass,part));
+    }
+
+    @Override
+    public <T> BatchResult<T> deleteAll(Class<T> modelClass, List<T> models) {
+        return inBatches(models,model -> shardOf(idOf(model)),(shard, part) -> shard.deleteAll(modelClass,part));
+    }
+
+    @Override
+    public List<Reservation> getUserReservations(long userId) {
+        return mergeById(Reservation.class,fanOut(shards,shard -> shard.getUserReservations(userId)));
+    }
+
+    @Override
+    public List<Reservation> getUserReservations(long userId, long afterId, int limit) {
+        List<List<Reservation>> pages = fanOut(shards,shard -> shard.getUserReservations(userId,afterId,limit));
+        return firstPage(mergeById(Reservation.class,pages),limit);
+    }
+
+    @Override
+    public List<Table> getRestaurantTables(long restaurantId) {
+        return shards.get(shardOf(restaurantId)).getRestaurantTables(restaurantId);
+    }
+
+    @Override
+    public List<Table> getRestaurantTables(long restaurantId, long afterId, int limit) {
+        return shards.get(shardOf(restaurantId)).getRestaurantTables(restaurantId,afterId,limit);
+    }
+
+    // only the shards that hold one of the tables are asked
+    @Override
+    public List<Reservation> getTableReservations(Collection<Long> tableIds, long afterId, int limit) {
+        Map<Integer, List<Long>> byShard = new TreeMap<>();
+        for(Long tableId : tableIds)
+            byShard.computeIfAbsent(shardOf(tableId),shard -> new ArrayList<>()).add(tableId);
+
+        List<List<Reservation>> pages = fanOut(new ArrayList<>(byShard.entrySet()),
+                entry -> shards.get(entry.getKey()).getTableReservations(entry.getValue(),afterId,limit));
+        return firstPage(mergeById(Reservation.class,pages),limit);
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        return fanOut(shards,shard -> shard.getUserByEmail(email)).stream()
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private int shardOf(Long id)
+    {
+        return id==null ? 0 : (int)Math.floorMod(id,(long)shards.size());
+    }
+
+    private int shardForNew(Object model)
+    {
+        if(model instanceof Table)
+            return shardOf(((Table)model).getRestaurantId());
+        if(model instanceof Reservation)
+            return shardOf(((Reservation)model).getTableId());
+        return Math.floorMod(nextShard.getAndIncrement(),shards.size());
+    }
+
+    // the shard that holds the model, a table or reservation can't be moved to a restaurant on another shard
+    private int shardOfStored(Object model)
+    {
+        Long id = idOf(model);
+        int shard = shardOf(id);
+        if(id!=null && (model instanceof Table || model instanceof Reservation) && shardForNew(model)!=shard)
+            throw new IllegalArgumentException(model.getClass().getSimpleName() + " " + id + " can't be moved to another shard");
+        return shard;
+    }
+
+    private <T> Long idOf(T model)
+    {
+        EntityStore<T> store = shards.get(0).getRegistry().storeOf(model);
+        return store.getType().getId(model);
+    }
+
+    // the shard the user is written to checks its own unique index
+    private void checkEmail(User user, int home)
+    {
+        for(int i = 0; i < shards.size(); i++)
+        {
+            User other = i==home ? null : shards.get(i).getUserByEmail(user.getEmail());
+            if(other!=null && !other.getId().equals(user.getId()))
+                throw new DuplicateEntryException("User","email",user.getEmail());
+        }
+    }
+
+    private void withEmailLock(User user, Runnable action)
+    {
+        String key = user.getEmail()==null ? "" : EntityType.emailKey(user.getEmail());
+        synchronized(emailLocks[Math.floorMod(key.hashCode(),EMAIL_LOCKS)])
+        {
+            action.run();
+        }
+    }
+
+    // splits a batch by shard, runs the parts side by side and reports failures at their place in the whole batch
+    private <T> BatchResult<T> inBatches(List<T> models, ToIntFunction<T> route, BiFunction<Repository, List<T>, BatchResult<T>> batch)
+    {
+        Map<Integer, List<Integer>> positions = new TreeMap<>();
+        for(int i = 0; i < models.size(); i++)
+            positions.computeIfAbsent(route.applyAsInt(models.get(i)),shard -> new ArrayList<>()).add(i);
+
+        List<Map.Entry<Integer, List<Integer>>> parts = new ArrayList<>(positions.entrySet());
+        List<BatchResult<T>> results = fanOut(parts,part -> batch.apply(shards.get(part.getKey()),
+                part.getValue().stream().map(models::get).collect(Collectors.toList())));
+
+        BatchResult<T> result = new BatchResult<>(models.size());
+        for(int i = 0; i < parts.size(); i++)
+            for(BatchResult.Failure<T> failure : results.get(i).getFailures())
+                result.failed(parts.get(i).getValue().get(failure.getIndex()),failure.getModel(),failure.getError());
+        return result;
+    }
+
+    // the first target runs on the calling thread and the rest on the executor
+    private <S, R> List<R> fanOut(List<S> targets, Function<S, R> work)
+    {
+        List<CompletableFuture<R>> others = new ArrayList<>(targets.size());
+        for(int i = 1; i < targets.size(); i++)
+        {
+            S target = targets.get(i);
+            others.add(CompletableFuture.supplyAsync(() -> work.apply(target),executor));
+        }
+
+        List<R> results = new ArrayList<>(targets.size());
+        if(!targets.isEmpty())
+            results.add(work.apply(targets.get(0)));
+        try
+        {
+            for(CompletableFuture<R> other : others)
+                results.add(other.join());
+        }
+        catch(CompletionException e)
+        {
+            if(e.getCause() instanceof RuntimeException)
+                throw (RuntimeException)e.getCause();
+            throw e;
+        }
+        return results;
+    }
+
+    // every shard answers in ascending id order, the sort only has to merge those runs
+    private static <T> List<T> mergeById(Class<T> modelClass, List<List<T>> parts)
+    {
+        EntityType<T> type = EntityType.of(modelClass);
+        List<T> merged = new ArrayList<>(parts.stream().mapToInt(List::size).sum());
+        for(List<T> part : parts)
+            merged.addAll(part);
+        merged.sort(Comparator.comparing(type::getId));
+        return merged;
+    }
+
+    private static <T> List<T> firstPage(List<T> models, int limit)
+    {
+        return models.size() > limit ? new ArrayList<>(models.subList(0,limit)) : models;
+    }
+}
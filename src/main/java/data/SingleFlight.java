@@ -0,0 +1,69 @@
+package data;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+// concurrent loads of one id share the load of the first caller and its result, or its exception
+final class SingleFlight<V>
+{
+    private final ConcurrentHashMap<Long, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final LongAdder shared = new LongAdder();
+
+    V load(long id, LongFunction<V> loader)
+    {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = loading.putIfAbsent(id,mine);
+        if(running!=null)
+        {
+            shared.increment();
+            return await(running);
+        }
+
+        try
+        {
+            V value = loader.apply(id);
+            mine.complete(value);
+            return value;
+        }
+        catch(RuntimeException | Error e)
+        {
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        finally
+        {
+            loading.remove(id,mine);
+        }
+    }
+
+    // the running load may have read what was just written, callers from now on start their own
+    void forget(long id)
+    {
+        loading.remove(id);
+    }
+
+    // how many callers got the result of another caller's load
+    long getShared()
+    {
+        return shared.sum();
+    }
+
+    private static <V> V await(CompletableFuture<V> load)
+    {
+        try
+        {
+            return load.join();
+        }
+        catch(CompletionException e)
+        {
+            if(e.getCause() instanceof RuntimeException)
+                throw (RuntimeException)e.getCause();
+            if(e.getCause() instanceof Error)
+                throw (Error)e.getCause();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package data;
+
+// a read-only view of every store as of one moment, close it so the old versions it holds can be dropped
+public interface Snapshot extends Repository, AutoCloseable
+{
+    @Override
+    void close();
+
+    // repositories that keep no versions are read live
+    static Snapshot of(Repository repository)
+    {
+        if(repository instanceof StoreRepository)
+            return ((StoreRepository)repository).openSnapshot();
+        return new LiveSnapshot(repository);
+    }
+}
@@ -0,0 +1,80 @@
+package data;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+class SortedSetIndex<T, K> extends SecondaryIndex<T, K>
+{
+    // ids are kept in order so a page after a given id is found without sorting
+    private final ConcurrentHashMap<K, NavigableSet<Long>> idsByKey;
+    // key each id was indexed under, models are mutable so it can't be read back from them
+    private final ConcurrentHashMap<Long, K> keysById;
+
+    SortedSetIndex(Function<T, ? extends K> keyExtractor)
+    {
+        super(keyExtractor);
+        idsByKey = new ConcurrentHashMap<>();
+        keysById = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    void put(Long id, T model) {
+        if(id==null)
+            return;
+
+        K newKey = keyOf(model);
+        keysById.compute(id, (i, oldKey) -> {
+            if(oldKey!=null && !oldKey.equals(newKey))
+                unlink(oldKey,i);
+            if(newKey!=null)
+                link(newKey,i);
+            return newKey;
+        });
+    }
+
+    @Override
+    void remove(Long id) {
+        if(id==null)
+            return;
+
+        keysById.computeIfPresent(id, (i, oldKey) -> {
+            unlink(oldKey,i);
+            return null;
+        });
+    }
+
+    @Override
+    Set<Long> get(K key) {
+        Set<Long> ids = key==null ? null : idsByKey.get(key);
+        return ids==null ? Collections.emptySet() : Collections.unmodifiableSet(ids);
+    }
+
+    @Override
+    Iterator<Long> idsAfter(K key, long afterId) {
+        NavigableSet<Long> ids = idsByKey.get(key);
+        return ids==null ? null : ids.tailSet(afterId,false).iterator();
+    }
+
+    private void link(K key, Long id)
+    {
+        idsByKey.compute(key, (k, ids) -> {
+            if(ids==null)
+                ids = new ConcurrentSkipListSet<>();
+            ids.add(id);
+            return ids;
+        });
+    }
+
+    private void unlink(K key, Long id)
+    {
+        idsByKey.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+}
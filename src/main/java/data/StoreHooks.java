@@ -0,0 +1,39 @@
+package data;
+
+import java.util.List;
+
+// what the repository itself needs of a store besides the calls its callers make
+interface StoreHooks<T> extends EntityStore<T>
+{
+    // transactions: ids for new models, locks over several ids, and undoing a write
+    long reserveId();
+    void insert(long id, T model);
+    T getCommitted(long id);
+    void withLocks(long[] ids, Runnable action);
+    boolean tryWithLocks(long[] ids, Runnable action);
+    void revert(long id, T before);
+
+    // snapshots
+    void useClock(VersionClock clock);
+    T get(long id, long asOf);
+    List<T> getAll(long asOf);
+    List<T> find(String index, Object key, long asOf);
+    QueryPlan<T> plan(Query query, long asOf);
+    void trimVersions(long horizon);
+
+    // shards and the log
+    void partitionIds(int partition, int partitions);
+    void restore(T model);
+    void restoreDelete(long id);
+    long getLastId();
+    void restoreLastId(long id);
+
+    // every store a registry takes extends AbstractEntityStore, see StoreRegistry.register()
+    @SuppressWarnings("unchecked")
+    static <T> StoreHooks<T> of(EntityStore<T> store)
+    {
+        if(!(store instanceof StoreHooks))
+            throw new IllegalArgumentException(store.getClass().getSimpleName() + " doesn't extend AbstractEntityStore");
+        return (StoreHooks<T>)store;
+    }
+}
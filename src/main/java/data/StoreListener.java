@@ -0,0 +1,29 @@
+package data;
+
+import java.util.List;
+
+public interface StoreListener<T>
+{
+    void added(long id, T model);
+    void updated(long id, T model);
+    void deleted(long id);
+
+    // a batch is reported in one call, listeners that care about it being one unit override these
+    default void addedAll(long[] ids, List<T> models)
+    {
+        for(int i = 0; i < ids.length; i++)
+            added(ids[i],models.get(i));
+    }
+
+    default void updatedAll(long[] ids, List<T> models)
+    {
+        for(int i = 0; i < ids.length; i++)
+            updated(ids[i],models.get(i));
+    }
+
+    default void deletedAll(long[] ids)
+    {
+        for(long id : ids)
+            deleted(id);
+    }
+}
@@ -0,0 +1,80 @@
+package data;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class StoreRegistry
+{
+    public interface StoreFactory
+    {
+        <T> EntityStore<T> create(EntityType<T> type);
+    }
+
+    private final ConcurrentHashMap<Class<?>, EntityStore<?>> stores;
+    private final ConcurrentHashMap<String, EntityStore<?>> storesByName;
+    // resolves subclasses (e.g. mocks) to the store of their model once per class
+    private final ClassValue<EntityStore<?>> resolved;
+
+    public StoreRegistry()
+    {
+        stores = new ConcurrentHashMap<>();
+        storesByName = new ConcurrentHashMap<>();
+        resolved = new ClassValue<EntityStore<?>>() {
+            @Override
+            protected EntityStore<?> computeValue(Class<?> type)
+            {
+                for(Class<?> c = type; c != null; c = c.getSuperclass())
+                {
+                    EntityStore<?> store = stores.get(c);
+                    if(store != null)
+                        return store;
+                }
+                throw new IllegalArgumentException("Wrong argument type");
+            }
+        };
+    }
+
+    public static StoreRegistry of(StoreFactory factory)
+    {
+        StoreRegistry registry = new StoreRegistry();
+        for(EntityType<?> type : EntityType.values())
+            registry.register(factory.create(type));
+        return registry;
+    }
+
+    public <T> void register(EntityStore<T> store)
+    {
+        // transactions, snapshots and the log all rely on the hooks, a store without them is turned away here
+        StoreHooks.of(store);
+        Class<T> modelClass = store.getType().getModelClass();
+        stores.put(modelClass,store);
+        storesByName.put(store.getType().getName(),store);
+        resolved.remove(modelClass);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> EntityStore<T> storeFor(Class<T> modelClass)
+    {
+        return (EntityStore<T>)resolved.get(modelClass);
+    }
+
+    public EntityStore<?> storeNamed(String name)
+    {
+        EntityStore<?> store = storesByName.get(name);
+        if(store==null)
+            throw new IllegalArgumentException("There is no store for " + name);
+        return store;
+    }
+
+    public Collection<EntityStore<?>> getStores()
+    {
+        return Collections.unmodifiableCollection(stores.values());
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> EntityStore<T> storeOf(T model)
+    {
+        return (EntityStore<T>)resolved.get(model.getClass());
+    }
+}
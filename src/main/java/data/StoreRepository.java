@@ -0,0 +1,173 @@
+package data;
+
+import models.Reservation;
+import models.Restaurant;
+import models.Table;
+import models.User;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+
+public class StoreRepository implements Repository
+{
+    private final StoreRegistry registry;
+    private final VersionClock clock;
+
+    public StoreRepository(StoreRegistry registry)
+    {
+        this.registry = registry;
+        clock = new VersionClock();
+        for(EntityStore<?> store : registry.getStores())
+            StoreHooks.of(store).useClock(clock);
+    }
+
+    public StoreRegistry getRegistry()
+    {
+        return registry;
+    }
+
+    // kept from before the stores assigned ids; each call uses up the id it returns, the next add() gets the one
+    // after it, so they are no way to learn what add() will assign
+    @Deprecated
+    public Long getNextReservationId()
+    {
+        return StoreHooks.of(registry.storeFor(Reservation.class)).reserveId();
+    }
+
+    @Deprecated
+    public Long getNextRestaurantId()
+    {
+        return StoreHooks.of(registry.storeFor(Restaurant.class)).reserveId();
+    }
+
+    @Deprecated
+    public Long getNextTableId()
+    {
+        return StoreHooks.of(registry.storeFor(Table.class)).reserveId();
+    }
+
+    @Deprecated
+    public Long getNextUserId()
+    {
+        return StoreHooks.of(registry.storeFor(User.class)).reserveId();
+    }
+
+    public <T> void register(EntityStore<T> store)
+    {
+        StoreHooks.of(store).useClock(clock);
+        registry.register(store);
+    }
+
+    // a consistent read-only view across every store, writers keep going while it is open
+    public Snapshot openSnapshot()
+    {
+        return new StoreSnapshot(this,clock.openSnapshot());
+    }
+
+    // reads and writes that commit together, see Transaction
+    public Transaction beginTransaction()
+    {
+        return new StoreTransaction(this);
+    }
+
+    // trims under the clock, a snapshot opened meanwhile would miss what was trimmed for an older horizon
+    void release(long version)
+    {
+        clock.closeSnapshot(version,horizon -> {
+            for(EntityStore<?> store : registry.getStores())
+                StoreHooks.of(store).trimVersions(horizon);
+        });
+    }
+
+    @Override
+    public <T> void add(T model) {
+        registry.storeOf(model).add(model);
+    }
+
+    @Override
+    public <T> void update(T model) {
+        registry.storeOf(model).update(model);
+    }
+
+    @Override
+    public <T> void compareAndUpdate(T model) {
+        registry.storeOf(model).compareAndUpdate(model);
+    }
+
+    @Override
+    public <T> T get(long id, Class<T> modelClass) {
+        return registry.storeFor(modelClass).get(id);
+    }
+
+    @Override
+    public <T> List<T> getAll(Class<T> modelClass) {
+        return registry.storeFor(modelClass).getAll();
+    }
+
+    @Override
+    public <T> Spliterator<T> spliterator(Class<T> modelClass) {
+        return registry.storeFor(modelClass).spliterator();
+    }
+
+    @Override
+    public <T> List<T> getPage(Class<T> modelClass, long afterId, int limit) {
+        return registry.storeFor(modelClass).getPage(afterId,limit);
+    }
+
+    @Override
+    public <T> QueryPlan<T> plan(Class<T> modelClass, Query query) {
+        return registry.storeFor(modelClass).plan(query);
+    }
+
+    @Override
+    public <T> void delete(T model) {
+        registry.storeOf(model).delete(model);
+    }
+
+    @Override
+    public <T> BatchResult<T> addAll(Class<T> modelClass, List<T> models) {
+        return registry.storeFor(modelClass).addAll(models);
+    }
+
+    @Override
+    public <T> BatchResult<T> updateAll(Class<T> modelClass, List<T> models) {
+        return registry.storeFor(modelClass).updateAll(models);
+    }
+
+    @Override
+    public <T> BatchResult<T> deleteAll(Class<T> modelClass, List<T> models) {
+        return registry.storeFor(modelClass).deleteAll(models);
+    }
+
+    @Override
+    public List<Reservation> getUserReservations(long userId) {
+        return registry.storeFor(Reservation.class).find(EntityType.USER_ID,userId);
+    }
+
+    @Override
+    public List<Table> getRestaurantTables(long restaurantId) {
+        return registry.storeFor(Table.class).find(EntityType.RESTAURANT_ID,restaurantId);
+    }
+
+    @Override
+    public List<Reservation> getUserReservations(long userId, long afterId, int limit) {
+        return registry.storeFor(Reservation.class).findPage(EntityType.USER_ID,Collections.singleton(userId),afterId,limit);
+    }
+
+    @Override
+    public List<Table> getRestaurantTables(long restaurantId, long afterId, int limit) {
+        return registry.storeFor(Table.class).findPage(EntityType.RESTAURANT_ID,Collections.singleton(restaurantId),afterId,limit);
+    }
+
+    @Override
+    public List<Reservation> getTableReservations(Collection<Long> tableIds, long afterId, int limit) {
+        return registry.storeFor(Reservation.class).findPage(EntityType.TABLE_ID,tableIds,afterId,limit);
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        return registry.storeFor(User.class).findUnique(EntityType.EMAIL,EntityType.emailKey(email));
+    }
+}
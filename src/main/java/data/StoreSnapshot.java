@@ -0,0 +1,78 @@
+package data;
+
+import models.Reservation;
+import models.Table;
+import models.User;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class StoreSnapshot implements Snapshot
+{
+    private final StoreRepository repository;
+    private final long version;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    StoreSnapshot(StoreRepository repository, long version)
+    {
+        this.repository = repository;
+        this.version = version;
+    }
+
+    @Override
+    public <T> void add(T model) {
+        throw new UnsupportedOperationException("Snapshots are read-only");
+    }
+
+    @Override
+    public <T> void update(T model) {
+        throw new UnsupportedOperationException("Snapshots are read-only");
+    }
+
+    @Override
+    public <T> void delete(T model) {
+        throw new UnsupportedOperationException("Snapshots are read-only");
+    }
+
+    @Override
+    public <T> T get(long id, Class<T> modelClass) {
+        return storeFor(modelClass).get(id,version);
+    }
+
+    @Override
+    public <T> List<T> getAll(Class<T> modelClass) {
+        return storeFor(modelClass).getAll(version);
+    }
+
+    @Override
+    public <T> QueryPlan<T> plan(Class<T> modelClass, Query query) {
+        return storeFor(modelClass).plan(query,version);
+    }
+
+    @Override
+    public List<Reservation> getUserReservations(long userId) {
+        return storeFor(Reservation.class).find(EntityType.USER_ID,userId,version);
+    }
+
+    @Override
+    public List<Table> getRestaurantTables(long restaurantId) {
+        return storeFor(Table.class).find(EntityType.RESTAURANT_ID,restaurantId,version);
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        List<User> users = storeFor(User.class).find(EntityType.EMAIL,EntityType.emailKey(email),version);
+        return users.isEmpty() ? null : users.get(0);
+    }
+
+    @Override
+    public void close() {
+        if(closed.compareAndSet(false,true))
+            repository.release(version);
+    }
+
+    private <T> StoreHooks<T> storeFor(Class<T> modelClass)
+    {
+        return StoreHooks.of(repository.getRegistry().storeFor(modelClass));
+    }
+}
@@ -0,0 +1,133 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// holds the lock stripes of every id read or written while the reads are checked and the writes applied, writers
+// of other ids keep going; stores are locked in name order and stripes in ascending order, so commits can't deadlock
+class StoreTransaction extends AbstractTransaction
+{
+    private final StoreRegistry registry;
+
+    StoreTransaction(StoreRepository repository)
+    {
+        super(repository);
+        registry = repository.getRegistry();
+    }
+
+    @Override
+    protected void apply()
+    {
+        TreeMap<String, List<Long>> locked = new TreeMap<>();
+        for(Read read : reads)
+            lock(locked,read.type.getName(),read.id);
+
+        Long[] ids = new Long[writes.size()];
+        for(int i = 0; i < writes.size(); i++)
+        {
+            Write write = writes.get(i);
+            EntityType<Object> type = registry.storeOf(write.model).getType();
+            ids[i] = write.kind==Kind.ADD ? null : type.getId(write.model);
+            if(ids[i]!=null)
+                lock(locked,type.getName(),ids[i]);
+        }
+
+        // new models get their ids once the reads hold, so a conflicting commit uses none up; their stripes can't be
+        // waited for on top of the others any more, when one is busy the commit locks everything again in order
+        boolean[] written = new boolean[1];
+        withLocks(locked.entrySet().iterator(),() -> {
+            checkReads();
+            TreeMap<String, List<Long>> added = new TreeMap<>();
+            for(int i = 0; i < writes.size(); i++)
+            {
+                Write write = writes.get(i);
+                if(write.kind!=Kind.ADD)
+                    continue;
+
+                StoreHooks<Object> store = StoreHooks.of(registry.storeOf(write.model));
+                ids[i] = store.reserveId();
+                lock(added,store.getType().getName(),ids[i]);
+                lock(locked,store.getType().getName(),ids[i]);
+            }
+            written[0] = tryWithLocks(added.entrySet().iterator(),() -> write(ids));
+        });
+        if(written[0])
+            return;
+
+        // only a write landing between the two checks can fail this one, the reserved ids are lost then
+        withLocks(locked.entrySet().iterator(),() -> {
+            checkReads();
+            write(ids);
+        });
+    }
+
+    // a failing write takes back the ones before it, the ids are still locked so no other writer has built on them;
+    // what they held is taken as a copy, a write of the stored model itself would change it too
+    private void write(Long[] ids)
+    {
+        List<Runnable> undo = new ArrayList<>();
+        try
+        {
+            for(int i = 0; i < writes.size(); i++)
+            {
+                Write write = writes.get(i);
+                StoreHooks<Object> store = StoreHooks.of(registry.storeOf(write.model));
+                if(ids[i]==null)
+                    continue;
+
+                long id = ids[i];
+                Object before = store.getCommitted(id);
+                if(write.kind==Kind.ADD)
+                    store.insert(id,write.model);
+                else if(before!=null && write.kind==Kind.UPDATE)
+                    store.update(write.model);
+                else if(before!=null)
+                    store.delete(write.model);
+                else
+                    continue;
+                undo.add(() -> store.revert(id,before));
+            }
+        }
+        catch(RuntimeException e)
+        {
+            for(int i = undo.size() - 1; i >= 0; i--)
+                undo.get(i).run();
+            throw e;
+        }
+    }
+
+    private static void lock(Map<String, List<Long>> locked, String type, long id)
+    {
+        locked.computeIfAbsent(type,name -> new ArrayList<>()).add(id);
+    }
+
+    private void withLocks(Iterator<Map.Entry<String, List<Long>>> stores, Runnable action)
+    {
+        if(!stores.hasNext())
+        {
+            action.run();
+            return;
+        }
+
+        Map.Entry<String, List<Long>> next = stores.next();
+        long[] ids = next.getValue().stream().mapToLong(Long::longValue).toArray();
+        StoreHooks.of(registry.storeNamed(next.getKey())).withLocks(ids,() -> withLocks(stores,action));
+    }
+
+    private boolean tryWithLocks(Iterator<Map.Entry<String, List<Long>>> stores, Runnable action)
+    {
+        if(!stores.hasNext())
+        {
+            action.run();
+            return true;
+        }
+
+        Map.Entry<String, List<Long>> next = stores.next();
+        long[] ids = next.getValue().stream().mapToLong(Long::longValue).toArray();
+        boolean[] ran = new boolean[1];
+        return StoreHooks.of(registry.storeNamed(next.getKey())).tryWithLocks(ids,() -> ran[0] = tryWithLocks(stores,action)) && ran[0];
+    }
+}
@@ -0,0 +1,93 @@
+package data;
+
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public final class TimeSlots
+{
+    public static final int NULL_DAY = Integer.MIN_VALUE;
+    public static final byte NULL_SLOT = -1;
+    public static final int SLOTS_PER_DAY = 48;
+
+    private static final LocalTime[] SLOT_TIMES = new LocalTime[SLOTS_PER_DAY];
+    static
+    {
+        for(int slot = 0; slot < SLOTS_PER_DAY; slot++)
+            SLOT_TIMES[slot] = new LocalTime(slot / 2,(slot % 2) * 30);
+    }
+
+    // LocalDate is immutable, so materialized days from 1970 to 2149 are shared
+    private static final int CACHED_DAYS = 1 << 16;
+    private static final AtomicReferenceArray<LocalDate> DATES = new AtomicReferenceArray<>(CACHED_DAYS);
+
+    private TimeSlots()
+    {
+    }
+
+    public static byte slotOf(LocalTime time)
+    {
+        if(time==null)
+            return NULL_SLOT;
+
+        if(time.getMillisOfSecond()!=0 || time.getSecondOfMinute()!=0 || time.getMinuteOfHour() % 30 != 0)
+            throw new IllegalArgumentException("Time " + time + " is not a multiple of half hour");
+
+        return (byte)(time.getHourOfDay() * 2 + time.getMinuteOfHour() / 30);
+    }
+
+    public static LocalTime timeOf(byte slot)
+    {
+        return slot==NULL_SLOT ? null : SLOT_TIMES[slot];
+    }
+
+    // days since 1970-01-01 in the proleptic gregorian calendar, without allocating
+    public static int epochDayOf(LocalDate date)
+    {
+        if(date==null)
+            return NULL_DAY;
+
+        int y = date.getYear();
+        int m = date.getMonthOfYear();
+        int d = date.getDayOfMonth();
+
+        y -= m <= 2 ? 1 : 0;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    public static LocalDate dateOf(int epochDay)
+    {
+        if(epochDay==NULL_DAY)
+            return null;
+
+        if(epochDay < 0 || epochDay >= CACHED_DAYS)
+            return computeDate(epochDay);
+
+        LocalDate date = DATES.get(epochDay);
+        if(date==null)
+        {
+            date = computeDate(epochDay);
+            DATES.set(epochDay,date);
+        }
+        return date;
+    }
+
+    private static LocalDate computeDate(int epochDay)
+    {
+        int z = epochDay + 719468;
+        int era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int d = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int m = mp + (mp < 10 ? 3 : -9);
+        int y = yearOfEra + era * 400 + (m <= 2 ? 1 : 0);
+        return new LocalDate(y,m,d);
+    }
+}
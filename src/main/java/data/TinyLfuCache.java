@@ -0,0 +1,251 @@
+package data;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// a W-TinyLFU cache of one model type: new ids wait in a small LRU window, leaving it they only get into the main
+// space if they were read more often than its least recently used entry; the main space keeps ids read again
+// in a protected part, so a burst of one-off reads can't push out the popular ones
+//
+// the values sit in a concurrent map, so get() takes no lock: it only notes the id in a ring of recent reads, which
+// is replayed into the LRU order and the frequency sketch under the policy lock by whoever gets it first
+final class TinyLfuCache<V>
+{
+    private static final int READ_BUFFER = 128;
+    private static final int WRITE_STRIPES = 64;
+
+    private static final class Node<V>
+    {
+        volatile V value;
+
+        Node(V value)
+        {
+            this.value = value;
+        }
+    }
+
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final int protectedCapacity;
+    private final ConcurrentHashMap<Long, Node<V>> data = new ConcurrentHashMap<>();
+
+    // the policy, changed only under policyLock; access ordered, the eldest entry is the least recently used
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final LinkedHashMap<Long, Node<V>> window = new LinkedHashMap<>(16,0.75f,true);
+    private final LinkedHashMap<Long, Node<V>> probation = new LinkedHashMap<>(16,0.75f,true);
+    private final LinkedHashMap<Long, Node<V>> protectedPart = new LinkedHashMap<>(16,0.75f,true);
+    private final FrequencySketch sketch;
+    private long evictions;
+
+    // ids read since the policy last caught up; a reader a whole ring ahead overwrites reads not replayed yet
+    private final AtomicLongArray reads = new AtomicLongArray(READ_BUFFER);
+    private final AtomicLong readsRecorded = new AtomicLong();
+    private volatile long readsReplayed;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    // bumped on every invalidation of an id of the stripe, a value loaded across one is not cached
+    private final AtomicLongArray writes = new AtomicLongArray(WRITE_STRIPES);
+
+    TinyLfuCache(int capacity)
+    {
+        if(capacity <= 0)
+            throw new IllegalArgumentException("Cache capacity must be positive");
+
+        windowCapacity = Math.max(1,capacity / 100);
+        mainCapacity = capacity - windowCapacity;
+        protectedCapacity = mainCapacity * 4 / 5;
+        sketch = new FrequencySketch(capacity);
+    }
+
+    V get(long id)
+    {
+        Node<V> node = data.get(id);
+        recordRead(id);
+
+        if(node==null)
+        {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return node.value;
+    }
+
+    // taken before loading a value from the backend and handed back to put()
+    long stamp(long id)
+    {
+        return writes.get(stripeOf(id));
+    }
+
+    // a value loaded while the id was written may be older than the write, it is not kept
+    void put(long id, V value, long stamp)
+    {
+        Node<V> added = new Node<>(value);
+        boolean[] inserted = new boolean[1];
+        data.compute(id,(i, node) -> {
+            if(writes.get(stripeOf(i))!=stamp)
+                return node;
+            if(node!=null)
+            {
+                node.value = value;
+                return node;
+            }
+            inserted[0] = true;
+            return added;
+        });
+        if(!inserted[0])
+            return;
+
+        policyLock.lock();
+        try
+        {
+            replayReads();
+            window.put(id,added);
+            if(window.size() > windowCapacity)
+            {
+                Map.Entry<Long, Node<V>> candidate = removeEldest(window);
+                admit(candidate.getKey(),candidate.getValue());
+            }
+        }
+        finally
+        {
+            policyLock.unlock();
+        }
+    }
+
+    void invalidate(long id)
+    {
+        @SuppressWarnings("unchecked")
+        Node<V>[] removed = new Node[1];
+        // bumped under the id's entry like put() checks it, so no load older than this write gets in afterwards
+        data.compute(id,(i, node) -> {
+            writes.incrementAndGet(stripeOf(i));
+            removed[0] = node;
+            return null;
+        });
+        if(removed[0]==null)
+            return;
+
+        policyLock.lock();
+        try
+        {
+            // a later put() may have cached the id again already, only the removed node goes
+            if(!window.remove(id,removed[0]) && !probation.remove(id,removed[0]))
+                protectedPart.remove(id,removed[0]);
+        }
+        finally
+        {
+            policyLock.unlock();
+        }
+    }
+
+    CacheStats getStats(long coalesced)
+    {
+        policyLock.lock();
+        try
+        {
+            replayReads();
+            return new CacheStats(hits.sum(),misses.sum(),coalesced,evictions,window.size() + probation.size() + protectedPart.size());
+        }
+        finally
+        {
+            policyLock.unlock();
+        }
+    }
+
+    private void recordRead(long id)
+    {
+        long recorded = readsRecorded.getAndIncrement();
+        reads.set((int)(recorded & (READ_BUFFER - 1)),id);
+        if(recorded - readsReplayed >= READ_BUFFER / 2 && policyLock.tryLock())
+        {
+            try
+            {
+                replayReads();
+            }
+            finally
+            {
+                policyLock.unlock();
+            }
+        }
+    }
+
+    // called under policyLock
+    private void replayReads()
+    {
+        long recorded = readsRecorded.get();
+        long from = Math.max(readsReplayed,recorded - READ_BUFFER);
+        for(long i = from; i < recorded; i++)
+        {
+            long id = reads.get((int)(i & (READ_BUFFER - 1)));
+            sketch.increment(id);
+            if(window.get(id)==null)
+            {
+                Node<V> node = probation.remove(id);
+                if(node!=null)
+                    protect(id,node);
+                else
+                    protectedPart.get(id);
+            }
+        }
+        readsReplayed = recorded;
+    }
+
+    private void protect(long id, Node<V> node)
+    {
+        protectedPart.put(id,node);
+        if(protectedPart.size() > protectedCapacity)
+        {
+            Map.Entry<Long, Node<V>> demoted = removeEldest(protectedPart);
+            probation.put(demoted.getKey(),demoted.getValue());
+        }
+    }
+
+    // the id leaving the window against the main space's next victim, the one read less often goes
+    private void admit(long id, Node<V> node)
+    {
+        if(probation.size() + protectedPart.size() < mainCapacity)
+        {
+            probation.put(id,node);
+            return;
+        }
+
+        evictions++;
+        LinkedHashMap<Long, Node<V>> victims = probation.isEmpty() ? protectedPart : probation;
+        if(victims.isEmpty())
+        {
+            data.remove(id,node);
+            return;
+        }
+
+        Map.Entry<Long, Node<V>> victim = victims.entrySet().iterator().next();
+        if(sketch.frequency(id) > sketch.frequency(victim.getKey()))
+        {
+            victims.remove(victim.getKey());
+            data.remove(victim.getKey(),victim.getValue());
+            probation.put(id,node);
+        }
+        else
+            data.remove(id,node);
+    }
+
+    private static int stripeOf(long id)
+    {
+        return (int)(id ^ id >>> 32) & (WRITE_STRIPES - 1);
+    }
+
+    private static <V> Map.Entry<Long, Node<V>> removeEldest(LinkedHashMap<Long, Node<V>> segment)
+    {
+        Iterator<Map.Entry<Long, Node<V>>> entries = segment.entrySet().iterator();
+        Map.Entry<Long, Node<V>> eldest = entries.next();
+        entries.remove();
+        return eldest;
+    }
+}
@@ -0,0 +1,21 @@
+package data;
+
+// a unit of work: get() reads are remembered, writes are kept until commit(), which applies them only if none
+// of the models read has been written since, otherwise it throws VersionConflictException and the work can be redone;
+// each write still reaches listeners on its own, a LogRepository that crashes mid-commit may keep only some of them
+public interface Transaction extends Repository
+{
+    void commit();
+
+    // commit() also checks that id still holds the version of a model read outside the transaction, null if it held none
+    <T> void expect(long id, Class<T> modelClass, T model);
+
+    // only store repositories commit atomically; the others (caching, sharded) can't lock what was read, their reads
+    // are checked again right before the writes and another writer may still slip in between
+    static Transaction of(Repository repository)
+    {
+        if(repository instanceof StoreRepository)
+            return ((StoreRepository)repository).beginTransaction();
+        return new LiveTransaction(repository);
+    }
+}
@@ -0,0 +1,87 @@
+package data;
+
+import errors.DuplicateEntryException;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+class UniqueIndex<T, K>
+{
+    private final String modelName;
+    private final String field;
+    private final Function<T, ? extends K> keyExtractor;
+
+    private final ConcurrentHashMap<K, Long> idsByKey;
+    private final ConcurrentHashMap<Long, K> keysById;
+
+    UniqueIndex(String modelName, String field, Function<T, ? extends K> keyExtractor)
+    {
+        this.modelName = modelName;
+        this.field = field;
+        this.keyExtractor = keyExtractor;
+        idsByKey = new ConcurrentHashMap<>();
+        keysById = new ConcurrentHashMap<>();
+    }
+
+    K keyOf(T model)
+    {
+        return keyExtractor.apply(model);
+    }
+
+    // claims the key for id before releasing the old one, so a taken key is rejected without side effects
+    void put(Long id, T model) throws DuplicateEntryException
+    {
+        put(id,model,false);
+    }
+
+    // recovery replays states that may briefly overlap, the latest claim wins and later records settle it
+    void forcePut(Long id, T model)
+    {
+        put(id,model,true);
+    }
+
+    private void put(Long id, T model, boolean force)
+    {
+        if(id==null)
+            return;
+
+        K newKey = keyOf(model);
+        keysById.compute(id, (i, oldKey) -> {
+            if(newKey!=null)
+            {
+                Long owner = force ? idsByKey.put(newKey,i) : idsByKey.putIfAbsent(newKey,i);
+                if(!force && owner!=null && !owner.equals(i))
+                    throw new DuplicateEntryException(modelName,field,newKey);
+            }
+            if(oldKey!=null && !oldKey.equals(newKey))
+                idsByKey.remove(oldKey,i);
+            return newKey;
+        });
+    }
+
+    void remove(Long id)
+    {
+        if(id==null)
+            return;
+
+        keysById.computeIfPresent(id, (i, oldKey) -> {
+            idsByKey.remove(oldKey,i);
+            return null;
+        });
+    }
+
+    Long get(K key)
+    {
+        return key==null ? null : idsByKey.get(key);
+    }
+
+    T lookup(K key, Function<Long, T> loader)
+    {
+        Long id = get(key);
+        if(id==null)
+            return null;
+
+        T model = loader.apply(id);
+        return model!=null && key.equals(keyOf(model)) ? model : null;
+    }
+}
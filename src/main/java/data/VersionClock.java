@@ -0,0 +1,93 @@
+package data;
+
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+
+// orders the writes of every store of a repository, a snapshot sees exactly the writes numbered up to its version;
+// while no snapshot is open a write only bumps two counters, the writes in flight are tracked one by one only
+// while some snapshot is reading
+class VersionClock
+{
+    private final AtomicLong last = new AtomicLong();
+    // writes that started while nobody was reading
+    private final LongAdder untracked = new LongAdder();
+    private final ConcurrentSkipListSet<Long> writing = new ConcurrentSkipListSet<>();
+    // open snapshot versions and how many readers hold each, changed under the clock's monitor
+    private final ConcurrentSkipListMap<Long, Integer> readers = new ConcurrentSkipListMap<>();
+    // snapshots waiting for the untracked writes to end
+    private int opening;
+    private volatile boolean reading;
+
+    long beginWrite()
+    {
+        if(!reading)
+        {
+            untracked.increment();
+            // a snapshot that starts reading now waits for this write to end
+            if(!reading)
+                return last.incrementAndGet();
+            untracked.decrement();
+        }
+
+        synchronized(this)
+        {
+            long version = last.incrementAndGet();
+            writing.add(version);
+            return version;
+        }
+    }
+
+    void endWrite(long version)
+    {
+        if(!writing.remove(version))
+            untracked.decrement();
+    }
+
+    // stores only keep old versions while some snapshot may still need them
+    boolean isReading()
+    {
+        return reading;
+    }
+
+    // whether a snapshot reads a version from from up to but not including to
+    boolean isReadingBetween(long from, long to)
+    {
+        Long version = readers.ceilingKey(from);
+        return version!=null && version < to;
+    }
+
+    // waits for the writes that already took a version, writes started later record what they replace
+    long openSnapshot()
+    {
+        synchronized(this)
+        {
+            opening++;
+            reading = true;
+        }
+        while(untracked.sum() > 0)
+            LockSupport.parkNanos(1000);
+
+        long version;
+        synchronized(this)
+        {
+            opening--;
+            version = last.get();
+            readers.merge(version,1,Integer::sum);
+        }
+        while(!writing.isEmpty() && writing.first() <= version)
+            LockSupport.parkNanos(1000);
+        return version;
+    }
+
+    // hands the version up to which old versions are no longer needed to trim, no snapshot opens meanwhile
+    synchronized void closeSnapshot(long version, LongConsumer trim)
+    {
+        readers.computeIfPresent(version,(v, count) -> count==1 ? null : count - 1);
+        reading = opening > 0 || !readers.isEmpty();
+        trim.accept(readers.isEmpty() ? Long.MAX_VALUE : readers.firstKey());
+    }
+}
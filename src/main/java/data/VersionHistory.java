@@ -0,0 +1,75 @@
+package data;
+
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// what each id held before its writes, newest first; the stores never change a stored model in place, so the old
+// models themselves are kept
+class VersionHistory<T>
+{
+    private static class Version<T>
+    {
+        private final long version;
+        // null when the id held no model before this write
+        private final T before;
+        private volatile Version<T> older;
+
+        Version(long version, T before, Version<T> older)
+        {
+            this.version = version;
+            this.before = before;
+            this.older = older;
+        }
+    }
+
+    private final ConcurrentHashMap<Long, Version<T>> versions = new ConcurrentHashMap<>();
+
+    // called under the id's lock before the write lands, with what the id holds; a version no open snapshot can
+    // tell from the newest one is not kept
+    void record(long id, T before, long version, VersionClock clock)
+    {
+        versions.compute(id,(i, newest) -> {
+            if(newest!=null && !clock.isReadingBetween(newest.version,version))
+                return newest;
+            return new Version<>(version,before,newest);
+        });
+    }
+
+    // current has to be read before calling this, a write that lands in between is then found in the history
+    T resolve(long id, T current, long asOf)
+    {
+        Version<T> found = null;
+        for(Version<T> v = versions.get(id); v!=null && v.version > asOf; v = v.older)
+            found = v;
+
+        return found==null ? current : found.before;
+    }
+
+    // the ids whose current model a snapshot of asOf can't use, in ascending order
+    TreeSet<Long> changedAfter(long asOf)
+    {
+        TreeSet<Long> ids = new TreeSet<>();
+        versions.forEach((id, newest) -> {
+            if(newest.version > asOf)
+                ids.add(id);
+        });
+        return ids;
+    }
+
+    // versions up to horizon are older than every open snapshot
+    void trim(long horizon)
+    {
+        for(Long id : versions.keySet())
+        {
+            versions.computeIfPresent(id,(i, newest) -> {
+                if(newest.version <= horizon)
+                    return null;
+                Version<T> v = newest;
+                while(v.older!=null && v.older.version > horizon)
+                    v = v.older;
+                v.older = null;
+                return newest;
+            });
+        }
+    }
+}
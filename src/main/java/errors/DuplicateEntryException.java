@@ -0,0 +1,9 @@
+package errors;
+
+public class DuplicateEntryException extends RuntimeException
+{
+    public DuplicateEntryException(String model,String field,Object value)
+    {
+        super("There is already " + model + " with " + field + " " + value);
+    }
+}
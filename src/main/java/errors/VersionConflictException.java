@@ -0,0 +1,15 @@
+package errors;
+
+// another writer changed the entry since it was read, reading it again and retrying is safe
+public class VersionConflictException extends RuntimeException
+{
+    public VersionConflictException(String model, Long id, long expected, long actual)
+    {
+        super(model + " " + id + " is at version " + actual + ", the update was based on version " + expected);
+    }
+
+    public VersionConflictException(String model, Long id)
+    {
+        super(model + " " + id + " was deleted before the update");
+    }
+}
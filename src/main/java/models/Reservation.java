@@ -17,6 +17,7 @@ public class Reservation implements Validatable, Serializable
     private Long tableId;
     private LocalTime time;
     private LocalDate date;
+    private long version;
 
     public Reservation()
     {
@@ -40,6 +41,16 @@ public class Reservation implements Validatable, Serializable
         this.id = id;
     }
 
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public void setVersion(long version)
+    {
+        this.version = version;
+    }
+
     public Long getUserId()
     {
         return userId;
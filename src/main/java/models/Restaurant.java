@@ -16,6 +16,7 @@ public class Restaurant implements Validatable, Serializable {
     private String address;
     private LocalTime openHour;
     private LocalTime closeHour;
+    private long version;
 
     public Restaurant() {
     }
@@ -36,6 +37,14 @@ public class Restaurant implements Validatable, Serializable {
         this.id = id;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public String getName() {
         return name;
     }
@@ -13,6 +13,7 @@ public class Table implements Validatable, Serializable
     private Long id;
     private int seats;
     private Long restaurantId;
+    private long version;
 
     public Table()
     {
@@ -34,6 +35,16 @@ public class Table implements Validatable, Serializable
         this.id = id;
     }
 
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public void setVersion(long version)
+    {
+        this.version = version;
+    }
+
     public int getSeats()
     {
         return seats;
@@ -18,6 +18,7 @@ public class User implements Validatable, Serializable
     private String password;
     private boolean isActive;
     private Type userType;
+    private long version;
 
 
     public User()
@@ -32,6 +33,12 @@ public class User implements Validatable, Serializable
         this.userType = userType;
     }
 
+    // a private copy to change and write back, other readers keep seeing the stored user until then
+    public User(User other) {
+        this(other.getId(),other.getEmail(),other.getPassword(),other.isActive(),other.getUserType());
+        this.version = other.getVersion();
+    }
+
     public Long getId()
     {
         return id;
@@ -42,6 +49,16 @@ public class User implements Validatable, Serializable
         this.id = id;
     }
 
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public void setVersion(long version)
+    {
+        this.version = version;
+    }
+
     public String getEmail()
     {
         return email;
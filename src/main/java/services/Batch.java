@@ -0,0 +1,67 @@
+package services;
+
+import data.BatchResult;
+import errors.EntryNotFoundException;
+import errors.ValidationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+// runs the service checks on every item of a batch, only the items that pass go to the repository
+class Batch<T>
+{
+    interface Check<T>
+    {
+        void check(T model) throws ValidationException, EntryNotFoundException;
+    }
+
+    private final BatchResult<T> result;
+    private final List<T> accepted;
+    private final List<Integer> positions;
+
+    private Batch(int size)
+    {
+        result = new BatchResult<>(size);
+        accepted = new ArrayList<>(size);
+        positions = new ArrayList<>(size);
+    }
+
+    static <T> Batch<T> check(List<T> models, Check<T> check)
+    {
+        Batch<T> batch = new Batch<>(models.size());
+        for(int i = 0; i < models.size(); i++)
+        {
+            T model = models.get(i);
+            try
+            {
+                check.check(model);
+                batch.accepted.add(model);
+                batch.positions.add(i);
+            }
+            catch(ValidationException | EntryNotFoundException e)
+            {
+                batch.result.failed(i,model,e);
+            }
+        }
+        return batch;
+    }
+
+    List<T> getAccepted()
+    {
+        return accepted;
+    }
+
+    // repository failures point into the accepted items, they are moved back to the caller's positions
+    BatchResult<T> complete(BatchResult<T> stored, Function<Exception, Exception> translate)
+    {
+        for(BatchResult.Failure<T> failure : stored.getFailures())
+            result.failed(positions.get(failure.getIndex()),failure.getModel(),translate.apply(failure.getError()));
+        return result;
+    }
+
+    BatchResult<T> complete(BatchResult<T> stored)
+    {
+        return complete(stored,Function.identity());
+    }
+}
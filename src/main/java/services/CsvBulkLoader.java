@@ -0,0 +1,276 @@
+package services;
+
+import data.BatchResult;
+import data.Repository;
+import models.*;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import validation.Validatable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+// loads CSV feeds in the shapes of the test resources, rows are parsed and validated in parallel and inserted one batch per chunk
+public class CsvBulkLoader
+{
+    private static final int CHUNK_ROWS = 1 << 16;
+    private static final int SPLIT_ROWS = 1 << 10;
+
+    private interface RowParser<T extends Validatable>
+    {
+        T parse(String[] fields);
+    }
+
+    private final Repository database;
+    private final ForkJoinPool pool;
+
+    public CsvBulkLoader(Repository db)
+    {
+        this(db,ForkJoinPool.commonPool());
+    }
+
+    public CsvBulkLoader(Repository db, ForkJoinPool pool)
+    {
+        database = db;
+        this.pool = pool;
+    }
+
+    // email,password
+    public ImportReport loadUsers(Reader csv) throws IOException
+    {
+        UserService userService = new UserService(database);
+        return load(csv,"User",2,2,
+                f -> new User(null,f[0],f[1],true,User.Type.STANDARD),
+                userService::addAll);
+    }
+
+    // name,address,HH:mm:ss,HH:mm:ss
+    public ImportReport loadRestaurants(Reader csv) throws IOException
+    {
+        RestaurantService restaurantService = new RestaurantService(database);
+        return load(csv,"Restaurant",4,4,
+                f -> new Restaurant(null,f[0],f[1],parseTime(f[2]),parseTime(f[3])),
+                restaurantService::addAll);
+    }
+
+    // seats,restaurantId
+    public ImportReport loadTables(Reader csv) throws IOException
+    {
+        TableService tableService = new TableService(database);
+        return load(csv,"Table",2,2,
+                f -> new Table(null,f[0]==null ? 0 : Integer.parseInt(f[0]),parseId(f[1])),
+                tableService::addAll);
+    }
+
+    // userId,tableId,HH:mm:ss,yyyy-MM-dd with an optional leading id column, which is ignored
+    public ImportReport loadReservations(Reader csv) throws IOException
+    {
+        ReservationService reservationService = new ReservationService(database);
+        return load(csv,"Reservation",4,5,
+                f -> {
+                    int o = f.length - 4;
+                    return new Reservation(null,parseId(f[o]),parseId(f[o + 1]),parseTime(f[o + 2]),parseDate(f[o + 3]));
+                },
+                reservationService::addAll);
+    }
+
+    private <T extends Validatable> ImportReport load(Reader csv, String model, int minColumns, int maxColumns,
+                                                      RowParser<T> parser, Function<List<T>, BatchResult<T>> inserter) throws IOException
+    {
+        ImportReport report = new ImportReport();
+        Columns columns = new Columns(minColumns,maxColumns);
+        BufferedReader reader = csv instanceof BufferedReader ? (BufferedReader)csv : new BufferedReader(csv);
+
+        long lineNumber = 0;
+        List<String> lines = new ArrayList<>(CHUNK_ROWS);
+        List<Long> lineNumbers = new ArrayList<>(CHUNK_ROWS);
+        String line;
+        while((line = reader.readLine())!=null)
+        {
+            lineNumber++;
+            if(line.trim().isEmpty())
+                continue;
+
+            lines.add(line);
+            lineNumbers.add(lineNumber);
+            if(lines.size()==CHUNK_ROWS)
+            {
+                loadChunk(lines,lineNumbers,model,columns,parser,inserter,report);
+                lines.clear();
+                lineNumbers.clear();
+            }
+        }
+        loadChunk(lines,lineNumbers,model,columns,parser,inserter,report);
+
+        return report;
+    }
+
+    private <T extends Validatable> void loadChunk(List<String> lines, List<Long> lineNumbers, String model, Columns columns,
+                                                   RowParser<T> parser, Function<List<T>, BatchResult<T>> inserter, ImportReport report)
+    {
+        int rows = lines.size();
+        Object[] models = new Object[rows];
+        String[] errors = new String[rows];
+        pool.invoke(new ParseTask<>(lines,model,columns,parser,models,errors,0,rows));
+
+        List<T> valid = new ArrayList<>(rows);
+        List<Long> validLines = new ArrayList<>(rows);
+        for(int i = 0; i < rows; i++)
+        {
+            if(errors[i]!=null)
+                report.rejected(model,lineNumbers.get(i),errors[i]);
+            else
+            {
+                @SuppressWarnings("unchecked")
+                T row = (T)models[i];
+                valid.add(row);
+                validLines.add(lineNumbers.get(i));
+            }
+        }
+
+        BatchResult<T> result = inserter.apply(valid);
+        for(BatchResult.Failure<T> failure : result.getFailures())
+            report.rejected(model,validLines.get(failure.getIndex()),failure.getError().getMessage());
+        report.imported(model,result.getSucceeded());
+    }
+
+    // parses and validates rows [from, to) of a chunk, every row writes only its own slots
+    private static class ParseTask<T extends Validatable> extends RecursiveAction
+    {
+        private final List<String> lines;
+        private final String model;
+        private final Columns columns;
+        private final RowParser<T> parser;
+        private final Object[] models;
+        private final String[] errors;
+        private final int from;
+        private final int to;
+
+        ParseTask(List<String> lines, String model, Columns columns, RowParser<T> parser,
+                  Object[] models, String[] errors, int from, int to)
+        {
+            this.lines = lines;
+            this.model = model;
+            this.columns = columns;
+            this.parser = parser;
+            this.models = models;
+            this.errors = errors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from > SPLIT_ROWS)
+            {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParseTask<>(lines,model,columns,parser,models,errors,from,middle),
+                        new ParseTask<>(lines,model,columns,parser,models,errors,middle,to));
+                return;
+            }
+
+            for(int i = from; i < to; i++)
+            {
+                try
+                {
+                    String[] fields = columns.split(lines.get(i));
+                    T row = parser.parse(fields);
+                    if(row.isValid())
+                        models[i] = row;
+                    else errors[i] = model + ": " + row.getValidationError();
+                }
+                catch(IllegalArgumentException e)
+                {
+                    errors[i] = model + ": " + e.getMessage();
+                }
+            }
+        }
+    }
+
+    private static class Columns
+    {
+        private final int min;
+        private final int max;
+
+        Columns(int min, int max)
+        {
+            this.min = min;
+            this.max = max;
+        }
+
+        // splits one line on commas, an unquoted empty field is null and a quoted one may contain commas and "" escapes
+        String[] split(String line)
+        {
+            List<String> fields = new ArrayList<>(max);
+            int length = line.length();
+            int i = 0;
+            while(true)
+            {
+                String field;
+                if(i < length && line.charAt(i)=='"')
+                {
+                    StringBuilder quoted = new StringBuilder();
+                    i++;
+                    while(i < length)
+                    {
+                        char c = line.charAt(i++);
+                        if(c!='"')
+                            quoted.append(c);
+                        else if(i < length && line.charAt(i)=='"')
+                        {
+                            quoted.append('"');
+                            i++;
+                        }
+                        else break;
+                    }
+                    field = quoted.toString();
+                    while(i < length && line.charAt(i)!=',')
+                        i++;
+                }
+                else
+                {
+                    int end = line.indexOf(',',i);
+                    if(end < 0)
+                        end = length;
+                    String text = line.substring(i,end).trim();
+                    field = text.isEmpty() ? null : text;
+                    i = end;
+                }
+                fields.add(field);
+
+                if(i >= length)
+                    break;
+                i++;
+            }
+
+            // trailing empty columns are tolerated, e.g. "a@a.pl,,"
+            while(fields.size() > max && fields.get(fields.size() - 1)==null)
+                fields.remove(fields.size() - 1);
+            if(fields.size() < min || fields.size() > max)
+                throw new IllegalArgumentException("expected " + (min==max ? "" + min : min + " to " + max) + " columns but found " + fields.size());
+
+            return fields.toArray(new String[0]);
+        }
+    }
+
+    private static Long parseId(String field)
+    {
+        return field==null ? null : Long.valueOf(field);
+    }
+
+    private static LocalTime parseTime(String field)
+    {
+        return field==null ? null : LocalTime.parse(field);
+    }
+
+    private static LocalDate parseDate(String field)
+    {
+        return field==null ? null : LocalDate.parse(field);
+    }
+}
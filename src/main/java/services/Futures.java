@@ -0,0 +1,45 @@
+package services;
+
+import errors.EntryNotFoundException;
+import errors.ValidationException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// the async service methods fail their futures with the exceptions the blocking ones throw, checked ones get
+// through the stages wrapped in a CompletionException
+final class Futures
+{
+    interface Check<T>
+    {
+        T get() throws ValidationException, EntryNotFoundException;
+    }
+
+    private Futures()
+    {
+    }
+
+    static <T> T checked(Check<T> check)
+    {
+        try
+        {
+            return check.get();
+        }
+        catch(ValidationException | EntryNotFoundException e)
+        {
+            throw new CompletionException(e);
+        }
+    }
+
+    static <T> CompletableFuture<T> failed(Throwable e)
+    {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    static Throwable causeOf(Throwable e)
+    {
+        return e instanceof CompletionException && e.getCause()!=null ? e.getCause() : e;
+    }
+}
@@ -0,0 +1,82 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ImportReport
+{
+    public static class Rejection
+    {
+        private final String model;
+        private final long line;
+        private final String error;
+
+        public Rejection(String model, long line, String error)
+        {
+            this.model = model;
+            this.line = line;
+            this.error = error;
+        }
+
+        public String getModel()
+        {
+            return model;
+        }
+
+        public long getLine()
+        {
+            return line;
+        }
+
+        public String getError()
+        {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + line + ": " + error;
+        }
+    }
+
+    private final Map<String, Long> imported = new LinkedHashMap<>();
+    private final List<Rejection> rejections = new ArrayList<>();
+
+    void imported(String model)
+    {
+        imported(model,1);
+    }
+
+    void imported(String model, long count)
+    {
+        imported.merge(model,count,Long::sum);
+    }
+
+    void rejected(String model, long line, String error)
+    {
+        rejections.add(new Rejection(model,line,error));
+    }
+
+    public long getImported(String model)
+    {
+        return imported.getOrDefault(model,0L);
+    }
+
+    public long getImportedTotal()
+    {
+        long total = 0;
+        for(long count : imported.values())
+            total += count;
+        return total;
+    }
+
+    public List<Rejection> getRejections()
+    {
+        rejections.sort(Comparator.comparingLong(Rejection::getLine));
+        return Collections.unmodifiableList(rejections);
+    }
+}
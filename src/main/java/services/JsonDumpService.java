@@ -0,0 +1,180 @@
+package services;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.joda.JodaModule;
+import data.EntityType;
+import data.Repository;
+import errors.EntryNotFoundException;
+import errors.ValidationException;
+import models.*;
+import validation.Validatable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterators;
+
+// dumps every entity as {"Restaurant":[...],"Table":[...],"User":[...],"Reservation":[...]}, one record at a time
+public class JsonDumpService
+{
+    // referenced types come first, so an import can remap references to the ids it assigned
+    private static final List<EntityType<?>> ORDER =
+            Arrays.asList(EntityType.RESTAURANT,EntityType.TABLE,EntityType.USER,EntityType.RESERVATION);
+
+    @JsonIgnoreProperties({"valid","validationError"})
+    private interface IgnoreValidation
+    {
+    }
+
+    private final Repository database;
+    private final ObjectMapper mapper;
+
+    public JsonDumpService(Repository db)
+    {
+        database = db;
+        mapper = new ObjectMapper()
+                .registerModule(new JodaModule())
+                .addMixIn(Validatable.class,IgnoreValidation.class)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        mapper.getFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        mapper.getFactory().disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+    }
+
+    public void exportTo(OutputStream out) throws IOException
+    {
+        try(JsonGenerator generator = mapper.getFactory().createGenerator(out,JsonEncoding.UTF8))
+        {
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartObject();
+            for(EntityType<?> type : ORDER)
+            {
+                generator.writeArrayFieldStart(type.getName());
+                Iterator<?> models = Spliterators.iterator(database.spliterator(type.getModelClass()));
+                while(models.hasNext())
+                    mapper.writeValue(generator,models.next());
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    // every record is added through its service, rejected ones are reported with the line they start on
+    public ImportReport importFrom(InputStream in) throws IOException
+    {
+        ImportReport report = new ImportReport();
+        Importer importer = new Importer();
+
+        try(JsonParser parser = mapper.getFactory().createParser(in))
+        {
+            expect(parser,parser.nextToken(),JsonToken.START_OBJECT);
+            while(parser.nextToken()==JsonToken.FIELD_NAME)
+            {
+                String model = parser.getCurrentName();
+                expect(parser,parser.nextToken(),JsonToken.START_ARRAY);
+
+                while(parser.nextToken()==JsonToken.START_OBJECT)
+                {
+                    long line = parser.getTokenLocation().getLineNr();
+                    JsonNode record = parser.readValueAsTree();
+                    try
+                    {
+                        importer.add(model,record);
+                        report.imported(model);
+                    }
+                    catch(ValidationException | EntryNotFoundException e)
+                    {
+                        report.rejected(model,line,e.getMessage());
+                    }
+                    catch(JsonMappingException e)
+                    {
+                        report.rejected(model,line,model + ": " + e.getOriginalMessage());
+                    }
+                }
+                expect(parser,parser.getCurrentToken(),JsonToken.END_ARRAY);
+            }
+            expect(parser,parser.getCurrentToken(),JsonToken.END_OBJECT);
+        }
+        return report;
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws JsonParseException
+    {
+        if(actual!=expected)
+            throw new JsonParseException(parser,"Expected " + expected + " but found " + actual);
+    }
+
+    // maps ids from the dump to the ids given by this repository, reservations are never referenced so they are not kept
+    private class Importer
+    {
+        private final Map<Long, Long> restaurantIds = new HashMap<>();
+        private final Map<Long, Long> tableIds = new HashMap<>();
+        private final Map<Long, Long> userIds = new HashMap<>();
+
+        void add(String model, JsonNode record) throws IOException, ValidationException, EntryNotFoundException
+        {
+            switch(model)
+            {
+                case "Restaurant":
+                    Restaurant restaurant = mapper.treeToValue(record,Restaurant.class);
+                    Long restaurantId = restaurant.getId();
+                    restaurant.setId(null);
+                    remember(restaurantIds,restaurantId,new RestaurantService(database).add(restaurant));
+                    break;
+                case "Table":
+                    Table table = mapper.treeToValue(record,Table.class);
+                    Long tableId = table.getId();
+                    table.setId(null);
+                    table.setRestaurantId(resolve(restaurantIds,"Restaurant",table.getRestaurantId()));
+                    remember(tableIds,tableId,new TableService(database).add(table));
+                    break;
+                case "User":
+                    User user = mapper.treeToValue(record,User.class);
+                    Long userId = user.getId();
+                    user.setId(null);
+                    remember(userIds,userId,new UserService(database).add(user));
+                    break;
+                case "Reservation":
+                    Reservation reservation = mapper.treeToValue(record,Reservation.class);
+                    reservation.setId(null);
+                    reservation.setUserId(resolve(userIds,"User",reservation.getUserId()));
+                    reservation.setTableId(resolve(tableIds,"Table",reservation.getTableId()));
+                    new ReservationService(database).add(reservation);
+                    break;
+                default:
+                    throw new JsonMappingException(null,"Unknown entity type " + model);
+            }
+        }
+
+        private void remember(Map<Long, Long> ids, Long dumpId, Long id)
+        {
+            if(dumpId!=null)
+                ids.put(dumpId,id);
+        }
+
+        private Long resolve(Map<Long, Long> ids, String model, Long dumpId) throws EntryNotFoundException
+        {
+            if(dumpId==null)
+                return null;
+
+            Long id = ids.get(dumpId);
+            if(id==null)
+                throw new EntryNotFoundException(model,dumpId);
+            return id;
+        }
+    }
+}
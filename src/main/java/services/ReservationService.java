@@ -1,25 +1,189 @@
 package services;
 
+import data.AsyncRepository;
+import data.BatchResult;
 import data.Repository;
+import data.Transaction;
 import models.*;
 import errors.EntryNotFoundException;
 import errors.ValidationException;
+import errors.VersionConflictException;
 import validation.Validators;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
 public class ReservationService
 {
+    private static final int MAX_ATTEMPTS = 8;
+
+    private interface Check
+    {
+        void check(Reservation reservation, Repository reader) throws ValidationException, EntryNotFoundException;
+    }
+
     private Repository database;
+    // null for the default pool of AsyncRepository.of()
+    private Executor executor;
+    // made by the first async call, most services never make one
+    private AsyncRepository async;
 
     public ReservationService(Repository db)
     {
         database = db;
     }
 
+    // the async methods run their repository calls on the executor
+    public ReservationService(Repository db, Executor executor)
+    {
+        database = db;
+        this.executor = executor;
+    }
+
     public Long add(Reservation reservation) throws ValidationException, EntryNotFoundException
     {
-        UserService userService = new UserService(database);
-        TableService tableService = new TableService(database);
-        RestaurantService restaurantService = new RestaurantService(database);
+        commit(reservation,this::checkAdd,false);
+
+        return reservation.getId();
+    }
+
+    public void delete(Reservation reservation) throws EntryNotFoundException
+    {
+        Reservation r = database.get(reservation.getId(),Reservation.class);
+        if(r==null)
+            throw new EntryNotFoundException("Reservation",reservation.getId());
+
+        database.delete(reservation);
+    }
+
+    public void update(Reservation reservation) throws ValidationException,EntryNotFoundException
+    {
+        commit(reservation,this::checkUpdate,true);
+    }
+
+    // on a store repository the user, table and restaurant checked can't change before the write lands, if one did
+    // the checks run again; other repositories only check them again right before the write, see Transaction.of
+    private void commit(Reservation reservation, Check check, boolean update) throws ValidationException, EntryNotFoundException
+    {
+        for(int attempt = 1; ; attempt++)
+        {
+            Transaction transaction = Transaction.of(database);
+            check.check(reservation,transaction);
+            if(update)
+                transaction.update(reservation);
+            else
+                transaction.add(reservation);
+
+            try
+            {
+                transaction.commit();
+                return;
+            }
+            catch(VersionConflictException e)
+            {
+                if(attempt==MAX_ATTEMPTS)
+                    throw e;
+            }
+        }
+    }
+
+    public CompletableFuture<Long> addAsync(Reservation reservation)
+    {
+        if(!reservation.isValid())
+            return Futures.failed(new ValidationException("Reservation",reservation.getValidationError()));
+
+        return commitAsync(reservation,false,1).thenApply(ignored -> reservation.getId());
+    }
+
+    public CompletableFuture<Void> updateAsync(Reservation reservation)
+    {
+        if(reservation.getId()==null)
+            return Futures.failed(new EntryNotFoundException("Reservation",null));
+        if(!reservation.isValid())
+            return Futures.failed(new ValidationException("Reservation",reservation.getValidationError()));
+
+        return commitAsync(reservation,true,1);
+    }
+
+    // the checks of add() and update() on a valid reservation, but the stored reservation, the user and the table
+    // with its restaurant are read at the same time; the transaction then only checks that none of them changed
+    // before the write
+    private CompletableFuture<Void> commitAsync(Reservation reservation, boolean update, int attempt)
+    {
+        CompletableFuture<Reservation> stored = update ? async().get(reservation.getId(),Reservation.class) : CompletableFuture.completedFuture(null);
+        CompletableFuture<User> user = async().get(reservation.getUserId(),User.class);
+        CompletableFuture<Table> table = async().get(reservation.getTableId(),Table.class);
+        CompletableFuture<Restaurant> restaurant = table.thenCompose(t ->
+                t==null ? CompletableFuture.completedFuture(null) : async().get(t.getRestaurantId(),Restaurant.class));
+
+        return CompletableFuture.allOf(stored,user,restaurant)
+                .thenCompose(ignored -> async().commit(Futures.checked(() ->
+                        checkedTransaction(reservation,update,stored.join(),user.join(),table.join(),restaurant.join()))))
+                .handle((ignored, e) -> {
+                    if(e==null)
+                        return CompletableFuture.<Void>completedFuture(null);
+                    if(Futures.causeOf(e) instanceof VersionConflictException && attempt < MAX_ATTEMPTS)
+                        return commitAsync(reservation,update,attempt + 1);
+                    return Futures.<Void>failed(Futures.causeOf(e));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private Transaction checkedTransaction(Reservation reservation, boolean update, Reservation stored, User user, Table table, Restaurant restaurant) throws ValidationException, EntryNotFoundException
+    {
+        if(update && stored==null)
+            throw new EntryNotFoundException("Reservation",reservation.getId());
+
+        if(null==user)
+            throw new EntryNotFoundException("User",reservation.getUserId());
+
+        if(null==table)
+            throw new EntryNotFoundException("Table",reservation.getTableId());
+
+        if(!Validators.isValidReservationTime(reservation,restaurant))
+            throw new ValidationException("Reservation","reservation time should be in restaurant working hours");
+
+        if(!reservation.isValid())
+            throw new ValidationException("Reservation",reservation.getValidationError());
+
+        Transaction transaction = Transaction.of(database);
+        if(update)
+            transaction.expect(reservation.getId(),Reservation.class,stored);
+        transaction.expect(user.getId(),User.class,user);
+        transaction.expect(table.getId(),Table.class,table);
+        transaction.expect(table.getRestaurantId(),Restaurant.class,restaurant);
+        if(update)
+            transaction.update(reservation);
+        else
+            transaction.add(reservation);
+        return transaction;
+    }
+
+    public BatchResult<Reservation> addAll(List<Reservation> reservations)
+    {
+        Batch<Reservation> batch = Batch.check(reservations,r -> checkAdd(r,database));
+        return batch.complete(database.addAll(Reservation.class,batch.getAccepted()));
+    }
+
+    public BatchResult<Reservation> updateAll(List<Reservation> reservations)
+    {
+        Batch<Reservation> batch = Batch.check(reservations,r -> checkUpdate(r,database));
+        return batch.complete(database.updateAll(Reservation.class,batch.getAccepted()));
+    }
+
+    public BatchResult<Reservation> deleteAll(List<Reservation> reservations)
+    {
+        Batch<Reservation> batch = Batch.check(reservations,r -> checkExists(r,database));
+        return batch.complete(database.deleteAll(Reservation.class,batch.getAccepted()));
+    }
+
+    private void checkAdd(Reservation reservation, Repository reader) throws ValidationException, EntryNotFoundException
+    {
+        UserService userService = new UserService(reader);
+        TableService tableService = new TableService(reader);
+        RestaurantService restaurantService = new RestaurantService(reader);
 
         if(!reservation.isValid())
             throw new ValidationException("Reservation",reservation.getValidationError());
@@ -36,30 +200,15 @@ public class ReservationService
             if(!Validators.isValidReservationTime(reservation,restaurant))
                 throw new ValidationException("Reservation","reservation time should be in restaurant working hours");
         }
-
-        database.add(reservation);
-
-        return reservation.getId();
     }
 
-    public void delete(Reservation reservation) throws EntryNotFoundException
+    private void checkUpdate(Reservation reservation, Repository reader) throws ValidationException,EntryNotFoundException
     {
-        Reservation r = database.get(reservation.getId(),Reservation.class);
-        if(r==null)
-            throw new EntryNotFoundException("Reservation",reservation.getId());
+        UserService userService = new UserService(reader);
+        TableService tableService = new TableService(reader);
+        RestaurantService restaurantService = new RestaurantService(reader);
 
-        database.delete(reservation);
-    }
-
-    public void update(Reservation reservation) throws ValidationException,EntryNotFoundException
-    {
-        UserService userService = new UserService(database);
-        TableService tableService = new TableService(database);
-        RestaurantService restaurantService = new RestaurantService(database);
-
-        Reservation r = database.get(reservation.getId(),Reservation.class);
-        if(r==null)
-            throw new EntryNotFoundException("Reservation",reservation.getId());
+        checkExists(reservation,reader);
 
         if(null== userService.get(reservation.getUserId()))
             throw new EntryNotFoundException("User",reservation.getUserId());
@@ -76,8 +225,13 @@ public class ReservationService
 
         if(!reservation.isValid())
             throw new ValidationException("Reservation",reservation.getValidationError());
+    }
 
-        database.update(reservation);
+    private void checkExists(Reservation reservation, Repository reader) throws EntryNotFoundException
+    {
+        Reservation r = reader.get(reservation.getId(),Reservation.class);
+        if(r==null)
+            throw new EntryNotFoundException("Reservation",reservation.getId());
     }
 
     public Reservation get(Long id)
@@ -85,6 +239,36 @@ public class ReservationService
         return database.get(id,Reservation.class);
     }
 
+    public CompletableFuture<Reservation> getAsync(Long id)
+    {
+        if(id==null)
+            return CompletableFuture.completedFuture(null);
+
+        return async().get(id,Reservation.class);
+    }
+
+    public CompletableFuture<Table> getTableAsync(Reservation reservation)
+    {
+        return storedAsync(reservation).thenCompose(r -> async().get(r.getTableId(),Table.class));
+    }
+
+    public CompletableFuture<User> getUserAsync(Reservation reservation)
+    {
+        return storedAsync(reservation).thenCompose(r -> async().get(r.getUserId(),User.class));
+    }
+
+    private CompletableFuture<Reservation> storedAsync(Reservation reservation)
+    {
+        if(reservation.getId()==null)
+            return Futures.failed(new EntryNotFoundException("Reservation",null));
+
+        return async().get(reservation.getId(),Reservation.class).thenApply(r -> Futures.checked(() -> {
+            if(r==null)
+                throw new EntryNotFoundException("Reservation",reservation.getId());
+            return r;
+        }));
+    }
+
     public Table getTable(Reservation reservation) throws EntryNotFoundException
     {
         TableService tableService = new TableService(database);
@@ -107,4 +291,10 @@ public class ReservationService
         return userService.get(r.getUserId());
     }
 
+    private AsyncRepository async()
+    {
+        if(async==null)
+            async = executor==null ? AsyncRepository.of(database) : AsyncRepository.of(database,executor);
+        return async;
+    }
 }
\ No newline at end of file
@@ -1,6 +1,12 @@
 package services;
 
+import data.AsyncRepository;
+import data.BatchResult;
+import data.EntityType;
+import data.HashJoin;
+import data.Query;
 import data.Repository;
+import data.Snapshot;
 import models.Reservation;
 import models.Restaurant;
 import errors.EntryNotFoundException;
@@ -10,20 +16,33 @@ import models.User;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public class RestaurantService
 {
     private Repository database;
+    // null for the default pool of AsyncRepository.of()
+    private Executor executor;
+    // made by the first async call, most services never make one
+    private AsyncRepository async;
 
     public RestaurantService(Repository db)
     {
         database = db;
     }
 
+    // the async methods run their repository calls on the executor
+    public RestaurantService(Repository db, Executor executor)
+    {
+        database = db;
+        this.executor = executor;
+    }
+
     public Long add(Restaurant restaurant) throws ValidationException
     {
-        if(!restaurant.isValid())
-            throw new ValidationException("Restaurant",restaurant.getValidationError());
+        checkAdd(restaurant);
 
         database.add(restaurant);
 
@@ -41,16 +60,29 @@ public class RestaurantService
 
     public void update(Restaurant restaurant) throws ValidationException,EntryNotFoundException
     {
-        Restaurant r = database.get(restaurant.getId(),Restaurant.class);
-        if(r==null)
-            throw new EntryNotFoundException("Restaurant",restaurant.getId());
-
-        if(!restaurant.isValid())
-            throw new ValidationException("Restaurant",restaurant.getValidationError());
+        checkUpdate(restaurant);
 
         database.update(restaurant);
     }
 
+    public BatchResult<Restaurant> addAll(List<Restaurant> restaurants)
+    {
+        Batch<Restaurant> batch = Batch.check(restaurants,this::checkAdd);
+        return batch.complete(database.addAll(Restaurant.class,batch.getAccepted()));
+    }
+
+    public BatchResult<Restaurant> updateAll(List<Restaurant> restaurants)
+    {
+        Batch<Restaurant> batch = Batch.check(restaurants,this::checkUpdate);
+        return batch.complete(database.updateAll(Restaurant.class,batch.getAccepted()));
+    }
+
+    public BatchResult<Restaurant> deleteAll(List<Restaurant> restaurants)
+    {
+        Batch<Restaurant> batch = Batch.check(restaurants,this::checkExists);
+        return batch.complete(database.deleteAll(Restaurant.class,batch.getAccepted()));
+    }
+
     public Restaurant get(Long id)
     {
         return database.get(id,Restaurant.class);
@@ -58,61 +90,139 @@ public class RestaurantService
 
     public List<Table> getTables(Restaurant restaurant) throws EntryNotFoundException
     {
-        TableService tableService = new TableService(database);
         Restaurant r = database.get(restaurant.getId(),Restaurant.class);
         if(r==null)
             throw new EntryNotFoundException("Restaurant",restaurant.getId());
 
-        List<Table> tables = database.getAll(Table.class);
+        return database.getRestaurantTables(r.getId());
+    }
 
-        List<Table> restaurantsTables = new ArrayList<>();
+    public CompletableFuture<Restaurant> getAsync(Long id)
+    {
+        if(id==null)
+            return CompletableFuture.completedFuture(null);
 
-        for(Table t : tables)
-        {
-            if(tableService.getRestaurant(t).equals(r))
-                restaurantsTables.add(t);
-        }
+        return async().get(id,Restaurant.class);
+    }
 
-        return restaurantsTables;
+    // the restaurant and its tables are read at the same time
+    public CompletableFuture<List<Table>> getTablesAsync(Restaurant restaurant)
+    {
+        if(restaurant.getId()==null)
+            return Futures.failed(new EntryNotFoundException("Restaurant",null));
+
+        CompletableFuture<Restaurant> stored = async().get(restaurant.getId(),Restaurant.class);
+        return stored.thenCombine(async().getRestaurantTables(restaurant.getId()),(r, tables) -> Futures.checked(() -> {
+            if(r==null)
+                throw new EntryNotFoundException("Restaurant",restaurant.getId());
+            return tables;
+        }));
     }
 
     public List<Reservation> getReservations(Restaurant restaurant) throws EntryNotFoundException
     {
-        ReservationService reservationService = new ReservationService(database);
         Restaurant r = database.get(restaurant.getId(),Restaurant.class);
         if(r==null)
             throw new EntryNotFoundException("Restaurant",restaurant.getId());
 
-        List<Reservation> reservations = database.getAll(Reservation.class);
-        List<Table> tables = getTables(r);
+        return joinReservations(database,r);
+    }
 
-        List<Reservation> restaurantsReservations = new ArrayList<>();
+    public List<Restaurant> getPage(long afterId, int limit)
+    {
+        return database.getPage(Restaurant.class,afterId,limit);
+    }
 
-        for(Reservation res : reservations)
-        {
-            if(tables.contains(reservationService.getTable(res)))
-                restaurantsReservations.add(res);
-        }
+    public List<Table> getTables(Restaurant restaurant, long afterId, int limit) throws EntryNotFoundException
+    {
+        Restaurant r = database.get(restaurant.getId(),Restaurant.class);
+        if(r==null)
+            throw new EntryNotFoundException("Restaurant",restaurant.getId());
 
-        return restaurantsReservations;
+        return database.getRestaurantTables(r.getId(),afterId,limit);
     }
 
-    public List<User> getUsers(Restaurant restaurant) throws EntryNotFoundException
+    // reservations of every table merged in id order, the last id of a page is the cursor for the next one
+    public List<Reservation> getReservations(Restaurant restaurant, long afterId, int limit) throws EntryNotFoundException
     {
-        ReservationService reservationService = new ReservationService(database);
         Restaurant r = database.get(restaurant.getId(),Restaurant.class);
         if(r==null)
             throw new EntryNotFoundException("Restaurant",restaurant.getId());
 
-        List<Reservation> reservations = getReservations(restaurant);
+        Set<Long> tableIds = HashJoin.keys(database.getRestaurantTables(r.getId()),Table::getId);
+        if(tableIds.isEmpty())
+            return new ArrayList<>();
 
-        List<User> users = new ArrayList<>();
+        return database.getTableReservations(tableIds,afterId,limit);
+    }
 
-        for(Reservation reservation : reservations)
+    // one user per reservation; read live first, a user deleted between the reads would leave a null row,
+    // only then is it read again from one snapshot so writers are not slowed down by every call
+    public List<User> getUsers(Restaurant restaurant) throws EntryNotFoundException
+    {
+        List<User> users = joinUsers(database,restaurant);
+        if(!users.contains(null))
+            return users;
+
+        try(Snapshot snapshot = Snapshot.of(database))
         {
-            users.add(reservationService.getUser(reservation));
+            return joinUsers(snapshot,restaurant);
         }
+    }
+
+    // users deleted meanwhile are skipped anyway, so this one is read live
+    public List<User> getDistinctUsers(Restaurant restaurant) throws EntryNotFoundException
+    {
+        Restaurant r = database.get(restaurant.getId(),Restaurant.class);
+        if(r==null)
+            throw new EntryNotFoundException("Restaurant",restaurant.getId());
+
+        return HashJoin.joinDistinct(joinReservations(database,r),Reservation::getUserId,id -> database.get(id,User.class));
+    }
+
+    private void checkAdd(Restaurant restaurant) throws ValidationException
+    {
+        if(!restaurant.isValid())
+            throw new ValidationException("Restaurant",restaurant.getValidationError());
+    }
+
+    private void checkUpdate(Restaurant restaurant) throws ValidationException,EntryNotFoundException
+    {
+        checkExists(restaurant);
+
+        if(!restaurant.isValid())
+            throw new ValidationException("Restaurant",restaurant.getValidationError());
+    }
+
+    private void checkExists(Restaurant restaurant) throws EntryNotFoundException
+    {
+        Restaurant r = database.get(restaurant.getId(),Restaurant.class);
+        if(r==null)
+            throw new EntryNotFoundException("Restaurant",restaurant.getId());
+    }
 
-        return users;
+    private static List<User> joinUsers(Repository repository, Restaurant restaurant) throws EntryNotFoundException
+    {
+        Restaurant r = repository.get(restaurant.getId(),Restaurant.class);
+        if(r==null)
+            throw new EntryNotFoundException("Restaurant",restaurant.getId());
+
+        return HashJoin.join(joinReservations(repository,r),Reservation::getUserId,id -> repository.get(id,User.class));
+    }
+
+    private static List<Reservation> joinReservations(Repository repository, Restaurant restaurant)
+    {
+        Set<Long> tableIds = HashJoin.keys(repository.getRestaurantTables(restaurant.getId()),Table::getId);
+        if(tableIds.isEmpty())
+            return new ArrayList<>();
+
+        return repository.find(Reservation.class,new Query().in(EntityType.TABLE_ID,tableIds));
+    }
+
+    private AsyncRepository async()
+    {
+        if(async==null)
+            async = executor==null ? AsyncRepository.of(database) : AsyncRepository.of(database,executor);
+        return async;
     }
 }
\ No newline at end of file
@@ -1,28 +1,40 @@
 package services;
 
+import data.AsyncRepository;
+import data.BatchResult;
 import data.Repository;
 import models.Restaurant;
 import models.Table;
 import errors.EntryNotFoundException;
 import errors.ValidationException;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 public class TableService
 {
     private Repository database;
+    // null for the default pool of AsyncRepository.of()
+    private Executor executor;
+    // made by the first async call, most services never make one
+    private AsyncRepository async;
 
     public TableService(Repository db)
     {
         database = db;
     }
 
-    public Long add(Table table) throws ValidationException,EntryNotFoundException
+    // the async methods run their repository calls on the executor
+    public TableService(Repository db, Executor executor)
     {
-        RestaurantService restaurantService = new RestaurantService(database);
-        if(!table.isValid())
-            throw new ValidationException("Table",table.getValidationError());
+        database = db;
+        this.executor = executor;
+    }
 
-        if(null==restaurantService.get(table.getRestaurantId()))
-            throw new EntryNotFoundException("Restaurant",table.getRestaurantId());
+    public Long add(Table table) throws ValidationException,EntryNotFoundException
+    {
+        checkAdd(table);
 
         database.add(table);
 
@@ -39,33 +51,102 @@ public class TableService
     }
 
     public void update(Table table) throws ValidationException,EntryNotFoundException
+    {
+        checkUpdate(table);
+
+        database.update(table);
+    }
+
+    public BatchResult<Table> addAll(List<Table> tables)
+    {
+        Batch<Table> batch = Batch.check(tables,this::checkAdd);
+        return batch.complete(database.addAll(Table.class,batch.getAccepted()));
+    }
+
+    public BatchResult<Table> updateAll(List<Table> tables)
+    {
+        Batch<Table> batch = Batch.check(tables,this::checkUpdate);
+        return batch.complete(database.updateAll(Table.class,batch.getAccepted()));
+    }
+
+    public BatchResult<Table> deleteAll(List<Table> tables)
+    {
+        Batch<Table> batch = Batch.check(tables,this::checkExists);
+        return batch.complete(database.deleteAll(Table.class,batch.getAccepted()));
+    }
+
+    public Table get(Long id)
+    {
+        return database.get(id,Table.class);
+    }
+
+    public Restaurant getRestaurant(Table table) throws EntryNotFoundException
     {
         RestaurantService restaurantService = new RestaurantService(database);
         Table t = database.get(table.getId(),Table.class);
         if(t==null)
             throw new EntryNotFoundException("Table",table.getId());
 
-        if(null==restaurantService.get(table.getRestaurantId()))
-            throw new EntryNotFoundException("Restaurant",table.getRestaurantId());
+        return restaurantService.get(table.getRestaurantId());
+    }
+
+    public CompletableFuture<Table> getAsync(Long id)
+    {
+        if(id==null)
+            return CompletableFuture.completedFuture(null);
+
+        return async().get(id,Table.class);
+    }
 
+    // the table and its restaurant are read at the same time
+    public CompletableFuture<Restaurant> getRestaurantAsync(Table table)
+    {
+        if(table.getId()==null)
+            return Futures.failed(new EntryNotFoundException("Table",null));
+
+        CompletableFuture<Table> stored = async().get(table.getId(),Table.class);
+        CompletableFuture<Restaurant> restaurant = table.getRestaurantId()==null
+                ? CompletableFuture.completedFuture(null) : async().get(table.getRestaurantId(),Restaurant.class);
+        return stored.thenCombine(restaurant,(t, r) -> Futures.checked(() -> {
+            if(t==null)
+                throw new EntryNotFoundException("Table",table.getId());
+            return r;
+        }));
+    }
+
+    private void checkAdd(Table table) throws ValidationException,EntryNotFoundException
+    {
+        RestaurantService restaurantService = new RestaurantService(database);
         if(!table.isValid())
             throw new ValidationException("Table",table.getValidationError());
 
-        database.update(table);
+        if(null==restaurantService.get(table.getRestaurantId()))
+            throw new EntryNotFoundException("Restaurant",table.getRestaurantId());
     }
 
-    public Table get(Long id)
+    private void checkUpdate(Table table) throws ValidationException,EntryNotFoundException
     {
-        return database.get(id,Table.class);
+        RestaurantService restaurantService = new RestaurantService(database);
+        checkExists(table);
+
+        if(null==restaurantService.get(table.getRestaurantId()))
+            throw new EntryNotFoundException("Restaurant",table.getRestaurantId());
+
+        if(!table.isValid())
+            throw new ValidationException("Table",table.getValidationError());
     }
 
-    public Restaurant getRestaurant(Table table) throws EntryNotFoundException
+    private void checkExists(Table table) throws EntryNotFoundException
     {
-        RestaurantService restaurantService = new RestaurantService(database);
         Table t = database.get(table.getId(),Table.class);
         if(t==null)
             throw new EntryNotFoundException("Table",table.getId());
+    }
 
-        return restaurantService.get(table.getRestaurantId());
+    private AsyncRepository async()
+    {
+        if(async==null)
+            async = executor==null ? AsyncRepository.of(database) : AsyncRepository.of(database,executor);
+        return async;
     }
 }
\ No newline at end of file
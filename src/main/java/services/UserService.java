@@ -1,27 +1,54 @@
 package services;
 
+import data.AsyncRepository;
 import data.Repository;
+import data.BatchResult;
 import models.*;
 import errors.*;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public class UserService
 {
+    private static final int MAX_ATTEMPTS = 8;
+
+    private interface Change
+    {
+        void apply(User user) throws ValidationException;
+    }
+
     private Repository database;
+    // null for the default pool of AsyncRepository.of()
+    private Executor executor;
+    // made by the first async call, most services never make one
+    private AsyncRepository async;
 
     public UserService(Repository db)
+    {
+        database = db;
+    }
+
+    // the async methods run their repository calls on the executor
+    public UserService(Repository db, Executor executor)
     {
         database=db;
+        this.executor = executor;
     }
 
     public Long add(User user) throws ValidationException
     {
-        if(!user.isValid())
-            throw new ValidationException("User",user.getValidationError());
+        checkAdd(user);
 
-        database.add(user);
+        try
+        {
+            database.add(user);
+        }
+        catch(DuplicateEntryException e)
+        {
+            throw new ValidationException("User","email is already taken");
+        }
 
         return user.getId();
     }
@@ -37,14 +64,34 @@ public class UserService
 
     public void update(User user) throws ValidationException,EntryNotFoundException
     {
-        User u = database.get(user.getId(),User.class);
-        if(u==null)
-            throw new EntryNotFoundException("User",user.getId());
+        checkUpdate(user);
 
-        if(!user.isValid())
-            throw new ValidationException("User",user.getValidationError());
+        try
+        {
+            database.update(user);
+        }
+        catch(DuplicateEntryException e)
+        {
+            throw new ValidationException("User","email is already taken");
+        }
+    }
+
+    public BatchResult<User> addAll(List<User> users)
+    {
+        Batch<User> batch = Batch.check(users,this::checkAdd);
+        return batch.complete(database.addAll(User.class,batch.getAccepted()),UserService::emailTaken);
+    }
 
-        database.update(user);
+    public BatchResult<User> updateAll(List<User> users)
+    {
+        Batch<User> batch = Batch.check(users,this::checkUpdate);
+        return batch.complete(database.updateAll(User.class,batch.getAccepted()),UserService::emailTaken);
+    }
+
+    public BatchResult<User> deleteAll(List<User> users)
+    {
+        Batch<User> batch = Batch.check(users,this::checkExists);
+        return batch.complete(database.deleteAll(User.class,batch.getAccepted()));
     }
 
     public User get(Long id)
@@ -58,16 +105,44 @@ public class UserService
         if(u==null)
             throw new EntryNotFoundException("User",user.getId());
 
-        List<Reservation> reservations = database.getAll(Reservation.class);
+        return database.getUserReservations(u.getId());
+    }
+
+    public CompletableFuture<User> getAsync(Long id)
+    {
+        if(id==null)
+            return CompletableFuture.completedFuture(null);
 
-        List<Reservation> usersReservations = new ArrayList<>();
-        for(Reservation reservation : reservations)
-        {
-            if(reservation.getUserId().equals(u.getId()))
-                usersReservations.add(reservation);
-        }
+        return async().get(id,User.class);
+    }
+
+    // the user and the reservations are read at the same time
+    public CompletableFuture<List<Reservation>> getReservationsAsync(User user)
+    {
+        if(user.getId()==null)
+            return Futures.failed(new EntryNotFoundException("User",null));
+
+        CompletableFuture<User> stored = async().get(user.getId(),User.class);
+        return stored.thenCombine(async().getUserReservations(user.getId()),(u, reservations) -> Futures.checked(() -> {
+            if(u==null)
+                throw new EntryNotFoundException("User",user.getId());
+            return reservations;
+        }));
+    }
+
+    // users with ids above afterId, the last id of a page is the cursor for the next one
+    public List<User> getPage(long afterId, int limit)
+    {
+        return database.getPage(User.class,afterId,limit);
+    }
+
+    public List<Reservation> getReservations(User user, long afterId, int limit) throws EntryNotFoundException
+    {
+        User u = database.get(user.getId(),User.class);
+        if(u==null)
+            throw new EntryNotFoundException("User",user.getId());
 
-        return usersReservations;
+        return database.getUserReservations(u.getId(),afterId,limit);
     }
 
     public User register(String email,String password) throws ValidationException
@@ -81,54 +156,96 @@ public class UserService
 
     public void changePassword(User user, String oldPassword, String newPassword) throws ValidationException,EntryNotFoundException
     {
-        User u = get(user.getId());
-
-        if(u==null)
-            throw new EntryNotFoundException("User",user.getId());
-
-        if(oldPassword.equals(u.getPassword()))
-        {
+        modify(user.getId(),u -> {
+            if(!oldPassword.equals(u.getPassword()))
+                throw new ValidationException("User","passwords does not match");
             u.setPassword(newPassword);
-            update(u);
-        }
-        else
-        {
-            throw new ValidationException("User","passwords does not match");
-        }
+        });
     }
 
     public void activate(User user) throws EntryNotFoundException,ValidationException
     {
-        User u = get(user.getId());
-
-        if(u==null)
-            throw new EntryNotFoundException("User",user.getId());
-
-        u.setActive(true);
-        update(u);
+        modify(user.getId(),u -> u.setActive(true));
     }
 
 
     public User login(String email, String password)
     {
-        List<User> users = database.getAll(User.class);
+        User u = database.getUserByEmail(email);
 
-        for (User u : users)
-            if (u.getEmail().equals(email) && u.getPassword().equals(password))
-                return u;
+        if (u != null && u.getPassword().equals(password))
+            return u;
 
         return null;
     }
 
     public void changeType(User user, User.Type type) throws EntryNotFoundException,ValidationException
     {
-        User u = get(user.getId());
+        modify(user.getId(),u -> u.setUserType(type));
+    }
 
+    // the change is made on a copy of the stored user and written only if nobody wrote the user meanwhile,
+    // otherwise it is made again on a fresh copy
+    private void modify(Long id, Change change) throws ValidationException,EntryNotFoundException
+    {
+        for(int attempt = 1; ; attempt++)
+        {
+            User stored = get(id);
+            if(stored==null)
+                throw new EntryNotFoundException("User",id);
+
+            User u = new User(stored);
+            change.apply(u);
+            if(!u.isValid())
+                throw new ValidationException("User",u.getValidationError());
+
+            try
+            {
+                database.compareAndUpdate(u);
+                return;
+            }
+            catch(VersionConflictException e)
+            {
+                if(attempt==MAX_ATTEMPTS)
+                    throw e;
+            }
+            catch(DuplicateEntryException e)
+            {
+                throw new ValidationException("User","email is already taken");
+            }
+        }
+    }
+
+    private void checkAdd(User user) throws ValidationException
+    {
+        if(!user.isValid())
+            throw new ValidationException("User",user.getValidationError());
+    }
+
+    private void checkUpdate(User user) throws ValidationException,EntryNotFoundException
+    {
+        checkExists(user);
+
+        if(!user.isValid())
+            throw new ValidationException("User",user.getValidationError());
+    }
+
+    private void checkExists(User user) throws EntryNotFoundException
+    {
+        User u = database.get(user.getId(),User.class);
         if(u==null)
             throw new EntryNotFoundException("User",user.getId());
+    }
 
-        u.setUserType(type);
-        update(u);
+    private static Exception emailTaken(Exception e)
+    {
+        return new ValidationException("User","email is already taken");
     }
 
+    private AsyncRepository async()
+    {
+        if(async==null)
+            async = executor==null ? AsyncRepository.of(database) : AsyncRepository.of(database,executor);
+        return async;
+    }
 }
\ No newline at end of file
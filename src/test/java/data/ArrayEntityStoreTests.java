@@ -0,0 +1,222 @@
+package data;
+
+import models.Reservation;
+import models.Table;
+import models.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+public class ArrayEntityStoreTests {
+
+    private ArrayEntityStore<Table> store;
+
+    @BeforeEach
+    public void setUp()
+    {
+        store = new ArrayEntityStore<>(EntityType.TABLE);
+    }
+
+    @Test
+    public void crudAcrossChunks()
+    {
+        List<Table> tables = addTables(10000);
+
+        Table last = tables.get(tables.size() - 1);
+        last.setSeats(8);
+        store.update(last);
+        store.delete(tables.get(0));
+
+        assertAll(
+                () -> assertThat(last.getId()).isEqualTo(10000L),
+                () -> assertThat(store.get(5000L)).isEqualTo(tables.get(4999)),
+                () -> assertThat(store.get(10000L).getSeats()).isEqualTo(8),
+                () -> assertThat(store.get(1L)).isNull(),
+                () -> assertThat(store.get(0L)).isNull(),
+                () -> assertThat(store.get(20000L)).isNull(),
+                () -> assertThat(store.getAll()).hasSize(9999),
+                () -> assertThat(store.find(EntityType.RESTAURANT_ID,1L)).hasSize(9999)
+        );
+    }
+
+    @Test
+    public void deletedModelsCannotBeUpdated()
+    {
+        Table table = addTables(1).get(0);
+
+        store.delete(table);
+        store.update(table);
+        store.delete(table);
+
+        assertThat(store.get(table.getId())).isNull();
+        assertThat(store.getAll()).isEmpty();
+    }
+
+    @Test
+    public void compactionReleasesFullyDeletedChunks()
+    {
+        List<Table> tables = addTables(10000);
+        for(int i = 0; i < 5000; i++)
+            store.delete(tables.get(i));
+
+        assertThat(store.getAllocatedChunks()).isEqualTo(3);
+        assertThat(store.compact()).isEqualTo(1);
+
+        assertAll(
+                () -> assertThat(store.getAllocatedChunks()).isEqualTo(2),
+                () -> assertThat(store.get(1L)).isNull(),
+                () -> assertThat(store.get(5001L)).isEqualTo(tables.get(5000)),
+                () -> assertThat(store.getAll()).hasSize(5000)
+        );
+
+        Table added = addTables(1).get(0);
+
+        assertThat(store.get(added.getId())).isEqualTo(added);
+    }
+
+    @Test
+    public void streamSkipsDeletedRowsAndReleasedChunks()
+    {
+        List<Table> tables = addTables(20000);
+        for(int i = 0; i < 5000; i++)
+            store.delete(tables.get(i));
+        store.delete(tables.get(19999));
+        store.compact();
+
+        List<Long> ids = store.stream().map(Table::getId).collect(Collectors.toList());
+
+        assertAll(
+                () -> assertThat(ids).hasSize(14999),
+                () -> assertThat(ids.get(0)).isEqualTo(5001L),
+                () -> assertThat(ids).isSorted(),
+                () -> assertThat(store.stream().parallel().count()).isEqualTo(14999),
+                () -> assertThat(store.stream().filter(t -> t.getId() > 10000).findFirst()).contains(tables.get(10000))
+        );
+    }
+
+    @Test
+    public void pagesSkipReleasedChunks()
+    {
+        List<Table> tables = addTables(10000);
+        for(int i = 0; i < 5000; i++)
+            store.delete(tables.get(i));
+        store.compact();
+
+        assertAll(
+                () -> assertThat(store.getPage(0,2)).containsExactly(tables.get(5000),tables.get(5001)),
+                () -> assertThat(store.getPage(9998,5)).containsExactly(tables.get(9998),tables.get(9999)),
+                () -> assertThat(store.getPage(10000,5)).isEmpty(),
+                () -> assertThat(store.findPage(EntityType.RESTAURANT_ID,Arrays.asList(1L),6000,1)).containsExactly(tables.get(6000))
+        );
+    }
+
+    @Test
+    public void earlyTerminationStopsReading()
+    {
+        addTables(10000);
+        AtomicInteger read = new AtomicInteger();
+
+        boolean found = store.stream().peek(t -> read.incrementAndGet()).anyMatch(t -> t.getId() == 3L);
+        Spliterator<Table> spliterator = store.spliterator();
+        Spliterator<Table> prefix = spliterator.trySplit();
+
+        assertAll(
+                () -> assertThat(found).isTrue(),
+                () -> assertThat(read.get()).isEqualTo(3),
+                () -> assertThat(prefix).isNotNull(),
+                () -> assertThat(prefix.estimateSize() + spliterator.estimateSize()).isEqualTo(10000)
+        );
+    }
+
+    @Test
+    public void arrayRepositoryServesAllModels()
+    {
+        ArrayRepository repository = new ArrayRepository();
+        User user = new User(null,"email@poczta.pl","haslo1",true,User.Type.STANDARD);
+        Reservation reservation = new Reservation();
+
+        assertThatCode(() -> {
+            repository.add(user);
+            reservation.setUserId(user.getId());
+            repository.add(reservation);
+            repository.update(reservation);
+            repository.compact();
+        }).doesNotThrowAnyException();
+
+        assertAll(
+                () -> assertThat(repository.get(user.getId(),User.class)).isEqualTo(user),
+                () -> assertThat(repository.getUserByEmail("email@poczta.pl")).isEqualTo(user),
+                () -> assertThat(repository.getUserReservations(user.getId())).containsExactly(reservation)
+        );
+    }
+
+    @Test
+    public void revertedRowsSurviveConcurrentCompaction() throws Exception
+    {
+        List<Table> tables = addTables(4096);
+        AtomicBoolean compacting = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> compactor = executor.submit(() -> {
+            while(compacting.get())
+            {
+                store.compact();
+                // compacts at varying points of the reverts that follow the deletes
+                long until = System.nanoTime() + ThreadLocalRandom.current().nextInt(2000);
+                while(System.nanoTime() < until)
+                    ;
+            }
+        });
+
+        // only the first id brought back into a chunk of tombstones races with compact()
+        List<Long> lost = new ArrayList<>();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while(System.nanoTime() < end && lost.isEmpty())
+        {
+            for(Table table : tables)
+                store.delete(table);
+            for(Table table : tables)
+            {
+                store.revert(table.getId(),table);
+                if(store.get(table.getId())==null)
+                    lost.add(table.getId());
+            }
+        }
+        compacting.set(false);
+        compactor.get();
+        executor.shutdown();
+        executor.awaitTermination(10,TimeUnit.SECONDS);
+
+        assertAll(
+                () -> assertThat(lost).isEmpty(),
+                () -> assertThat(store.getAll()).hasSize(4096 - lost.size())
+        );
+    }
+
+    private List<Table> addTables(int count)
+    {
+        List<Table> tables = new ArrayList<>();
+        for(int i = 0; i < count; i++)
+        {
+            Table table = new Table(null,4,1L);
+            store.add(table);
+            tables.add(table);
+        }
+        return tables;
+    }
+}
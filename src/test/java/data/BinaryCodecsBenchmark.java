@@ -0,0 +1,85 @@
+package data;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.joda.JodaModule;
+import models.Reservation;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// run with mvn test -Pbenchmarks, the numbers are published as test report entries
+public class BinaryCodecsBenchmark {
+
+    private static final int ROUNDS = 50000;
+
+    @Test
+    public void roundTripsAgainstSerializationAndJson(TestReporter reporter) throws Exception
+    {
+        ObjectMapper mapper = new ObjectMapper()
+                .registerModule(new JodaModule())
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES,false);
+        Reservation reservation = new Reservation(1234L,56L,789L,new LocalTime(18,30),new LocalDate(2019,5,1));
+        ByteBuffer buffer = ByteBuffer.allocate(BinaryCodecs.RESERVATION.maxBytes(reservation));
+
+        // first pass warms up the JIT, the second one is reported
+        long binary = 0;
+        long serialization = 0;
+        long json = 0;
+        for(int pass = 0; pass < 2; pass++)
+        {
+            long start = System.nanoTime();
+            for(int i = 0; i < ROUNDS; i++)
+            {
+                buffer.clear();
+                BinaryCodecs.RESERVATION.encode(reservation,buffer);
+                buffer.flip();
+                assertThat(BinaryCodecs.RESERVATION.decode(buffer).getTableId()).isEqualTo(789L);
+            }
+            binary = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for(int i = 0; i < ROUNDS / 10; i++)
+                assertThat(deserialize(serialize(reservation)).getTableId()).isEqualTo(789L);
+            serialization = (System.nanoTime() - start) * 10;
+
+            start = System.nanoTime();
+            for(int i = 0; i < ROUNDS / 10; i++)
+                assertThat(mapper.readValue(mapper.writeValueAsBytes(reservation),Reservation.class).getTableId()).isEqualTo(789L);
+            json = (System.nanoTime() - start) * 10;
+        }
+
+        reporter.publishEntry("reservation round trips", String.valueOf(ROUNDS));
+        reporter.publishEntry("BinaryCodecs ms", String.valueOf(binary / 1000000));
+        reporter.publishEntry("ObjectOutputStream ms", String.valueOf(serialization / 1000000));
+        reporter.publishEntry("Jackson ms", String.valueOf(json / 1000000));
+    }
+
+    private static byte[] serialize(Object model) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes))
+        {
+            out.writeObject(model);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Reservation deserialize(byte[] bytes) throws IOException, ClassNotFoundException
+    {
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes)))
+        {
+            return (Reservation)in.readObject();
+        }
+    }
+}
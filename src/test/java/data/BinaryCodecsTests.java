@@ -0,0 +1,145 @@
+package data;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.joda.JodaModule;
+import models.Reservation;
+import models.Restaurant;
+import models.Table;
+import models.User;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+public class BinaryCodecsTests {
+
+    @Test
+    public void modelsSurviveRoundTrip()
+    {
+        Reservation reservation = new Reservation(7L,3L,300L,new LocalTime(12,30),new LocalDate(2019,5,1));
+        Restaurant restaurant = new Restaurant(1L,"Restauracja żółta","ul. Łódzka 1 🍕",new LocalTime(9,0),new LocalTime(23,30));
+        Table table = new Table(5L,4,1L);
+        User user = new User(Long.MAX_VALUE,"email@poczta.pl","haslo1",true,User.Type.MODERATOR);
+
+        Reservation reservationCopy = roundTrip(BinaryCodecs.RESERVATION,reservation);
+        Restaurant restaurantCopy = roundTrip(BinaryCodecs.RESTAURANT,restaurant);
+        Table tableCopy = roundTrip(BinaryCodecs.TABLE,table);
+        User userCopy = roundTrip(BinaryCodecs.USER,user);
+
+        assertAll(
+                () -> assertThat(reservationCopy).isEqualTo(reservation),
+                () -> assertThat(reservationCopy.getId()).isEqualTo(7L),
+                () -> assertThat(restaurantCopy).isEqualTo(restaurant),
+                () -> assertThat(restaurantCopy.getId()).isEqualTo(1L),
+                () -> assertThat(tableCopy).isEqualTo(table),
+                () -> assertThat(tableCopy.getId()).isEqualTo(5L),
+                () -> assertThat(userCopy).isEqualTo(user),
+                () -> assertThat(userCopy.getId()).isEqualTo(Long.MAX_VALUE),
+                () -> assertThat(userCopy.isActive()).isTrue(),
+                () -> assertThat(userCopy.getUserType()).isEqualTo(User.Type.MODERATOR)
+        );
+    }
+
+    @Test
+    public void nullsAndUnusualValuesSurviveRoundTrip()
+    {
+        Reservation empty = new Reservation();
+        Reservation unusual = new Reservation(-1L,0L,null,new LocalTime(13,17,5,250),new LocalDate(1900,2,28));
+        Restaurant restaurant = new Restaurant(null,"",null,null,new LocalTime(0,0));
+        Table table = new Table(null,-3,null);
+        User user = new User(null,null,"\uD800 samotny",false,null);
+
+        Reservation emptyCopy = roundTrip(BinaryCodecs.RESERVATION,empty);
+        Reservation unusualCopy = roundTrip(BinaryCodecs.RESERVATION,unusual);
+        Restaurant restaurantCopy = roundTrip(BinaryCodecs.RESTAURANT,restaurant);
+        Table tableCopy = roundTrip(BinaryCodecs.TABLE,table);
+        User userCopy = roundTrip(BinaryCodecs.USER,user);
+
+        assertAll(
+                () -> assertThat(emptyCopy).isEqualTo(empty),
+                () -> assertThat(emptyCopy.getId()).isNull(),
+                () -> assertThat(unusualCopy).isEqualTo(unusual),
+                () -> assertThat(unusualCopy.getId()).isEqualTo(-1L),
+                () -> assertThat(restaurantCopy).isEqualTo(restaurant),
+                () -> assertThat(tableCopy).isEqualTo(table),
+                () -> assertThat(userCopy.getEmail()).isNull(),
+                () -> assertThat(userCopy.getPassword()).isEqualTo("? samotny"),
+                () -> assertThat(userCopy.isActive()).isFalse(),
+                () -> assertThat(userCopy.getUserType()).isNull()
+        );
+    }
+
+    @Test
+    public void decodesFromDirectBuffer()
+    {
+        User user = new User(12L,"zażółć@poczta.pl","haslo",true,User.Type.ADMIN);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BinaryCodecs.USER.maxBytes(user));
+        BinaryCodecs.USER.encode(user,buffer);
+        buffer.flip();
+
+        User copy = BinaryCodecs.USER.decode(buffer);
+
+        assertAll(
+                () -> assertThat(copy).isEqualTo(user),
+                () -> assertThat(buffer.hasRemaining()).isFalse()
+        );
+    }
+
+    @Test
+    public void encodesSmallerThanSerializationAndJson() throws IOException
+    {
+        ObjectMapper mapper = jsonMapper();
+        Reservation reservation = new Reservation(1234L,56L,789L,new LocalTime(18,30),new LocalDate(2019,5,1));
+
+        int binary = encode(BinaryCodecs.RESERVATION,reservation).remaining();
+        int serialized = serialize(reservation).length;
+        int json = mapper.writeValueAsBytes(reservation).length;
+
+        assertAll(
+                () -> assertThat(binary).isLessThan(16),
+                () -> assertThat(binary * 10).isLessThan(serialized),
+                () -> assertThat(binary * 3).isLessThan(json)
+        );
+    }
+
+    private static ObjectMapper jsonMapper()
+    {
+        return new ObjectMapper()
+                .registerModule(new JodaModule())
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES,false);
+    }
+
+    private static <T> T roundTrip(ModelCodec<T> codec, T model)
+    {
+        ByteBuffer buffer = encode(codec,model);
+        T copy = codec.decode(buffer);
+        assertThat(buffer.hasRemaining()).isFalse();
+        return copy;
+    }
+
+    private static <T> ByteBuffer encode(ModelCodec<T> codec, T model)
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(codec.maxBytes(model));
+        codec.encode(model,buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static byte[] serialize(Object model) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes))
+        {
+            out.writeObject(model);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,274 @@
+package data;
+
+import models.Restaurant;
+import models.Table;
+import models.User;
+import org.joda.time.LocalTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+public class CachingRepositoryTests {
+
+    private AtomicInteger backendReads;
+    private Repository backend;
+
+    @BeforeEach
+    public void setUp()
+    {
+        backendReads = new AtomicInteger();
+        backend = new HashMapRepository() {
+            @Override
+            public <T> T get(long id, Class<T> modelClass) {
+                backendReads.incrementAndGet();
+                return super.get(id,modelClass);
+            }
+        };
+    }
+
+    @Test
+    public void repeatedReadsAreServedFromTheCache()
+    {
+        Restaurant restaurant = new Restaurant(null,"Restauracja","adres 1",new LocalTime(9,0),new LocalTime(18,0));
+        backend.add(restaurant);
+        CachingRepository repository = new CachingRepository(backend,100);
+
+        Restaurant cached = repository.get(restaurant.getId(),Restaurant.class);
+        assertThat(cached).isEqualTo(restaurant);
+        for(int i = 1; i < 5; i++)
+            assertThat(repository.get(restaurant.getId(),Restaurant.class)).isSameAs(cached);
+        assertThat(repository.get(99L,Restaurant.class)).isNull();
+
+        CacheStats stats = repository.getStats(Restaurant.class);
+        assertAll(
+                () -> assertThat(backendReads.get()).isEqualTo(2),
+                () -> assertThat(stats.getHits()).isEqualTo(4),
+                () -> assertThat(stats.getMisses()).isEqualTo(2),
+                () -> assertThat(stats.getSize()).isEqualTo(1),
+                () -> assertThat(stats.getHitRate()).isEqualTo(4 / 6.0)
+        );
+    }
+
+    @Test
+    public void writesDropTheCachedModel()
+    {
+        Table table = new Table(null,4,1L);
+        Table other = new Table(null,2,1L);
+        backend.add(table);
+        backend.add(other);
+        CachingRepository repository = new CachingRepository(backend).withCapacity(Table.class,100);
+        repository.get(table.getId(),Table.class);
+        repository.get(other.getId(),Table.class);
+
+        repository.update(new Table(table.getId(),6,1L));
+        repository.deleteAll(Table.class,Arrays.asList(other));
+
+        assertAll(
+                () -> assertThat(repository.get(table.getId(),Table.class).getSeats()).isEqualTo(6),
+                () -> assertThat(repository.get(other.getId(),Table.class)).isNull(),
+                () -> assertThat(backendReads.get()).isEqualTo(4),
+                () -> assertThat(repository.getStats(Table.class).getSize()).isEqualTo(1),
+                () -> assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> repository.getStats(User.class))
+        );
+
+        repository.delete(table);
+
+        assertThat(repository.get(table.getId(),Table.class)).isNull();
+    }
+
+    @Test
+    public void valuesLoadedAcrossAWriteAreNotKept()
+    {
+        User user = new User(null,"email@poczta.pl","haslo1",true,User.Type.STANDARD);
+        backend.add(user);
+        CachingRepository[] repository = new CachingRepository[1];
+        // the update lands while the old user is being loaded
+        Repository racing = new HashMapRepository() {
+            @Override
+            public <T> T get(long id, Class<T> modelClass) {
+                T model = backend.get(id,modelClass);
+                if(backendReads.get()==1)
+                    repository[0].update(new User(id,"email@poczta.pl","haslo2",true,User.Type.STANDARD));
+                return model;
+            }
+
+            @Override
+            public <T> void update(T model) {
+                backend.update(model);
+            }
+        };
+        repository[0] = new CachingRepository(racing,10);
+
+        assertThat(repository[0].get(user.getId(),User.class).getPassword()).isEqualTo("haslo1");
+        assertThat(repository[0].get(user.getId(),User.class).getPassword()).isEqualTo("haslo2");
+    }
+
+    @Test
+    public void concurrentMissesShareOneLoad() throws Exception
+    {
+        Table table = new Table(null,4,1L);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Repository slow = slowBackend(table,loading,release);
+        CachingRepository repository = new CachingRepository(slow).withCapacity(Table.class,10);
+
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Table>> reads = new ArrayList<>();
+        reads.add(executor.submit(() -> repository.get(1L,Table.class)));
+        loading.await();
+        for(int i = 1; i < threads; i++)
+            reads.add(executor.submit(() -> repository.get(1L,Table.class)));
+        awaitCoalesced(repository,threads - 1);
+        release.countDown();
+
+        Table loaded = reads.get(0).get();
+        assertThat(loaded).isEqualTo(table);
+        for(Future<Table> read : reads)
+            assertThat(read.get()).isSameAs(loaded);
+        executor.shutdown();
+        executor.awaitTermination(10,TimeUnit.SECONDS);
+
+        CacheStats stats = repository.getStats(Table.class);
+        assertAll(
+                () -> assertThat(backendReads.get()).isEqualTo(1),
+                () -> assertThat(stats.getMisses()).isEqualTo(threads),
+                () -> assertThat(stats.getCoalesced()).isEqualTo(threads - 1),
+                () -> assertThat(repository.get(1L,Table.class)).isSameAs(loaded),
+                () -> assertThat(backendReads.get()).isEqualTo(1)
+        );
+    }
+
+    @Test
+    public void readsAfterAWriteDontJoinAnOlderLoad() throws Exception
+    {
+        Table table = new Table(null,4,1L);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Repository slow = slowBackend(table,loading,release);
+        CachingRepository repository = new CachingRepository(slow).withCapacity(Table.class,10);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Table> before = executor.submit(() -> repository.get(1L,Table.class));
+        loading.await();
+
+        repository.update(new Table(1L,6,1L));
+        Table after = repository.get(1L,Table.class);
+        release.countDown();
+
+        assertAll(
+                () -> assertThat(after.getSeats()).isEqualTo(6),
+                () -> assertThat(before.get().getSeats()).isEqualTo(4),
+                () -> assertThat(repository.get(1L,Table.class).getSeats()).isEqualTo(6),
+                () -> assertThat(repository.getStats(Table.class).getCoalesced()).isZero()
+        );
+        executor.shutdown();
+    }
+
+    @Test
+    public void loadsOverlappingWritesOfOtherIdsAreCached() throws Exception
+    {
+        Table table = new Table(null,4,1L);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Repository slow = slowBackend(table,loading,release);
+        Table other = new Table(null,2,1L);
+        slow.add(other);
+        CachingRepository repository = new CachingRepository(slow).withCapacity(Table.class,10);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Table> load = executor.submit(() -> repository.get(table.getId(),Table.class));
+        loading.await();
+
+        other.setSeats(3);
+        repository.update(other);
+        release.countDown();
+        load.get();
+        int reads = backendReads.get();
+
+        assertAll(
+                () -> assertThat(repository.get(table.getId(),Table.class).getSeats()).isEqualTo(4),
+                () -> assertThat(backendReads.get()).isEqualTo(reads)
+        );
+        executor.shutdown();
+    }
+
+    // the first read of the backend blocks until released, the table it returns is the one stored at that moment
+    private Repository slowBackend(Table table, CountDownLatch loading, CountDownLatch release)
+    {
+        Repository slow = new HashMapRepository() {
+            @Override
+            public <T> T get(long id, Class<T> modelClass) {
+                T model = super.get(id,modelClass);
+                if(backendReads.incrementAndGet()==1)
+                {
+                    loading.countDown();
+                    try
+                    {
+                        release.await();
+                    }
+                    catch(InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return model;
+            }
+        };
+        slow.add(table);
+        return slow;
+    }
+
+    private static void awaitCoalesced(CachingRepository repository, long waiting) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 10000;
+        while(repository.getStats(Table.class).getCoalesced() < waiting && System.currentTimeMillis() < deadline)
+            Thread.sleep(1);
+    }
+
+    @Test
+    public void popularModelsSurviveAScan()
+    {
+        List<Table> tables = new ArrayList<>();
+        for(int i = 0; i < 1000; i++)
+            tables.add(new Table(null,4,1L));
+        backend.addAll(Table.class,tables);
+        CachingRepository repository = new CachingRepository(backend).withCapacity(Table.class,20);
+
+        for(int round = 0; round < 5; round++)
+            for(long id = 1; id <= 10; id++)
+                repository.get(id,Table.class);
+        // one-off reads of the other tables while the popular ones keep being read
+        for(long id = 11; id <= 1000; id++)
+        {
+            repository.get(id,Table.class);
+            if(id % 100==0)
+                for(long hot = 1; hot <= 10; hot++)
+                    repository.get(hot,Table.class);
+        }
+
+        backendReads.set(0);
+        for(long id = 1; id <= 10; id++)
+            repository.get(id,Table.class);
+
+        CacheStats stats = repository.getStats(Table.class);
+        assertAll(
+                () -> assertThat(backendReads.get()).isZero(),
+                () -> assertThat(stats.getSize()).isEqualTo(20),
+                () -> assertThat(stats.getEvictions()).isEqualTo(1000 - 20)
+        );
+    }
+}
@@ -0,0 +1,209 @@
+package data;
+
+import models.Table;
+import models.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+public class ChangeStreamTests {
+
+    private StoreRepository repository;
+
+    @BeforeEach
+    public void setUp()
+    {
+        repository = new ConcurrentHashMapRepository();
+    }
+
+    @Test
+    public void eventsCarryTheModelsBeforeAndAfterTheWrite()
+    {
+        ChangeStream stream = new ChangeStream(16).attach(repository);
+        ChangeStream.Subscription subscription = stream.subscribe(ChangeStream.Overflow.DROP);
+
+        User user = new User(null,"email@poczta.pl","haslo1",true,User.Type.STANDARD);
+        repository.add(user);
+        User changed = new User(user);
+        changed.setPassword("haslo2");
+        repository.update(changed);
+        repository.delete(changed);
+        changed.setPassword("haslo3");
+
+        ChangeEvent added = subscription.poll();
+        ChangeEvent updated = subscription.poll();
+        ChangeEvent deleted = subscription.poll();
+
+        assertAll(
+                () -> assertThat(added.getSequence()).isEqualTo(0),
+                () -> assertThat(added.getOperation()).isEqualTo(ChangeEvent.Operation.ADD),
+                () -> assertThat(added.getType()).isSameAs(EntityType.USER),
+                () -> assertThat(added.getId()).isEqualTo(user.getId()),
+                () -> assertThat(added.getBefore(User.class)).isNull(),
+                () -> assertThat(added.getAfter(User.class).getPassword()).isEqualTo("haslo1"),
+                () -> assertThat(updated.getOperation()).isEqualTo(ChangeEvent.Operation.UPDATE),
+                () -> assertThat(updated.getBefore(User.class).getPassword()).isEqualTo("haslo1"),
+                () -> assertThat(updated.getAfter(User.class).getPassword()).isEqualTo("haslo2"),
+                () -> assertThat(updated.getAfter(User.class).getVersion()).isEqualTo(2),
+                () -> assertThat(deleted.getOperation()).isEqualTo(ChangeEvent.Operation.DELETE),
+                () -> assertThat(deleted.getBefore(User.class).getPassword()).isEqualTo("haslo2"),
+                () -> assertThat(deleted.getAfter(User.class)).isNull(),
+                () -> assertThat(deleted.getSequence()).isEqualTo(2),
+                () -> assertThat(subscription.poll()).isNull(),
+                () -> assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> added.getAfter(Table.class))
+        );
+    }
+
+    @Test
+    public void modelsChangedInPlaceKeepTheirBeforeImage()
+    {
+        ChangeStream stream = new ChangeStream(16).attach(repository);
+        ChangeStream.Subscription subscription = stream.subscribe(ChangeStream.Overflow.DROP);
+        Table table = new Table(null,4,1L);
+        repository.add(table);
+
+        Table stored = repository.get(table.getId(),Table.class);
+        stored.setSeats(9);
+        repository.update(stored);
+
+        subscription.poll();
+        ChangeEvent updated = subscription.poll();
+
+        assertAll(
+                () -> assertThat(updated.getBefore(Table.class).getSeats()).isEqualTo(4),
+                () -> assertThat(updated.getAfter(Table.class).getSeats()).isEqualTo(9)
+        );
+    }
+
+    @Test
+    public void writersStopWaitingForASubscriberThatDoesntRead()
+    {
+        ChangeStream stream = new ChangeStream(4,1,TimeUnit.MILLISECONDS).attach(repository);
+        ChangeStream.Subscription idle = stream.subscribe(ChangeStream.Overflow.BLOCK);
+
+        // the writes come from the subscriber's own thread, waiting for it forever would never end
+        for(int i = 0; i < 10; i++)
+            repository.add(new Table(null,4,1L));
+
+        List<ChangeEvent> events = new ArrayList<>();
+        idle.drain(events::add);
+
+        assertAll(
+                () -> assertThat(idle.getMissed()).isEqualTo(6),
+                () -> assertThat(events).extracting(ChangeEvent::getSequence).containsExactly(6L,7L,8L,9L)
+        );
+    }
+
+    @Test
+    public void writersWaitForIdleSubscribersTogether()
+    {
+        ChangeStream stream = new ChangeStream(1,200,TimeUnit.MILLISECONDS).attach(repository);
+        List<ChangeStream.Subscription> idle = new ArrayList<>();
+        for(int i = 0; i < 5; i++)
+            idle.add(stream.subscribe(ChangeStream.Overflow.BLOCK));
+
+        repository.add(new Table(null,4,1L));
+        long start = System.nanoTime();
+        repository.add(new Table(null,4,1L));
+        long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertAll(
+                () -> assertThat(waited).isBetween(150L,600L),
+                () -> assertThat(idle).allMatch(subscription -> subscription.poll().getSequence()==1)
+        );
+    }
+
+    @Test
+    public void subscribersThatFallARingBehindSeeTheGap()
+    {
+        ChangeStream stream = new ChangeStream(5).attach(repository);
+        ChangeStream.Subscription slow = stream.subscribe(ChangeStream.Overflow.DROP);
+        ChangeStream.Subscription fast = stream.subscribe(ChangeStream.Overflow.DROP);
+
+        List<ChangeEvent> fastEvents = new ArrayList<>();
+        List<Table> tables = new ArrayList<>();
+        for(int i = 0; i < 20; i++)
+        {
+            Table table = new Table(null,4,1L);
+            tables.add(table);
+            repository.add(table);
+            fast.drain(fastEvents::add);
+        }
+        repository.deleteAll(Table.class,tables.subList(0,2));
+
+        List<ChangeEvent> slowEvents = new ArrayList<>();
+        slow.drain(slowEvents::add);
+        fast.drain(fastEvents::add);
+
+        assertAll(
+                () -> assertThat(stream.getCapacity()).isEqualTo(8),
+                () -> assertThat(fastEvents).hasSize(22),
+                () -> assertThat(fast.getMissed()).isZero(),
+                () -> assertThat(slowEvents).hasSize(8),
+                () -> assertThat(slowEvents.get(0).getSequence()).isEqualTo(14),
+                () -> assertThat(slow.getMissed()).isEqualTo(14),
+                () -> assertThat(slowEvents.get(7).getOperation()).isEqualTo(ChangeEvent.Operation.DELETE),
+                () -> assertThat(slowEvents.get(7).getId()).isEqualTo(2L)
+        );
+    }
+
+    @Test
+    public void blockingSubscribersHoldWritersBackInsteadOfLosingEvents() throws Exception
+    {
+        ChangeStream stream = new ChangeStream(4,10,TimeUnit.SECONDS).attach(repository);
+        ChangeStream.Subscription subscription = stream.subscribe(ChangeStream.Overflow.BLOCK);
+
+        int threads = 4;
+        int writes = 250;
+        Table table = new Table(null,4,1L);
+        repository.add(table);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> writers = new ArrayList<>();
+        for(int t = 0; t < threads; t++)
+            writers.add(executor.submit(() -> {
+                for(int i = 0; i < writes; i++)
+                {
+                    Table stored = repository.get(table.getId(),Table.class);
+                    repository.update(new Table(stored.getId(),stored.getSeats() + 1,1L));
+                    repository.add(new Table(null,2,1L));
+                }
+            }));
+
+        List<ChangeEvent> events = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + 10000;
+        while(events.size() < 1 + 2 * threads * writes && System.currentTimeMillis() < deadline)
+            subscription.drain(events::add);
+        for(Future<?> writer : writers)
+            writer.get();
+        executor.shutdown();
+
+        Map<Long, Long> lastVersions = new HashMap<>();
+        boolean versionsInOrder = true;
+        for(ChangeEvent event : events)
+        {
+            long version = event.getAfter(Table.class).getVersion();
+            Long last = lastVersions.put(event.getId(),version);
+            versionsInOrder &= last==null || last < version;
+        }
+        boolean ordered = versionsInOrder;
+
+        assertAll(
+                () -> assertThat(events).hasSize(1 + 2 * threads * writes),
+                () -> assertThat(subscription.getMissed()).isZero(),
+                () -> assertThat(events).extracting(ChangeEvent::getSequence).isSorted().doesNotHaveDuplicates(),
+                () -> assertThat(ordered).isTrue()
+        );
+    }
+}
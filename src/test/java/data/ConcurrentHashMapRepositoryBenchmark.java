@@ -0,0 +1,127 @@
+package data;
+
+import models.Reservation;
+import models.Restaurant;
+import models.Table;
+import models.User;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import services.RestaurantService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// run with mvn test -Pbenchmarks, the numbers are published as test report entries
+public class ConcurrentHashMapRepositoryBenchmark {
+
+    private static final int OPERATIONS_PER_THREAD = 20000;
+
+    @Test
+    public void throughputAgainstASingleLock(TestReporter reporter) throws Exception
+    {
+        int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        for(int threads = 1; threads <= maxThreads; threads *= 2)
+        {
+            Repository locked = new SingleLockRepository(new HashMapRepository());
+            Repository concurrent = new ConcurrentHashMapRepository();
+
+            double lockedThroughput = runConcurrently(locked, threads);
+            double concurrentThroughput = runConcurrently(concurrent, threads);
+
+            reporter.publishEntry(threads + " threads, single lock ops/s", String.format("%.0f", lockedThroughput));
+            reporter.publishEntry(threads + " threads, concurrent ops/s", String.format("%.0f", concurrentThroughput));
+
+            assertThat(concurrent.getAll(Reservation.class).size()).isEqualTo(threads * OPERATIONS_PER_THREAD);
+            assertThat(locked.getAll(Reservation.class).size()).isEqualTo(threads * OPERATIONS_PER_THREAD);
+        }
+    }
+
+    @Test
+    public void writesWhileRestaurantReadsRun(TestReporter reporter) throws Exception
+    {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        Repository repository = new ConcurrentHashMapRepository();
+        Restaurant restaurant = new Restaurant(null,"Restaurant","Street",new LocalTime(8,0),new LocalTime(22,0));
+        repository.add(restaurant);
+        // the writers book table 1, which is not one of the restaurant's
+        repository.add(new Table(null,4,restaurant.getId() + 1));
+        for(int t = 0; t < 10; t++)
+        {
+            Table table = new Table(null,4,restaurant.getId());
+            repository.add(table);
+            for(int i = 0; i < 10; i++)
+            {
+                User user = new User(null,"user" + t + "_" + i + "@mail.com","password",true,User.Type.STANDARD);
+                repository.add(user);
+                repository.add(new Reservation(null,user.getId(),table.getId(),new LocalTime(12,0),new LocalDate(2019,1,1)));
+            }
+        }
+
+        RestaurantService service = new RestaurantService(repository);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        Future<?> reading = reader.submit(() -> {
+            while(writing.get())
+            {
+                service.getReservations(restaurant);
+                service.getUsers(restaurant);
+                service.getDistinctUsers(restaurant);
+                reads.addAndGet(3);
+            }
+            return null;
+        });
+
+        long start = System.nanoTime();
+        double throughput = runConcurrently(repository, threads);
+        writing.set(false);
+        reading.get();
+        long elapsed = System.nanoTime() - start;
+        reader.shutdown();
+
+        reporter.publishEntry(threads + " writer threads next to restaurant reads, ops/s", String.format("%.0f", throughput));
+        reporter.publishEntry("restaurant reads/s", String.format("%.0f", reads.get() / (elapsed / 1e9)));
+    }
+
+    private static double runConcurrently(Repository repository, int threads) throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Callable<Void>> workers = new ArrayList<>();
+        for(int i = 0; i < threads; i++)
+        {
+            workers.add(() -> {
+                for(int op = 0; op < OPERATIONS_PER_THREAD; op++)
+                {
+                    Reservation r = new Reservation(null,1L,1L,new LocalTime(12,0),new LocalDate(2019,1,1));
+                    repository.add(r);
+                    repository.get(r.getId(),Reservation.class);
+                    repository.update(r);
+                }
+                return null;
+            });
+        }
+
+        long start = System.nanoTime();
+        for(Future<Void> f : executor.invokeAll(workers))
+            f.get();
+        long elapsed = System.nanoTime() - start;
+
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        return threads * OPERATIONS_PER_THREAD * 3 / (elapsed / 1e9);
+    }
+}
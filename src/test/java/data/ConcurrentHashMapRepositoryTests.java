@@ -0,0 +1,314 @@
+package data;
+
+import errors.DuplicateEntryException;
+import errors.VersionConflictException;
+import models.Reservation;
+import models.Restaurant;
+import models.Table;
+import models.User;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+public class ConcurrentHashMapRepositoryTests {
+
+    private static final int OPERATIONS_PER_THREAD = 20000;
+
+    private Repository repository;
+
+    @BeforeEach
+    public void setUp()
+    {
+        repository = new ConcurrentHashMapRepository();
+    }
+
+    @Test
+    public void usersTest()
+    {
+        User u = new User();
+
+        assertThatCode(() -> {
+            repository.add(u);
+            repository.get(u.getId(),User.class);
+            repository.update(u);
+            repository.getAll(User.class);
+            repository.delete(u);
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    public void reservationsTest()
+    {
+        Reservation r = new Reservation();
+
+        assertThatCode(() -> {
+            repository.add(r);
+            repository.get(r.getId(),Reservation.class);
+            repository.update(r);
+            repository.getAll(Reservation.class);
+            repository.delete(r);
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    public void tablesTest()
+    {
+        Table t = new Table();
+
+        assertThatCode(() -> {
+            repository.add(t);
+            repository.get(t.getId(),Table.class);
+            repository.update(t);
+            repository.getAll(Table.class);
+            repository.delete(t);
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    public void restaurantsTest()
+    {
+        Restaurant r = new Restaurant();
+
+        assertThatCode(() -> {
+            repository.add(r);
+            repository.get(r.getId(),Restaurant.class);
+            repository.update(r);
+            repository.getAll(Restaurant.class);
+            repository.delete(r);
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    public void userReservationsIndex()
+    {
+        Reservation r1 = new Reservation(null,1L,1L,null,null);
+        Reservation r2 = new Reservation(null,1L,2L,null,null);
+        Reservation r3 = new Reservation(null,2L,1L,null,null);
+
+        repository.add(r1);
+        repository.add(r2);
+        repository.add(r3);
+
+        assertThat(repository.getUserReservations(1L)).containsExactlyInAnyOrder(r1,r2);
+
+        r2.setUserId(2L);
+        repository.update(r2);
+        repository.delete(r1);
+
+        assertAll(
+                () -> assertThat(repository.getUserReservations(1L)).isEmpty(),
+                () -> assertThat(repository.getUserReservations(2L)).containsExactlyInAnyOrder(r2,r3),
+                () -> assertThat(repository.getUserReservations(3L)).isEmpty()
+        );
+    }
+
+    @Test
+    public void restaurantTablesIndex()
+    {
+        Restaurant r1 = new Restaurant();
+        Restaurant r2 = new Restaurant();
+        repository.add(r1);
+        repository.add(r2);
+
+        Table t1 = new Table(null,4,r1.getId());
+        Table t2 = new Table(null,2,r1.getId());
+        Table t3 = new Table(null,4,r2.getId());
+
+        repository.add(t1);
+        repository.add(t2);
+        repository.add(t3);
+
+        assertThat(repository.getRestaurantTables(r1.getId())).containsExactlyInAnyOrder(t1,t2);
+
+        t2.setRestaurantId(r2.getId());
+        repository.update(t2);
+        repository.delete(t1);
+
+        assertAll(
+                () -> assertThat(repository.getRestaurantTables(r1.getId())).isEmpty(),
+                () -> assertThat(repository.getRestaurantTables(r2.getId())).containsExactlyInAnyOrder(t2,t3)
+        );
+    }
+
+    @Test
+    public void userEmailIndex()
+    {
+        User u1 = new User(null,"Email@Poczta.pl","haslo1",true,User.Type.STANDARD);
+        User u2 = new User(null,"email@poczta.pl","haslo2",true,User.Type.STANDARD);
+
+        repository.add(u1);
+
+        assertAll(
+                () -> assertThatExceptionOfType(DuplicateEntryException.class).isThrownBy(() -> repository.add(u2)),
+                () -> assertThat(u2.getId()).isNull(),
+                () -> assertThat(repository.getAll(User.class)).containsExactly(u1),
+                () -> assertThat(repository.getUserByEmail("EMAIL@poczta.pl")).isEqualTo(u1)
+        );
+
+        u1.setEmail("nowy@poczta.pl");
+        repository.update(u1);
+        repository.add(u2);
+
+        assertAll(
+                () -> assertThat(repository.getUserByEmail("email@poczta.pl")).isEqualTo(u2),
+                () -> assertThat(repository.getUserByEmail("nowy@poczta.pl")).isEqualTo(u1)
+        );
+
+        u2.setEmail("nowy@poczta.pl");
+        assertThatExceptionOfType(DuplicateEntryException.class).isThrownBy(() -> repository.update(u2));
+
+        repository.delete(u1);
+        repository.update(u2);
+
+        assertAll(
+                () -> assertThat(repository.getUserByEmail("nowy@poczta.pl")).isEqualTo(u2),
+                () -> assertThat(repository.getUserByEmail("email@poczta.pl")).isNull(),
+                () -> assertThat(repository.getUserByEmail(null)).isNull()
+        );
+    }
+
+    @Test
+    public void wrongModelClassTests()
+    {
+        Object o = new Object();
+
+        assertAll(
+                () -> assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->repository.add(o)),
+                () -> assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->repository.update(o)),
+                () -> assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->repository.delete(o)),
+                () -> assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->repository.get(1L,Object.class)),
+                () -> assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->repository.add(Object.class))
+        );
+    }
+
+    @Test
+    public void modelsWithoutIdAreIgnored()
+    {
+        User u = new User();
+
+        assertThatCode(() -> {
+            repository.update(u);
+            repository.delete(u);
+        }).doesNotThrowAnyException();
+
+        assertThat(repository.getAll(User.class)).isEmpty();
+    }
+
+    @Test
+    public void compareAndUpdateWithoutVersionsIsAnUpdate()
+    {
+        Repository unversioned = new SingleLockRepository(new HashMapRepository());
+        User u = new User(null,"email@poczta.pl","haslo1",true,User.Type.STANDARD);
+        unversioned.add(u);
+        User stale = new User(u);
+        stale.setVersion(0);
+        stale.setPassword("haslo2");
+
+        unversioned.compareAndUpdate(stale);
+
+        assertThat(unversioned.get(u.getId(),User.class).getPassword()).isEqualTo("haslo2");
+    }
+
+    @Test
+    public void concurrentAddsGetUniqueIds() throws Exception
+    {
+        int threads = 8;
+
+        runConcurrently(repository, threads);
+
+        List<Reservation> reservations = repository.getAll(Reservation.class);
+        Set<Long> ids = new HashSet<>();
+        for(Reservation r : reservations)
+            ids.add(r.getId());
+
+        assertThat(reservations.size()).isEqualTo(threads * OPERATIONS_PER_THREAD);
+        assertThat(ids.size()).isEqualTo(threads * OPERATIONS_PER_THREAD);
+        assertThat(repository.get(threads * OPERATIONS_PER_THREAD,Reservation.class)).isNotNull();
+    }
+
+    @Test
+    public void compareAndUpdateLosesNoIncrements() throws Exception
+    {
+        int threads = 4;
+        int increments = 500;
+        Table table = new Table(null,0,1L);
+        repository.add(table);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> results = new ArrayList<>();
+        for(int t = 0; t < threads; t++)
+            results.add(executor.submit(() -> {
+                int conflicts = 0;
+                for(int i = 0; i < increments; i++)
+                {
+                    while(true)
+                    {
+                        Table current = repository.get(table.getId(),Table.class);
+                        Table next = new Table(current.getId(),current.getSeats() + 1,current.getRestaurantId());
+                        next.setVersion(current.getVersion());
+                        try
+                        {
+                            repository.compareAndUpdate(next);
+                            break;
+                        }
+                        catch(VersionConflictException e)
+                        {
+                            conflicts++;
+                        }
+                    }
+                }
+                return conflicts;
+            }));
+        for(Future<Integer> result : results)
+            result.get();
+        executor.shutdown();
+        executor.awaitTermination(10,TimeUnit.SECONDS);
+
+        Table stored = repository.get(table.getId(),Table.class);
+        assertAll(
+                () -> assertThat(stored.getSeats()).isEqualTo(threads * increments),
+                () -> assertThat(stored.getVersion()).isEqualTo(threads * increments + 1)
+        );
+    }
+
+    private static void runConcurrently(Repository repository, int threads) throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Callable<Void>> workers = new ArrayList<>();
+        for(int i = 0; i < threads; i++)
+        {
+            workers.add(() -> {
+                for(int op = 0; op < OPERATIONS_PER_THREAD; op++)
+                {
+                    Reservation r = new Reservation(null,1L,1L,new LocalTime(12,0),new LocalDate(2019,1,1));
+                    repository.add(r);
+                    repository.get(r.getId(),Reservation.class);
+                    repository.update(r);
+                }
+                return null;
+            });
+        }
+
+        for(Future<Void> f : executor.invokeAll(workers))
+            f.get();
+
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,60 @@
+package data;
+
+import models.Reservation;
+import models.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HashJoinTests {
+
+    private final List<Reservation> reservations = Arrays.asList(
+            new Reservation(1L,1L,1L,null,null),
+            new Reservation(2L,2L,2L,null,null),
+            new Reservation(3L,1L,3L,null,null),
+            new Reservation(4L,1L,1L,null,null)
+    );
+
+    @Test
+    public void keysAreCollectedOnce()
+    {
+        Set<Long> tableIds = HashJoin.keys(reservations,Reservation::getTableId);
+
+        assertThat(tableIds).containsExactlyInAnyOrder(1L,2L,3L);
+    }
+
+    @Test
+    public void joinLoadsEachKeyOnce()
+    {
+        Map<Long, User> users = new HashMap<>();
+        users.put(1L,new User(1L,"a@poczta.pl","haslo",true,User.Type.STANDARD));
+        users.put(2L,new User(2L,"b@poczta.pl","haslo",true,User.Type.STANDARD));
+        AtomicInteger loads = new AtomicInteger();
+
+        List<User> joined = HashJoin.join(reservations,Reservation::getUserId,id -> {
+            loads.incrementAndGet();
+            return users.get(id);
+        });
+
+        assertThat(joined).extracting(User::getId).containsExactly(1L,2L,1L,1L);
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void joinDistinctSkipsDuplicatesAndMissingRows()
+    {
+        Map<Long, User> users = new HashMap<>();
+        users.put(1L,new User(1L,"a@poczta.pl","haslo",true,User.Type.STANDARD));
+
+        List<User> joined = HashJoin.joinDistinct(reservations,Reservation::getUserId,users::get);
+
+        assertThat(joined).extracting(User::getId).containsExactly(1L);
+    }
+}
@@ -1,5 +1,7 @@
 package data;
 
+import errors.DuplicateEntryException;
+import errors.VersionConflictException;
 import models.Reservation;
 import models.Restaurant;
 import models.Table;
@@ -7,6 +9,11 @@ import models.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.junit.jupiter.api.Assertions.assertAll;
@@ -21,6 +28,70 @@ public class HashMapRepositoryTests {
         repository = new HashMapRepository();
     }
 
+    @Test
+    public void deprecatedIdGettersTakeTheNextId()
+    {
+        HashMapRepository repository = new HashMapRepository();
+        User u = new User();
+
+        Long taken = repository.getNextUserId();
+        repository.add(u);
+
+        assertAll(
+                () -> assertThat(taken).isEqualTo(1L),
+                () -> assertThat(u.getId()).isEqualTo(2L)
+        );
+    }
+
+    @Test
+    public void lookupsDefaultToQueries()
+    {
+        // implements only the basic calls, the lookups come from Repository
+        Repository basic = new Repository() {
+            @Override
+            public <T> void add(T model) {
+                repository.add(model);
+            }
+
+            @Override
+            public <T> void update(T model) {
+                repository.update(model);
+            }
+
+            @Override
+            public <T> T get(long id, Class<T> modelClass) {
+                return repository.get(id,modelClass);
+            }
+
+            @Override
+            public <T> List<T> getAll(Class<T> modelClass) {
+                return repository.getAll(modelClass);
+            }
+
+            @Override
+            public <T> void delete(T model) {
+                repository.delete(model);
+            }
+        };
+        User user = new User(null,"Email@Poczta.pl","haslo1",true,User.Type.STANDARD);
+        basic.add(user);
+        Restaurant restaurant = new Restaurant();
+        basic.add(restaurant);
+        Table table = new Table(null,4,restaurant.getId());
+        basic.add(table);
+        basic.add(new Table(null,2,restaurant.getId() + 1));
+        Reservation reservation = new Reservation(null,user.getId(),table.getId(),null,null);
+        basic.add(reservation);
+        basic.add(new Reservation(null,user.getId() + 1,table.getId(),null,null));
+
+        assertAll(
+                () -> assertThat(basic.getUserReservations(user.getId())).containsExactly(reservation),
+                () -> assertThat(basic.getRestaurantTables(restaurant.getId())).containsExactly(table),
+                () -> assertThat(basic.getUserByEmail("email@poczta.pl")).isEqualTo(user),
+                () -> assertThat(basic.getUserByEmail("inny@poczta.pl")).isNull()
+        );
+    }
+
     @Test
     public void usersTest()
     {
@@ -77,6 +148,262 @@ public class HashMapRepositoryTests {
         }).doesNotThrowAnyException();
     }
 
+    @Test
+    public void userReservationsIndex()
+    {
+        Reservation r1 = new Reservation(null,1L,1L,null,null);
+        Reservation r2 = new Reservation(null,1L,2L,null,null);
+        Reservation r3 = new Reservation(null,2L,1L,null,null);
+
+        repository.add(r1);
+        repository.add(r2);
+        repository.add(r3);
+
+        assertThat(repository.getUserReservations(1L)).containsExactlyInAnyOrder(r1,r2);
+
+        r2.setUserId(2L);
+        repository.update(r2);
+        repository.delete(r1);
+
+        assertAll(
+                () -> assertThat(repository.getUserReservations(1L)).isEmpty(),
+                () -> assertThat(repository.getUserReservations(2L)).containsExactlyInAnyOrder(r2,r3),
+                () -> assertThat(repository.getUserReservations(3L)).isEmpty()
+        );
+    }
+
+    @Test
+    public void restaurantTablesIndex()
+    {
+        Restaurant r1 = new Restaurant();
+        Restaurant r2 = new Restaurant();
+        repository.add(r1);
+        repository.add(r2);
+
+        Table t1 = new Table(null,4,r1.getId());
+        Table t2 = new Table(null,2,r1.getId());
+        Table t3 = new Table(null,4,r2.getId());
+
+        repository.add(t1);
+        repository.add(t2);
+        repository.add(t3);
+
+        assertThat(repository.getRestaurantTables(r1.getId())).containsExactlyInAnyOrder(t1,t2);
+
+        t2.setRestaurantId(r2.getId());
+        repository.update(t2);
+        repository.delete(t1);
+
+        assertAll(
+                () -> assertThat(repository.getRestaurantTables(r1.getId())).isEmpty(),
+                () -> assertThat(repository.getRestaurantTables(r2.getId())).containsExactlyInAnyOrder(t2,t3)
+        );
+    }
+
+    @Test
+    public void userEmailIndex()
+    {
+        User u1 = new User(null,"Email@Poczta.pl","haslo1",true,User.Type.STANDARD);
+        User u2 = new User(null,"email@poczta.pl","haslo2",true,User.Type.STANDARD);
+
+        repository.add(u1);
+
+        assertAll(
+                () -> assertThatExceptionOfType(DuplicateEntryException.class).isThrownBy(() -> repository.add(u2)),
+                () -> assertThat(u2.getId()).isNull(),
+                () -> assertThat(repository.getAll(User.class)).containsExactly(u1),
+                () -> assertThat(repository.getUserByEmail("EMAIL@poczta.pl")).isEqualTo(u1)
+        );
+
+        u1.setEmail("nowy@poczta.pl");
+        repository.update(u1);
+        repository.add(u2);
+
+        assertAll(
+                () -> assertThat(repository.getUserByEmail("email@poczta.pl")).isEqualTo(u2),
+                () -> assertThat(repository.getUserByEmail("nowy@poczta.pl")).isEqualTo(u1)
+        );
+
+        u2.setEmail("nowy@poczta.pl");
+        assertThatExceptionOfType(DuplicateEntryException.class).isThrownBy(() -> repository.update(u2));
+
+        repository.delete(u1);
+        repository.update(u2);
+
+        assertAll(
+                () -> assertThat(repository.getUserByEmail("nowy@poczta.pl")).isEqualTo(u2),
+                () -> assertThat(repository.getUserByEmail("email@poczta.pl")).isNull(),
+                () -> assertThat(repository.getUserByEmail(null)).isNull()
+        );
+    }
+
+    @Test
+    public void batchAddAssignsIdsAndReportsDuplicates()
+    {
+        repository.add(new User(null,"zajety@poczta.pl","haslo",true,User.Type.STANDARD));
+        User u1 = new User(null,"email@poczta.pl","haslo",true,User.Type.STANDARD);
+        User u2 = new User(null,"ZAJETY@poczta.pl","haslo",true,User.Type.STANDARD);
+        User u3 = new User(null,"nowy@poczta.pl","haslo",true,User.Type.STANDARD);
+        User u4 = new User(null,"Email@poczta.pl","haslo",true,User.Type.STANDARD);
+
+        BatchResult<User> result = repository.addAll(User.class,Arrays.asList(u1,u2,u3,u4));
+
+        assertAll(
+                () -> assertThat(result.getSucceeded()).isEqualTo(2),
+                () -> assertThat(result.getFailures()).extracting(BatchResult.Failure::getIndex).containsExactly(1,3),
+                () -> assertThat(result.getFailures().get(0).getError()).isInstanceOf(DuplicateEntryException.class),
+                () -> assertThat(u1.getId()).isEqualTo(2L),
+                () -> assertThat(u2.getId()).isNull(),
+                () -> assertThat(u3.getId()).isEqualTo(4L),
+                () -> assertThat(u4.getId()).isNull(),
+                () -> assertThat(repository.getUserByEmail("email@poczta.pl")).isEqualTo(u1),
+                () -> assertThat(repository.getAll(User.class)).hasSize(3)
+        );
+    }
+
+    @Test
+    public void batchUpdateAndDelete()
+    {
+        Table t1 = new Table(null,4,1L);
+        Table t2 = new Table(null,2,1L);
+        Table t3 = new Table(null,6,2L);
+        repository.addAll(Table.class,Arrays.asList(t1,t2,t3));
+
+        t1.setRestaurantId(2L);
+        Table missing = new Table(99L,2,1L);
+        BatchResult<Table> updated = repository.updateAll(Table.class,Arrays.asList(t1,missing));
+        BatchResult<Table> deleted = repository.deleteAll(Table.class,Arrays.asList(t2,t3,missing));
+
+        assertAll(
+                () -> assertThat(updated.isSuccessful()).isTrue(),
+                () -> assertThat(deleted.isSuccessful()).isTrue(),
+                () -> assertThat(repository.getAll(Table.class)).containsExactly(t1),
+                () -> assertThat(repository.getRestaurantTables(1L)).isEmpty(),
+                () -> assertThat(repository.getRestaurantTables(2L)).containsExactly(t1),
+                () -> assertThat(repository.get(99L,Table.class)).isNull()
+        );
+    }
+
+    @Test
+    public void pagesFollowIdOrder()
+    {
+        List<Table> tables = new ArrayList<>();
+        for(int i = 0; i < 10; i++)
+            tables.add(new Table(null,4,i % 2 + 1L));
+        repository.addAll(Table.class,tables);
+        repository.delete(tables.get(2));
+
+        List<Table> first = repository.getPage(Table.class,0,4);
+        List<Table> second = repository.getPage(Table.class,first.get(3).getId(),4);
+        List<Table> last = repository.getPage(Table.class,second.get(3).getId(),4);
+
+        assertAll(
+                () -> assertThat(first).containsExactly(tables.get(0),tables.get(1),tables.get(3),tables.get(4)),
+                () -> assertThat(second).containsExactly(tables.get(5),tables.get(6),tables.get(7),tables.get(8)),
+                () -> assertThat(last).containsExactly(tables.get(9)),
+                () -> assertThat(repository.getRestaurantTables(1L,0,2)).containsExactly(tables.get(0),tables.get(4)),
+                () -> assertThat(repository.getRestaurantTables(2L,tables.get(5).getId(),10)).containsExactly(tables.get(7),tables.get(9)),
+                () -> assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> repository.getPage(Table.class,0,0))
+        );
+    }
+
+    @Test
+    public void tableReservationPagesMergeEveryTable()
+    {
+        List<Reservation> reservations = new ArrayList<>();
+        for(int i = 0; i < 9; i++)
+            reservations.add(new Reservation(null,1L,i % 3 + 1L,null,null));
+        repository.addAll(Reservation.class,reservations);
+        reservations.get(3).setTableId(3L);
+        repository.update(reservations.get(3));
+
+        List<Reservation> first = repository.getTableReservations(Arrays.asList(1L,2L),0,3);
+        List<Reservation> second = repository.getTableReservations(Arrays.asList(1L,2L),first.get(2).getId(),3);
+
+        assertAll(
+                () -> assertThat(first).containsExactly(reservations.get(0),reservations.get(1),reservations.get(4)),
+                () -> assertThat(second).containsExactly(reservations.get(6),reservations.get(7)),
+                () -> assertThat(repository.getUserReservations(1L,reservations.get(7).getId(),5)).containsExactly(reservations.get(8))
+        );
+    }
+
+    @Test
+    public void staleVersionsAreRejected()
+    {
+        User u = new User(null,"email@poczta.pl","haslo1",true,User.Type.STANDARD);
+        repository.add(u);
+        long added = u.getVersion();
+
+        User first = new User(u);
+        User second = new User(u);
+        first.setPassword("haslo2");
+        repository.compareAndUpdate(first);
+        second.setActive(false);
+
+        assertAll(
+                () -> assertThat(added).isEqualTo(1),
+                () -> assertThat(first.getVersion()).isEqualTo(2),
+                () -> assertThatExceptionOfType(VersionConflictException.class).isThrownBy(() -> repository.compareAndUpdate(second))
+                        .withMessageContaining("version 1"),
+                () -> assertThat(repository.get(u.getId(),User.class).getPassword()).isEqualTo("haslo2"),
+                () -> assertThat(repository.get(u.getId(),User.class).isActive()).isTrue()
+        );
+
+        repository.update(new User(u.getId(),"email@poczta.pl","haslo3",true,User.Type.STANDARD));
+        repository.delete(u);
+
+        assertAll(
+                () -> assertThat(repository.getUserByEmail("email@poczta.pl")).isNull(),
+                () -> assertThatExceptionOfType(VersionConflictException.class).isThrownBy(() -> repository.compareAndUpdate(first))
+                        .withMessageContaining("deleted")
+        );
+    }
+
+    @Test
+    public void failedListenersLeaveTheIndexesAlone()
+    {
+        HashMapRepository repository = new HashMapRepository();
+        User u = new User(null,"email@poczta.pl","haslo1",true,User.Type.STANDARD);
+        repository.add(u);
+        Reservation r = new Reservation(null,u.getId(),1L,null,null);
+        repository.add(r);
+        repository.getRegistry().storeFor(User.class).addListener(failingListener());
+        repository.getRegistry().storeFor(Reservation.class).addListener(failingListener());
+
+        User renamed = new User(u);
+        renamed.setEmail("nowy@poczta.pl");
+        Reservation moved = new Reservation(r.getId(),5L,1L,null,null);
+
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> repository.update(renamed));
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> repository.updateAll(Reservation.class,Arrays.asList(moved)));
+        assertAll(
+                () -> assertThat(renamed.getVersion()).isEqualTo(1),
+                () -> assertThat(moved.getVersion()).isZero(),
+                () -> assertThat(repository.getUserByEmail("email@poczta.pl")).isEqualTo(u),
+                () -> assertThat(repository.getUserByEmail("nowy@poczta.pl")).isNull(),
+                () -> assertThat(repository.getUserReservations(u.getId())).containsExactly(r),
+                () -> assertThat(repository.getUserReservations(5L)).isEmpty()
+        );
+    }
+
+    private static <T> StoreListener<T> failingListener()
+    {
+        return new StoreListener<T>() {
+            @Override
+            public void added(long id, T model) {
+            }
+
+            @Override
+            public void updated(long id, T model) {
+                throw new IllegalStateException("Log is closed");
+            }
+
+            @Override
+            public void deleted(long id) {
+            }
+        };
+    }
+
     @Test
     public void wrongModelClassTests()
     {
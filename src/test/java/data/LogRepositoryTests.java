@@ -0,0 +1,326 @@
+package data;
+
+import models.Reservation;
+import models.Restaurant;
+import models.Table;
+import models.User;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+public class LogRepositoryTests {
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @EnumSource(FsyncPolicy.class)
+    public void stateSurvivesRestart(FsyncPolicy policy) throws IOException
+    {
+        Path file = directory.resolve("repository.log");
+        User user = new User(null,"email@poczta.pl","haslo1",false,User.Type.STANDARD);
+        Restaurant restaurant = new Restaurant(null,"Restauracja","adres 1",new LocalTime(9,0),new LocalTime(18,0));
+        Table table = new Table();
+        Reservation kept = new Reservation();
+        Reservation deleted = new Reservation();
+
+        try(LogRepository repository = new LogRepository(file,policy,5))
+        {
+            repository.add(user);
+            repository.add(restaurant);
+            table.setRestaurantId(restaurant.getId());
+            table.setSeats(4);
+            repository.add(table);
+
+            kept.setUserId(user.getId());
+            kept.setTableId(table.getId());
+            kept.setTime(new LocalTime(12,0));
+            kept.setDate(new LocalDate(2019,5,1));
+            repository.add(kept);
+            repository.add(deleted);
+
+            user.setActive(true);
+            repository.update(user);
+            repository.delete(deleted);
+        }
+
+        try(LogRepository repository = new LogRepository(file,policy,5))
+        {
+            User reloaded = repository.get(user.getId(),User.class);
+            Reservation next = new Reservation();
+            repository.add(next);
+
+            assertAll(
+                    () -> assertThat(reloaded).isEqualTo(user),
+                    () -> assertThat(reloaded.isActive()).isTrue(),
+                    () -> assertThat(repository.getUserByEmail("email@poczta.pl")).isEqualTo(user),
+                    () -> assertThat(repository.get(restaurant.getId(),Restaurant.class)).isEqualTo(restaurant),
+                    () -> assertThat(repository.getRestaurantTables(restaurant.getId())).containsExactly(table),
+                    () -> assertThat(repository.getUserReservations(user.getId())).containsExactly(kept),
+                    () -> assertThat(repository.get(deleted.getId(),Reservation.class)).isNull(),
+                    () -> assertThat(next.getId()).isEqualTo(deleted.getId() + 1)
+            );
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(FsyncPolicy.class)
+    public void writesAfterCloseAreRejected(FsyncPolicy policy) throws IOException
+    {
+        Path file = directory.resolve("repository.log");
+        User user = new User(null,"email@poczta.pl","haslo1",true,User.Type.STANDARD);
+        User late = new User(null,"inny@poczta.pl","haslo2",true,User.Type.STANDARD);
+
+        LogRepository closed = new LogRepository(file,policy,5);
+        closed.add(user);
+        closed.close();
+
+        assertThatExceptionOfType(UncheckedIOException.class).isThrownBy(() -> closed.add(late))
+                .withCauseInstanceOf(ClosedChannelException.class);
+
+        try(LogRepository repository = new LogRepository(file,policy,5))
+        {
+            assertThat(repository.getAll(User.class)).containsExactly(user);
+        }
+    }
+
+    @Test
+    public void tornRecordIsDroppedOnRecovery() throws IOException
+    {
+        Path file = directory.resolve("torn.log");
+        addUsers(file,3);
+
+        long size = Files.size(file);
+        try(FileChannel channel = FileChannel.open(file,StandardOpenOption.WRITE))
+        {
+            channel.truncate(size - 5);
+        }
+
+        try(LogRepository repository = new LogRepository(file))
+        {
+            assertThat(repository.getAll(User.class)).extracting(User::getId).containsExactlyInAnyOrder(1L,2L);
+
+            repository.add(new User(null,"nowy@poczta.pl","haslo",true,User.Type.STANDARD));
+        }
+
+        try(LogRepository repository = new LogRepository(file))
+        {
+            assertThat(repository.getAll(User.class)).hasSize(3);
+            assertThat(repository.getUserByEmail("nowy@poczta.pl")).isNotNull();
+        }
+    }
+
+    @Test
+    public void corruptRecordEndsReplay() throws IOException
+    {
+        Path file = directory.resolve("corrupt.log");
+        addUsers(file,3);
+
+        try(RandomAccessFile raf = new RandomAccessFile(file.toFile(),"rw"))
+        {
+            raf.seek(raf.length() - 1);
+            int last = raf.read();
+            raf.seek(raf.length() - 1);
+            raf.write(last ^ 0xFF);
+        }
+
+        try(LogRepository repository = new LogRepository(file))
+        {
+            assertThat(repository.getAll(User.class)).hasSize(2);
+        }
+    }
+
+    @Test
+    public void emptyFileStartsEmptyRepository() throws IOException
+    {
+        Path file = directory.resolve("empty.log");
+        Files.createFile(file);
+
+        try(LogRepository repository = new LogRepository(file))
+        {
+            assertThat(repository.getAll(User.class)).isEmpty();
+            assertThat(repository.getLogSize()).isZero();
+        }
+    }
+
+    @Test
+    public void batchIsReplayedWholeOrNotAtAll() throws IOException
+    {
+        Path file = directory.resolve("batch.log");
+        List<User> users = new ArrayList<>();
+        for(int i = 0; i < 10; i++)
+            users.add(new User(null,"user" + i + "@poczta.pl","haslo",true,User.Type.STANDARD));
+
+        try(LogRepository repository = new LogRepository(file))
+        {
+            repository.add(new User(null,"pierwszy@poczta.pl","haslo",true,User.Type.STANDARD));
+            repository.addAll(User.class,users);
+            users.get(3).setActive(false);
+            repository.updateAll(User.class,Arrays.asList(users.get(3)));
+            repository.deleteAll(User.class,users.subList(5,10));
+        }
+
+        try(LogRepository repository = new LogRepository(file))
+        {
+            assertAll(
+                    () -> assertThat(repository.getAll(User.class)).hasSize(6),
+                    () -> assertThat(repository.get(users.get(3).getId(),User.class).isActive()).isFalse(),
+                    () -> assertThat(repository.getUserByEmail("user9@poczta.pl")).isNull()
+            );
+        }
+
+        // cut into the last batch, the delete of five users
+        try(FileChannel channel = FileChannel.open(file,StandardOpenOption.WRITE))
+        {
+            channel.truncate(Files.size(file) - 3);
+        }
+
+        try(LogRepository repository = new LogRepository(file))
+        {
+            assertThat(repository.getAll(User.class)).hasSize(11);
+        }
+    }
+
+    @Test
+    public void snapshotCompactsLogAndRestoresState() throws IOException
+    {
+        Path file = directory.resolve("snapshot.log");
+        User user = new User(null,"email@poczta.pl","haslo1",false,User.Type.STANDARD);
+        Reservation deleted = new Reservation();
+
+        try(LogRepository repository = new LogRepository(file))
+        {
+            repository.add(user);
+            for(int i = 0; i < 100; i++)
+            {
+                user.setPassword("haslo" + i);
+                repository.update(user);
+            }
+            repository.add(deleted);
+            repository.delete(deleted);
+
+            long sizeBefore = repository.getLogSize();
+            repository.snapshot();
+
+            assertAll(
+                    () -> assertThat(repository.getLogSize()).isZero(),
+                    () -> assertThat(Files.size(directory.resolve("snapshot.log.snapshot"))).isLessThan(sizeBefore / 10),
+                    () -> assertThat(directory.resolve("snapshot.log.old")).doesNotExist()
+            );
+
+            user.setActive(true);
+            repository.update(user);
+        }
+
+        try(LogRepository repository = new LogRepository(file))
+        {
+            Reservation next = new Reservation();
+            repository.add(next);
+
+            assertAll(
+                    () -> assertThat(repository.getAll(User.class)).containsExactly(user),
+                    () -> assertThat(repository.getUserByEmail("email@poczta.pl").getPassword()).isEqualTo("haslo99"),
+                    () -> assertThat(repository.getUserByEmail("email@poczta.pl").isActive()).isTrue(),
+                    () -> assertThat(repository.get(deleted.getId(),Reservation.class)).isNull(),
+                    () -> assertThat(next.getId()).isEqualTo(deleted.getId() + 1)
+            );
+        }
+    }
+
+    @Test
+    public void interruptedSnapshotIsFinishedOnRecovery() throws IOException
+    {
+        Path file = directory.resolve("interrupted.log");
+        addUsers(file,2);
+        try(LogRepository repository = new LogRepository(file))
+        {
+            repository.snapshot();
+            repository.add(new User(null,"trzeci@poczta.pl","haslo",true,User.Type.STANDARD));
+        }
+
+        // the state of a crash right after the log was archived
+        Files.move(file,directory.resolve("interrupted.log.old"));
+
+        try(LogRepository repository = new LogRepository(file))
+        {
+            assertAll(
+                    () -> assertThat(repository.getAll(User.class)).extracting(User::getId).containsExactlyInAnyOrder(1L,2L,3L),
+                    () -> assertThat(directory.resolve("interrupted.log.old")).doesNotExist()
+            );
+        }
+
+        try(LogRepository repository = new LogRepository(file))
+        {
+            assertThat(repository.getAll(User.class)).hasSize(3);
+        }
+    }
+
+    @Test
+    public void snapshotDuringWritesKeepsEveryWrite() throws Exception
+    {
+        Path file = directory.resolve("concurrent.log");
+        List<User> written = new ArrayList<>();
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        try(LogRepository repository = new LogRepository(file,FsyncPolicy.OS_MANAGED,0))
+        {
+            Thread snapshots = new Thread(() -> {
+                try
+                {
+                    while(running.get())
+                        repository.snapshot();
+                }
+                catch(IOException e)
+                {
+                    throw new AssertionError(e);
+                }
+            });
+            snapshots.start();
+
+            for(int i = 0; i < 2000; i++)
+            {
+                User user = new User(null,"user" + i + "@poczta.pl","haslo",false,User.Type.STANDARD);
+                repository.add(user);
+                user.setActive(true);
+                repository.update(user);
+                written.add(user);
+            }
+            running.set(false);
+            snapshots.join();
+        }
+
+        try(LogRepository repository = new LogRepository(file))
+        {
+            assertThat(repository.getAll(User.class)).hasSize(written.size()).allMatch(User::isActive);
+        }
+    }
+
+    private static void addUsers(Path file, int count) throws IOException
+    {
+        try(LogRepository repository = new LogRepository(file))
+        {
+            for(int i = 0; i < count; i++)
+                repository.add(new User(null,"user" + i + "@poczta.pl","haslo",true,User.Type.STANDARD));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package data;
+
+import models.Reservation;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// run with mvn test -Pbenchmarks, the numbers are published as test report entries
+public class OffHeapReservationStoreBenchmark {
+
+    private static final int ROWS = 300000;
+
+    @Test
+    public void footprintAndScanComparedToHashMapRepository(TestReporter reporter)
+    {
+        Repository onHeap = new HashMapRepository();
+        OffHeapRepository offHeap = new OffHeapRepository();
+
+        long heapBefore = usedHeap();
+        fill(onHeap);
+        long hashMapHeap = usedHeap() - heapBefore;
+
+        heapBefore = usedHeap();
+        fill(offHeap);
+        long offHeapHeap = usedHeap() - heapBefore;
+
+        long hashMapScan = timeScan(onHeap);
+        long offHeapScan = timeScan(offHeap);
+
+        OffHeapReservationStore store = (OffHeapReservationStore)offHeap.getRegistry().storeFor(Reservation.class);
+        reporter.publishEntry("reservations", String.valueOf(ROWS));
+        reporter.publishEntry("HashMapRepository heap bytes", String.valueOf(hashMapHeap));
+        reporter.publishEntry("HashMapRepository scan ms", String.valueOf(hashMapScan / 1000000));
+        reporter.publishEntry("OffHeapRepository heap bytes", String.valueOf(offHeapHeap));
+        reporter.publishEntry("OffHeapRepository off-heap bytes", String.valueOf(store.getOffHeapBytes()));
+        reporter.publishEntry("OffHeapRepository scan ms", String.valueOf(offHeapScan / 1000000));
+
+        assertThat(offHeap.getAll(Reservation.class)).hasSize(ROWS);
+        assertThat(onHeap.getAll(Reservation.class)).hasSize(ROWS);
+    }
+
+    private static void fill(Repository repository)
+    {
+        LocalDate start = new LocalDate(2019,1,1);
+        for(int i = 0; i < ROWS; i++)
+        {
+            Reservation r = new Reservation(null,(long)(i % 1000),(long)(i % 50),
+                    new LocalTime(12 + i % 8,0),start.plusDays(i % 365));
+            repository.add(r);
+        }
+    }
+
+    private static long timeScan(Repository repository)
+    {
+        long start = System.nanoTime();
+        List<Reservation> reservations = repository.getAll(Reservation.class);
+        long seats = 0;
+        for(Reservation r : reservations)
+            seats += r.getTableId();
+        assertThat(seats).isPositive();
+        return System.nanoTime() - start;
+    }
+
+    private static long usedHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 3; i++)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,177 @@
+package data;
+
+import models.Reservation;
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+public class OffHeapReservationStoreTests {
+
+    private OffHeapRepository repository;
+
+    @BeforeEach
+    public void setUp()
+    {
+        repository = new OffHeapRepository();
+    }
+
+    @Test
+    public void reservationsRoundTrip()
+    {
+        Reservation reservation = new Reservation(null,3L,7L,new LocalTime(18,30),new LocalDate(2019,2,28));
+        repository.add(reservation);
+
+        Reservation stored = repository.get(reservation.getId(),Reservation.class);
+
+        assertAll(
+                () -> assertThat(stored).isNotSameAs(reservation),
+                () -> assertThat(stored).isEqualTo(reservation),
+                () -> assertThat(stored.getId()).isEqualTo(reservation.getId()),
+                () -> assertThat(repository.getUserReservations(3L)).containsExactly(reservation)
+        );
+
+        stored.setUserId(4L);
+        stored.setTime(new LocalTime(9,0));
+        repository.update(stored);
+        repository.update(new Reservation(99L,1L,1L,null,null));
+
+        assertAll(
+                () -> assertThat(repository.get(reservation.getId(),Reservation.class)).isEqualTo(stored),
+                () -> assertThat(repository.getUserReservations(3L)).isEmpty(),
+                () -> assertThat(repository.getUserReservations(4L)).containsExactly(stored),
+                () -> assertThat(repository.get(99L,Reservation.class)).isNull()
+        );
+
+        repository.delete(stored);
+
+        assertThat(repository.get(reservation.getId(),Reservation.class)).isNull();
+        assertThat(repository.getAll(Reservation.class)).isEmpty();
+    }
+
+    @Test
+    public void streamDecodesRowsInIdOrder()
+    {
+        for(int i = 0; i < 70000; i++)
+            repository.add(new Reservation(null,(long)(i % 10),1L,new LocalTime(12,0),new LocalDate(2019,5,1)));
+        repository.delete(repository.get(1L,Reservation.class));
+
+        assertAll(
+                () -> assertThat(repository.stream(Reservation.class).count()).isEqualTo(69999),
+                () -> assertThat(repository.stream(Reservation.class).findFirst().get().getId()).isEqualTo(2L),
+                () -> assertThat(repository.stream(Reservation.class).parallel().filter(r -> r.getUserId() == 3L).count()).isEqualTo(7000)
+        );
+    }
+
+    @Test
+    public void indexesFollowMovesAndPageInIdOrder()
+    {
+        List<Reservation> reservations = new ArrayList<>();
+        for(int i = 0; i < 10000; i++)
+        {
+            Reservation reservation = new Reservation(null,(long)(i % 4),(long)(i % 3),new LocalTime(12,0),new LocalDate(2019,5,1));
+            repository.add(reservation);
+            reservations.add(reservation);
+        }
+        for(int i = 0; i < 100; i++)
+        {
+            Reservation moved = repository.get(reservations.get(i).getId(),Reservation.class);
+            moved.setUserId(7L);
+            repository.update(moved);
+        }
+        for(int i = 100; i < 200; i++)
+            repository.delete(reservations.get(i));
+
+        List<Reservation> firstPage = repository.getTableReservations(new HashSet<>(Arrays.asList(0L,1L)),0,10);
+        List<Reservation> nextPage = repository.getTableReservations(new HashSet<>(Arrays.asList(0L,1L)),firstPage.get(9).getId(),10);
+
+        assertAll(
+                () -> assertThat(repository.getUserReservations(7L)).hasSize(100),
+                () -> assertThat(repository.getUserReservations(0L)).hasSize(2500 - 50),
+                () -> assertThat(repository.getUserReservations(0L)).allMatch(r -> r.getId() > 200),
+                () -> assertThat(repository.find(Reservation.class,new Query().in(EntityType.USER_ID,Arrays.asList(1L,7L)))).hasSize(2500 - 50 + 100),
+                () -> assertThat(firstPage).extracting(Reservation::getId).containsExactly(1L,2L,4L,5L,7L,8L,10L,11L,13L,14L),
+                () -> assertThat(nextPage).extracting(Reservation::getId).containsExactly(16L,17L,19L,20L,22L,23L,25L,26L,28L,29L)
+        );
+    }
+
+    @Test
+    public void nullFieldsAreKept()
+    {
+        Reservation reservation = new Reservation();
+        repository.add(reservation);
+
+        Reservation stored = repository.get(reservation.getId(),Reservation.class);
+
+        assertAll(
+                () -> assertThat(stored.getUserId()).isNull(),
+                () -> assertThat(stored.getTableId()).isNull(),
+                () -> assertThat(stored.getTime()).isNull(),
+                () -> assertThat(stored.getDate()).isNull()
+        );
+    }
+
+    @Test
+    public void timeOutsideHalfHourSlotsIsRejected()
+    {
+        Reservation reservation = new Reservation(null,1L,1L,new LocalTime(11,11,4),new LocalDate(2019,1,1));
+        Reservation withMillis = new Reservation(null,1L,1L,new LocalTime(11,30,0,500),new LocalDate(2019,1,1));
+        List<Long> logged = new ArrayList<>();
+        repository.getRegistry().storeFor(Reservation.class).addListener(new StoreListener<Reservation>() {
+            @Override
+            public void added(long id, Reservation model) {
+                logged.add(id);
+            }
+
+            @Override
+            public void updated(long id, Reservation model) {
+                logged.add(id);
+            }
+
+            @Override
+            public void deleted(long id) {
+                logged.add(id);
+            }
+        });
+
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> repository.add(reservation));
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> repository.add(withMillis));
+
+        Reservation stored = new Reservation(null,1L,1L,new LocalTime(11,30),new LocalDate(2019,1,1));
+        repository.add(stored);
+        Reservation moved = new Reservation(stored.getId(),2L,1L,new LocalTime(11,30,0,500),new LocalDate(2019,1,1));
+        moved.setVersion(stored.getVersion());
+
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> repository.update(moved));
+        assertAll(
+                () -> assertThat(withMillis.getId()).isNull(),
+                () -> assertThat(withMillis.getVersion()).isZero(),
+                () -> assertThat(logged).containsExactly(stored.getId()),
+                () -> assertThat(repository.getUserReservations(1L)).containsExactly(stored),
+                () -> assertThat(repository.getUserReservations(2L)).isEmpty(),
+                () -> assertThat(repository.getAll(Reservation.class)).containsExactly(stored)
+        );
+    }
+
+    @Test
+    public void epochDaysMatchJoda()
+    {
+        LocalDate epoch = new LocalDate(1970,1,1);
+        for(LocalDate date = new LocalDate(1599,12,1); date.getYear() < 2401; date = date.plusDays(13))
+        {
+            int epochDay = TimeSlots.epochDayOf(date);
+            assertThat(epochDay).isEqualTo(Days.daysBetween(epoch,date).getDays());
+            assertThat(TimeSlots.dateOf(epochDay)).isEqualTo(date);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package data;
+
+import models.Reservation;
+import models.Table;
+import models.User;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+public class QueryTests {
+
+    private Repository repository;
+    private List<Reservation> reservations;
+
+    @BeforeEach
+    public void setUp()
+    {
+        repository = new ArrayRepository();
+        reservations = new ArrayList<>();
+        for(int i = 0; i < 30; i++)
+        {
+            Reservation reservation = new Reservation(null,i % 3 + 1L,i % 5 + 1L,new LocalTime(12,0),new LocalDate(2019,5,1).plusDays(i));
+            repository.add(reservation);
+            reservations.add(reservation);
+        }
+    }
+
+    @Test
+    public void equalityUsesTheSmallestIndex()
+    {
+        reservations.get(0).setTableId(9L);
+        repository.update(reservations.get(0));
+
+        Query query = new Query().eq(EntityType.USER_ID,1L).eq(EntityType.TABLE_ID,9L);
+
+        assertAll(
+                () -> assertThat(repository.find(Reservation.class,query)).containsExactly(reservations.get(0)),
+                () -> assertThat(repository.explain(Reservation.class,query))
+                        .isEqualTo("Reservation: index tableId = 9 (1 candidate), filter userId = 1")
+        );
+    }
+
+    @Test
+    public void rangeConditionsAreFilteredAfterTheIndex()
+    {
+        Query query = new Query().eq(EntityType.USER_ID,2L)
+                .between(EntityType.DATE,new LocalDate(2019,5,5),new LocalDate(2019,5,11));
+
+        assertAll(
+                () -> assertThat(repository.find(Reservation.class,query))
+                        .containsExactly(reservations.get(4),reservations.get(7),reservations.get(10)),
+                () -> assertThat(repository.explain(Reservation.class,query))
+                        .isEqualTo("Reservation: index userId = 2 (10 candidates), filter date >= 2019-05-05 and date <= 2019-05-11")
+        );
+    }
+
+    @Test
+    public void unindexedConditionsFallBackToAScan()
+    {
+        Query query = new Query().greaterThan(EntityType.DATE,new LocalDate(2019,5,27));
+
+        assertAll(
+                () -> assertThat(repository.find(Reservation.class,query))
+                        .containsExactly(reservations.get(27),reservations.get(28),reservations.get(29)),
+                () -> assertThat(repository.explain(Reservation.class,query))
+                        .isEqualTo("Reservation: scan, filter date > 2019-05-27"),
+                () -> assertThat(repository.find(Reservation.class,new Query())).hasSize(30)
+        );
+    }
+
+    @Test
+    public void inConditionProbesEveryKey()
+    {
+        Table table1 = new Table(null,4,1L);
+        Table table2 = new Table(null,2,2L);
+        Table table3 = new Table(null,6,3L);
+        repository.addAll(Table.class,Arrays.asList(table1,table2,table3));
+
+        Query query = new Query().in(EntityType.RESTAURANT_ID,Arrays.asList(1L,3L,7L));
+
+        assertAll(
+                () -> assertThat(repository.find(Table.class,query)).containsExactly(table1,table3),
+                () -> assertThat(repository.explain(Table.class,query)).startsWith("Table: index restaurantId in "),
+                () -> assertThat(repository.find(Table.class,new Query().in(EntityType.RESTAURANT_ID,new ArrayList<>()))).isEmpty()
+        );
+    }
+
+    @Test
+    public void emailsMatchIgnoringCaseThroughTheUniqueIndex()
+    {
+        User admin = new User(null,"Admin@Poczta.pl","haslo1",true,User.Type.ADMIN);
+        User user = new User(null,"user@poczta.pl","haslo1",true,User.Type.STANDARD);
+        repository.add(admin);
+        repository.add(user);
+
+        Query byEmail = new Query().eq(EntityType.EMAIL,"ADMIN@poczta.pl");
+        Query byType = new Query().eq(EntityType.USER_TYPE,User.Type.STANDARD);
+
+        assertAll(
+                () -> assertThat(repository.find(User.class,byEmail)).containsExactly(admin),
+                () -> assertThat(repository.explain(User.class,byEmail)).isEqualTo("User: index email = admin@poczta.pl (1 candidate)"),
+                () -> assertThat(repository.find(User.class,byType)).containsExactly(user),
+                () -> assertThat(repository.explain(User.class,byType)).isEqualTo("User: scan, filter userType = STANDARD")
+        );
+    }
+
+    @Test
+    public void unknownFieldsAreRejected()
+    {
+        assertAll(
+                () -> assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(
+                        () -> repository.find(Table.class,new Query().eq(EntityType.EMAIL,"a@b.pl"))
+                ).withMessage("There is no field email on Table"),
+                () -> assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(
+                        () -> new Query().atLeast(EntityType.DATE,null))
+        );
+    }
+}
@@ -0,0 +1,15 @@
+package data;
+
+import org.junit.platform.engine.reporting.ReportEntry;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+
+// surefire drops the entries tests publish through TestReporter, the benchmarks report their numbers that way
+public class ReportEntryPrinter implements TestExecutionListener {
+
+    @Override
+    public void reportingEntryPublished(TestIdentifier testIdentifier, ReportEntry entry) {
+        entry.getKeyValuePairs().forEach((key, value) ->
+                System.out.printf("%s: %s = %s%n", testIdentifier.getDisplayName(), key, value));
+    }
+}
@@ -0,0 +1,239 @@
+package data;
+
+import errors.DuplicateEntryException;
+import models.Reservation;
+import models.Restaurant;
+import models.Table;
+import models.User;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+public class ShardedRepositoryTests {
+
+    @TempDir
+    Path directory;
+
+    private ShardedRepository repository;
+    private List<Restaurant> restaurants;
+
+    @BeforeEach
+    public void setUp()
+    {
+        repository = new ShardedRepository(3,ConcurrentHashMapRepository::new);
+        restaurants = new ArrayList<>();
+        for(int i = 0; i < 3; i++)
+        {
+            Restaurant restaurant = new Restaurant(null,"Restauracja " + i,"adres " + i,new LocalTime(9,0),new LocalTime(22,0));
+            repository.add(restaurant);
+            restaurants.add(restaurant);
+        }
+    }
+
+    @Test
+    public void idsTellTheShard()
+    {
+        Restaurant restaurant = restaurants.get(1);
+        Table table1 = new Table(null,4,restaurant.getId());
+        Table table2 = new Table(null,2,restaurant.getId());
+        repository.add(table1);
+        repository.add(table2);
+        Reservation reservation = new Reservation(null,1L,table2.getId(),new LocalTime(12,0),new LocalDate(2019,5,1));
+        repository.add(reservation);
+        Repository shard = repository.getShard((int)(restaurant.getId() % 3));
+
+        assertAll(
+                () -> assertThat(restaurants).extracting(r -> r.getId() % 3).containsExactlyInAnyOrder(0L,1L,2L),
+                () -> assertThat(table1.getId() % 3).isEqualTo(restaurant.getId() % 3),
+                () -> assertThat(reservation.getId() % 3).isEqualTo(restaurant.getId() % 3),
+                () -> assertThat(shard.getRestaurantTables(restaurant.getId())).containsExactly(table1,table2),
+                () -> assertThat(shard.get(reservation.getId(),Reservation.class)).isEqualTo(reservation),
+                () -> assertThat(repository.get(table2.getId(),Table.class)).isEqualTo(table2),
+                () -> assertThat(repository.getAll(Restaurant.class)).extracting(Restaurant::getId).containsExactly(1L,2L,3L)
+        );
+
+        repository.delete(table1);
+
+        assertThat(repository.getRestaurantTables(restaurant.getId())).containsExactly(table2);
+    }
+
+    @Test
+    public void readsAcrossRestaurantsAreMergedInIdOrder()
+    {
+        List<Table> tables = new ArrayList<>();
+        for(Restaurant restaurant : restaurants)
+            for(int i = 0; i < 3; i++)
+                tables.add(new Table(null,i + 2,restaurant.getId()));
+        BatchResult<Table> added = repository.addAll(Table.class,tables);
+
+        List<Reservation> reservations = new ArrayList<>();
+        for(Table table : tables)
+            reservations.add(new Reservation(null,table.getSeats() - 1L,table.getId(),new LocalTime(12,0),new LocalDate(2019,5,1)));
+        repository.addAll(Reservation.class,reservations);
+
+        List<Reservation> firstPage = repository.getUserReservations(1L,0,2);
+        Query query = new Query().eq(EntityType.USER_ID,2L);
+
+        assertAll(
+                () -> assertThat(added.isSuccessful()).isTrue(),
+                () -> assertThat(repository.getAll(Table.class)).extracting(Table::getId).isSorted().hasSize(9),
+                () -> assertThat(repository.getUserReservations(1L)).hasSize(3).extracting(Reservation::getId).isSorted(),
+                () -> assertThat(firstPage).hasSize(2),
+                () -> assertThat(repository.getUserReservations(1L,firstPage.get(1).getId(),2)).hasSize(1),
+                () -> assertThat(repository.getPage(Reservation.class,0,4)).extracting(Reservation::getId).containsExactly(1L,2L,3L,4L),
+                () -> assertThat(repository.find(Reservation.class,query)).hasSize(3).allMatch(r -> r.getUserId()==2L),
+                () -> assertThat(repository.explain(Reservation.class,query))
+                        .startsWith("Reservation: 3 shards, shard 0 index userId = 2 (1 candidate); shard 1 index userId = 2"),
+                () -> assertThat(repository.getTableReservations(Arrays.asList(tables.get(0).getId(),tables.get(4).getId()),0,10))
+                        .extracting(Reservation::getTableId).containsExactlyInAnyOrder(tables.get(0).getId(),tables.get(4).getId())
+        );
+    }
+
+    @Test
+    public void emailsAreUniqueOverAllShards()
+    {
+        User first = new User(null,"email@poczta.pl","haslo1",true,User.Type.STANDARD);
+        User second = new User(null,"inny@poczta.pl","haslo1",true,User.Type.STANDARD);
+        repository.add(first);
+        repository.add(second);
+
+        assertAll(
+                () -> assertThat(first.getId() % 3).isNotEqualTo(second.getId() % 3),
+                () -> assertThatExceptionOfType(DuplicateEntryException.class).isThrownBy(
+                        () -> repository.add(new User(null,"EMAIL@poczta.pl","haslo1",true,User.Type.STANDARD))),
+                () -> assertThatExceptionOfType(DuplicateEntryException.class).isThrownBy(
+                        () -> repository.update(new User(second.getId(),"email@poczta.pl","haslo1",true,User.Type.STANDARD))),
+                () -> assertThat(repository.getUserByEmail("Email@Poczta.pl")).isEqualTo(first),
+                () -> assertThat(repository.getAll(User.class)).containsExactlyInAnyOrder(first,second).extracting(User::getId).isSorted()
+        );
+
+        repository.update(new User(first.getId(),"email@poczta.pl","haslo2",true,User.Type.ADMIN));
+
+        assertThat(repository.getUserByEmail("email@poczta.pl").getPassword()).isEqualTo("haslo2");
+    }
+
+    @Test
+    public void tablesCantMoveToAnotherShard()
+    {
+        Table table = new Table(null,4,restaurants.get(0).getId());
+        repository.add(table);
+
+        Table moved = new Table(table.getId(),4,restaurants.get(1).getId());
+        Table sameRestaurant = new Table(table.getId(),6,restaurants.get(0).getId());
+
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> repository.update(moved))
+                .withMessageContaining("another shard");
+
+        repository.update(sameRestaurant);
+
+        assertThat(repository.get(table.getId(),Table.class).getSeats()).isEqualTo(6);
+    }
+
+    @Test
+    public void concurrentAddsGetUniqueIds() throws Exception
+    {
+        int threads = 4;
+        int perThread = 2000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<>();
+        for(int t = 0; t < threads; t++)
+            results.add(executor.submit(() -> {
+                for(int i = 0; i < perThread; i++)
+                    repository.add(new Table(null,4,restaurants.get(i % 3).getId()));
+                return null;
+            }));
+        for(Future<?> result : results)
+            result.get();
+        executor.shutdown();
+        executor.awaitTermination(10,TimeUnit.SECONDS);
+
+        List<Table> tables = repository.getAll(Table.class);
+        Set<Long> ids = new HashSet<>();
+        for(Table table : tables)
+            ids.add(table.getId());
+
+        assertAll(
+                () -> assertThat(ids).hasSize(threads * perThread),
+                () -> assertThat(tables).allMatch(table -> table.getId() % 3 == table.getRestaurantId() % 3)
+        );
+    }
+
+    @Test
+    public void replayedShardsKeepTheirIds() throws IOException
+    {
+        ShardedRepository logged = openLogShards();
+        List<Restaurant> before = new ArrayList<>();
+        for(int i = 0; i < 7; i++)
+        {
+            Restaurant restaurant = new Restaurant(null,"Restauracja " + i,"adres " + i,new LocalTime(9,0),new LocalTime(22,0));
+            logged.add(restaurant);
+            before.add(restaurant);
+        }
+        closeLogShards(logged);
+
+        ShardedRepository replayed = openLogShards();
+        List<Restaurant> after = new ArrayList<>();
+        for(int i = 0; i < 7; i++)
+        {
+            Restaurant restaurant = new Restaurant(null,"Nowa " + i,"adres " + i,new LocalTime(9,0),new LocalTime(22,0));
+            replayed.add(restaurant);
+            after.add(restaurant);
+        }
+
+        Set<Long> ids = new HashSet<>();
+        for(Restaurant restaurant : before)
+            ids.add(restaurant.getId());
+        for(Restaurant restaurant : after)
+            ids.add(restaurant.getId());
+
+        assertAll(
+                () -> assertThat(ids).hasSize(14),
+                () -> assertThat(replayed.getAll(Restaurant.class)).hasSize(14),
+                () -> assertThat(before).allMatch(r -> replayed.get(r.getId(),Restaurant.class).getName().equals(r.getName())),
+                () -> assertThat(after).allMatch(r -> replayed.get(r.getId(),Restaurant.class).getName().equals(r.getName()))
+        );
+        closeLogShards(replayed);
+    }
+
+    private ShardedRepository openLogShards()
+    {
+        AtomicInteger next = new AtomicInteger();
+        return new ShardedRepository(3,() -> {
+            try
+            {
+                return new LogRepository(directory.resolve("shard" + next.getAndIncrement() + ".log"));
+            }
+            catch(IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static void closeLogShards(ShardedRepository sharded) throws IOException
+    {
+        for(int i = 0; i < sharded.getShardCount(); i++)
+            ((LogRepository)sharded.getShard(i)).close();
+    }
+}
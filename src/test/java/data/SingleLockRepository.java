@@ -0,0 +1,58 @@
+package data;
+
+import models.Reservation;
+import models.Table;
+import models.User;
+
+import java.util.List;
+
+// serializes every call of the repository it wraps, the baseline the concurrent repositories are compared to
+class SingleLockRepository implements Repository
+{
+    private final Repository inner;
+
+    SingleLockRepository(Repository inner)
+    {
+        this.inner = inner;
+    }
+
+    @Override
+    public synchronized <T> void add(T model) {
+        inner.add(model);
+    }
+
+    @Override
+    public synchronized <T> void update(T model) {
+        inner.update(model);
+    }
+
+    @Override
+    public synchronized <T> T get(long id, Class<T> modelClass) {
+        return inner.get(id, modelClass);
+    }
+
+    @Override
+    public synchronized <T> List<T> getAll(Class<T> modelClass) {
+        return inner.getAll(modelClass);
+    }
+
+    @Override
+    public synchronized <T> void delete(T model) {
+        inner.delete(model);
+    }
+
+    @Override
+    public synchronized List<Reservation> getUserReservations(long userId) {
+        return inner.getUserReservations(userId);
+    }
+
+    @Override
+    public synchronized List<Table> getRestaurantTables(long restaurantId) {
+        return inner.getRestaurantTables(restaurantId);
+    }
+
+    @Override
+    public synchronized User getUserByEmail(String email) {
+        return inner.getUserByEmail(email);
+    }
+}
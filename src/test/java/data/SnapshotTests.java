@@ -0,0 +1,173 @@
+package data;
+
+import models.Reservation;
+import models.Restaurant;
+import models.Table;
+import models.User;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+public class SnapshotTests {
+
+    @Test
+    public void snapshotKeepsTheStateItWasOpenedWith()
+    {
+        StoreRepository repository = new HashMapRepository();
+        User user = new User(null,"email@poczta.pl","haslo1",true,User.Type.STANDARD);
+        Restaurant restaurant = new Restaurant(null,"Restauracja","adres 1",new LocalTime(9,0),new LocalTime(18,0));
+        repository.add(user);
+        repository.add(restaurant);
+        Table table = new Table(null,4,restaurant.getId());
+        repository.add(table);
+
+        try(Snapshot snapshot = repository.openSnapshot())
+        {
+            repository.update(new User(user.getId(),"nowy@poczta.pl","haslo2",true,User.Type.ADMIN));
+            repository.delete(table);
+            repository.add(new Table(null,2,restaurant.getId()));
+            repository.add(new User(null,"email2@poczta.pl","haslo1",true,User.Type.STANDARD));
+
+            assertAll(
+                    () -> assertThat(snapshot.get(user.getId(),User.class).getEmail()).isEqualTo("email@poczta.pl"),
+                    () -> assertThat(snapshot.getUserByEmail("email@poczta.pl").getId()).isEqualTo(user.getId()),
+                    () -> assertThat(snapshot.getUserByEmail("nowy@poczta.pl")).isNull(),
+                    () -> assertThat(snapshot.getAll(User.class)).hasSize(1),
+                    () -> assertThat(snapshot.getRestaurantTables(restaurant.getId())).extracting(Table::getId).containsExactly(table.getId()),
+                    () -> assertThat(snapshot.get(table.getId(),Table.class).getSeats()).isEqualTo(4),
+                    () -> assertThat(repository.getUserByEmail("nowy@poczta.pl").getId()).isEqualTo(user.getId()),
+                    () -> assertThat(repository.getRestaurantTables(restaurant.getId())).hasSize(1),
+                    () -> assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> snapshot.add(user))
+            );
+        }
+
+        try(Snapshot snapshot = repository.openSnapshot())
+        {
+            assertThat(snapshot.getAll(User.class)).extracting(User::getEmail).containsExactly("nowy@poczta.pl","email2@poczta.pl");
+        }
+    }
+
+    @Test
+    public void modelsChangedInPlaceDontLeakIntoTheSnapshot()
+    {
+        StoreRepository repository = new HashMapRepository();
+        Table table = new Table(null,4,1L);
+        repository.add(table);
+
+        try(Snapshot snapshot = repository.openSnapshot())
+        {
+            Table stored = repository.get(table.getId(),Table.class);
+            stored.setSeats(9);
+
+            assertThat(snapshot.get(table.getId(),Table.class).getSeats()).isEqualTo(4);
+
+            repository.update(stored);
+
+            assertAll(
+                    () -> assertThat(snapshot.get(table.getId(),Table.class).getSeats()).isEqualTo(4),
+                    () -> assertThat(snapshot.getAll(Table.class)).extracting(Table::getSeats).containsExactly(4),
+                    () -> assertThat(repository.get(table.getId(),Table.class).getSeats()).isEqualTo(9)
+            );
+        }
+    }
+
+    @Test
+    public void queriesOnASnapshotFollowTheOldIndexKeys()
+    {
+        StoreRepository repository = new ArrayRepository();
+        List<Reservation> reservations = new ArrayList<>();
+        for(int i = 0; i < 6; i++)
+            reservations.add(new Reservation(null,i % 2 + 1L,1L,new LocalTime(12,0),new LocalDate(2019,5,1)));
+        repository.addAll(Reservation.class,reservations);
+
+        Snapshot snapshot = repository.openSnapshot();
+        Reservation moved = new Reservation(reservations.get(0).getId(),2L,1L,new LocalTime(12,0),new LocalDate(2019,5,1));
+        repository.update(moved);
+        repository.deleteAll(Reservation.class,Arrays.asList(reservations.get(2),reservations.get(3)));
+
+        Query query = new Query().eq(EntityType.USER_ID,1L);
+
+        assertAll(
+                () -> assertThat(snapshot.getUserReservations(1L)).extracting(Reservation::getId).containsExactly(1L,3L,5L),
+                () -> assertThat(snapshot.find(Reservation.class,query)).extracting(Reservation::getId).containsExactly(1L,3L,5L),
+                () -> assertThat(repository.find(Reservation.class,query)).extracting(Reservation::getId).containsExactly(5L),
+                () -> assertThat(snapshot.getAll(Reservation.class)).hasSize(6)
+        );
+        snapshot.close();
+        snapshot.close();
+
+        try(Snapshot latest = repository.openSnapshot())
+        {
+            assertThat(latest.getAll(Reservation.class)).hasSize(4);
+        }
+    }
+
+    @Test
+    public void readersSeeWholeBatchesWhileWritersKeepGoing() throws Exception
+    {
+        StoreRepository repository = new ConcurrentHashMapRepository();
+        List<Table> tables = new ArrayList<>();
+        for(int i = 0; i < 10; i++)
+            tables.add(new Table(null,10,1L));
+        repository.addAll(Table.class,tables);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        // seats move between two tables in one batch, so the total never changes
+        Future<Integer> writer = executor.submit(() -> {
+            int moves = 0;
+            while(running.get())
+            {
+                Table from = repository.get(moves % 10 + 1L,Table.class);
+                Table to = repository.get((moves + 3) % 10 + 1L,Table.class);
+                repository.updateAll(Table.class,Arrays.asList(
+                        new Table(from.getId(),from.getSeats() - 1,1L),
+                        new Table(to.getId(),to.getSeats() + 1,1L)));
+                moves++;
+            }
+            return moves;
+        });
+        List<Future<Integer>> readers = new ArrayList<>();
+        for(int r = 0; r < 2; r++)
+            readers.add(executor.submit(() -> {
+                int torn = 0;
+                for(int i = 0; i < 2000; i++)
+                {
+                    try(Snapshot snapshot = repository.openSnapshot())
+                    {
+                        int seats = snapshot.getAll(Table.class).stream().mapToInt(Table::getSeats).sum();
+                        if(seats!=100)
+                            torn++;
+                    }
+                }
+                return torn;
+            }));
+
+        int torn = 0;
+        for(Future<Integer> reader : readers)
+            torn += reader.get();
+        running.set(false);
+        int moves = writer.get();
+        executor.shutdown();
+        executor.awaitTermination(10,TimeUnit.SECONDS);
+
+        assertAll(
+                () -> assertThat(moves).isPositive(),
+                () -> assertThat(repository.getAll(Table.class).stream().mapToInt(Table::getSeats).sum()).isEqualTo(100)
+        );
+        assertThat(torn).isZero();
+    }
+}
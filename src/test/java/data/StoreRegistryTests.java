@@ -0,0 +1,102 @@
+package data;
+
+import models.Reservation;
+import models.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+public class StoreRegistryTests {
+
+    private StoreRegistry registry;
+
+    @BeforeEach
+    public void setUp()
+    {
+        registry = StoreRegistry.of(MapEntityStore::concurrent);
+    }
+
+    @Test
+    public void defaultModelsAreRegistered()
+    {
+        for(EntityType<?> type : EntityType.values())
+            assertThat(registry.storeFor(type.getModelClass()).getType()).isSameAs(type);
+    }
+
+    @Test
+    public void subclassesResolveToTheirModelStore()
+    {
+        User user = new User() {};
+
+        assertThat(registry.storeOf(user)).isSameAs(registry.storeFor(User.class));
+    }
+
+    @Test
+    public void unknownTypesAreRejected()
+    {
+        assertAll(
+                () -> assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> registry.storeFor(Object.class)),
+                () -> assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> registry.storeOf("model"))
+        );
+    }
+
+    @Test
+    public void newTypesPlugIntoRepository()
+    {
+        StoreRepository repository = new ConcurrentHashMapRepository();
+        EntityType<Note> noteType = new EntityType<>(Note.class,Note::getId,Note::setId)
+                .withIndex("reservationId",Note::getReservationId);
+        repository.register(MapEntityStore.concurrent(noteType));
+
+        Note note = new Note(7L);
+        repository.add(note);
+
+        assertAll(
+                () -> assertThat(repository.get(note.getId(),Note.class)).isSameAs(note),
+                () -> assertThat(repository.getAll(Note.class)).containsExactly(note),
+                () -> assertThat(repository.getRegistry().storeFor(Note.class).find("reservationId",7L)).containsExactly(note),
+                () -> assertThat(repository.getAll(Reservation.class)).isEmpty()
+        );
+
+        repository.delete(note);
+
+        assertThat(repository.get(note.getId(),Note.class)).isNull();
+    }
+
+    @Test
+    public void missingIndexIsRejected()
+    {
+        EntityStore<User> users = registry.storeFor(User.class);
+
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> users.find("password","haslo"));
+    }
+
+    private static class Note
+    {
+        private Long id;
+        private final Long reservationId;
+
+        Note(Long reservationId)
+        {
+            this.reservationId = reservationId;
+        }
+
+        Long getId()
+        {
+            return id;
+        }
+
+        void setId(Long id)
+        {
+            this.id = id;
+        }
+
+        Long getReservationId()
+        {
+            return reservationId;
+        }
+    }
+}
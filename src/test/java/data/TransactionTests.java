@@ -0,0 +1,223 @@
+package data;
+
+import errors.DuplicateEntryException;
+import errors.VersionConflictException;
+import models.Reservation;
+import models.Restaurant;
+import models.Table;
+import models.User;
+import org.joda.time.LocalTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+public class TransactionTests {
+
+    private Repository repository;
+    private Table table;
+
+    @BeforeEach
+    public void setUp()
+    {
+        repository = new ConcurrentHashMapRepository();
+        table = new Table(null,4,1L);
+        repository.add(table);
+    }
+
+    @Test
+    public void writesLandOnCommitOnly()
+    {
+        Transaction transaction = Transaction.of(repository);
+        Reservation reservation = new Reservation(null,1L,transaction.get(table.getId(),Table.class).getId(),null,null);
+        transaction.add(reservation);
+
+        assertThat(repository.getAll(Reservation.class)).isEmpty();
+
+        transaction.commit();
+
+        assertAll(
+                () -> assertThat(reservation.getId()).isEqualTo(1L),
+                () -> assertThat(repository.getAll(Reservation.class)).containsExactly(reservation),
+                () -> assertThatExceptionOfType(IllegalStateException.class).isThrownBy(transaction::commit)
+        );
+    }
+
+    @Test
+    public void modelsReadOutsideAreCheckedOnCommit()
+    {
+        Table read = repository.get(table.getId(),Table.class);
+
+        Transaction unchanged = Transaction.of(repository);
+        unchanged.expect(table.getId(),Table.class,read);
+        unchanged.add(new Reservation(null,1L,table.getId(),null,null));
+        unchanged.commit();
+
+        Transaction changed = Transaction.of(repository);
+        changed.expect(table.getId(),Table.class,read);
+        changed.add(new Reservation(null,1L,table.getId(),null,null));
+        repository.update(new Table(table.getId(),6,1L));
+
+        assertThatExceptionOfType(VersionConflictException.class).isThrownBy(changed::commit);
+        assertThat(repository.getAll(Reservation.class)).hasSize(1);
+    }
+
+    @Test
+    public void changedReadsRejectTheCommit()
+    {
+        Transaction changed = Transaction.of(repository);
+        changed.get(table.getId(),Table.class);
+        changed.add(new Reservation(null,1L,table.getId(),null,null));
+
+        Transaction deleted = Transaction.of(repository);
+        deleted.get(table.getId(),Table.class);
+        deleted.add(new Reservation(null,1L,table.getId(),null,null));
+
+        Transaction appeared = Transaction.of(repository);
+        appeared.get(2L,Table.class);
+        appeared.add(new Reservation(null,1L,2L,null,null));
+
+        repository.update(new Table(table.getId(),6,1L));
+
+        assertThatExceptionOfType(VersionConflictException.class).isThrownBy(changed::commit).withMessageContaining("version 1");
+
+        repository.delete(table);
+        repository.add(new Table(null,2,1L));
+
+        assertAll(
+                () -> assertThatExceptionOfType(VersionConflictException.class).isThrownBy(deleted::commit).withMessageContaining("deleted"),
+                () -> assertThatExceptionOfType(VersionConflictException.class).isThrownBy(appeared::commit),
+                () -> assertThat(repository.getAll(Reservation.class)).isEmpty()
+        );
+    }
+
+    @Test
+    public void conflictingCommitsUseUpNoIds()
+    {
+        Transaction changed = Transaction.of(repository);
+        changed.get(table.getId(),Table.class);
+        changed.add(new Reservation(null,1L,table.getId(),null,null));
+        changed.add(new Table(null,2,1L));
+        repository.update(new Table(table.getId(),6,1L));
+
+        assertThatExceptionOfType(VersionConflictException.class).isThrownBy(changed::commit);
+
+        Reservation reservation = new Reservation(null,1L,table.getId(),null,null);
+        Table added = new Table(null,2,1L);
+        Transaction retried = Transaction.of(repository);
+        retried.get(table.getId(),Table.class);
+        retried.add(reservation);
+        retried.add(added);
+        retried.commit();
+
+        assertAll(
+                () -> assertThat(reservation.getId()).isEqualTo(1L),
+                () -> assertThat(added.getId()).isEqualTo(table.getId() + 1)
+        );
+    }
+
+    @Test
+    public void failingWriteTakesBackTheOthers()
+    {
+        repository.add(new User(null,"zajety@poczta.pl","haslo1",true,User.Type.STANDARD));
+
+        Transaction transaction = Transaction.of(repository);
+        transaction.update(new Table(table.getId(),8,1L));
+        transaction.add(new Reservation(null,1L,table.getId(),null,null));
+        transaction.add(new User(null,"zajety@poczta.pl","haslo2",true,User.Type.STANDARD));
+
+        assertThatExceptionOfType(DuplicateEntryException.class).isThrownBy(transaction::commit);
+
+        assertAll(
+                () -> assertThat(repository.get(table.getId(),Table.class).getSeats()).isEqualTo(4),
+                () -> assertThat(repository.getAll(Reservation.class)).isEmpty(),
+                () -> assertThat(repository.getAll(User.class)).hasSize(1)
+        );
+    }
+
+    @Test
+    public void undoneWritesComeBackWhole()
+    {
+        ArrayRepository repository = new ArrayRepository();
+        Table kept = new Table(null,4,1L);
+        Table deleted = new Table(null,2,1L);
+        repository.add(kept);
+        repository.add(deleted);
+        Restaurant restaurant = new Restaurant(null,"Restauracja","adres 1",new LocalTime(9,0),new LocalTime(18,0));
+        repository.add(restaurant);
+        repository.add(new User(null,"zajety@poczta.pl","haslo1",true,User.Type.STANDARD));
+
+        Transaction transaction = Transaction.of(repository);
+        // the stored model itself is changed before the update
+        Table stored = transaction.get(kept.getId(),Table.class);
+        stored.setSeats(8);
+        transaction.update(stored);
+        transaction.delete(deleted);
+        transaction.delete(restaurant);
+        transaction.add(new User(null,"zajety@poczta.pl","haslo2",true,User.Type.STANDARD));
+
+        assertThatExceptionOfType(DuplicateEntryException.class).isThrownBy(transaction::commit);
+        int released = repository.compact();
+
+        assertAll(
+                () -> assertThat(repository.get(kept.getId(),Table.class).getSeats()).isEqualTo(4),
+                () -> assertThat(repository.get(kept.getId(),Table.class).getVersion()).isEqualTo(1),
+                () -> assertThat(repository.get(deleted.getId(),Table.class).getSeats()).isEqualTo(2),
+                () -> assertThat(repository.getAll(Table.class)).extracting(Table::getSeats).containsExactly(4,2),
+                () -> assertThat(repository.getRestaurantTables(1L)).hasSize(2),
+                () -> assertThat(repository.getAll(Restaurant.class)).containsExactly(restaurant),
+                () -> assertThat(released).isZero()
+        );
+    }
+
+    @Test
+    public void checkedIncrementsAreNotLost() throws Exception
+    {
+        int threads = 4;
+        int increments = 300;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<>();
+        for(int t = 0; t < threads; t++)
+            results.add(executor.submit(() -> {
+                for(int i = 0; i < increments; i++)
+                {
+                    while(true)
+                    {
+                        Transaction transaction = Transaction.of(repository);
+                        Table current = transaction.get(table.getId(),Table.class);
+                        transaction.update(new Table(current.getId(),current.getSeats() + 1,1L));
+                        transaction.add(new Reservation(null,1L,current.getId(),null,null));
+                        try
+                        {
+                            transaction.commit();
+                            break;
+                        }
+                        catch(VersionConflictException e)
+                        {
+                            // read again
+                        }
+                    }
+                }
+                return null;
+            }));
+        for(Future<?> result : results)
+            result.get();
+        executor.shutdown();
+        executor.awaitTermination(10,TimeUnit.SECONDS);
+
+        assertAll(
+                () -> assertThat(repository.get(table.getId(),Table.class).getSeats()).isEqualTo(4 + threads * increments),
+                () -> assertThat(repository.getAll(Reservation.class)).hasSize(threads * increments)
+        );
+    }
+}
@@ -0,0 +1,55 @@
+package services;
+
+import data.ConcurrentHashMapRepository;
+import data.Repository;
+import models.Reservation;
+import models.Restaurant;
+import models.Table;
+import models.User;
+import org.joda.time.LocalTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// run with mvn test -Pbenchmarks, the numbers are published as test report entries
+public class CsvBulkLoaderBenchmark {
+
+    private static final int ROWS = 200000;
+
+    @Test
+    public void largeReservationFeed(TestReporter reporter) throws IOException
+    {
+        Repository concurrent = new ConcurrentHashMapRepository();
+        Restaurant restaurant = new Restaurant(null,"Restauracja","adres 1",new LocalTime(0,0),new LocalTime(23,30));
+        concurrent.add(restaurant);
+        Table table = new Table(null,4,restaurant.getId());
+        concurrent.add(table);
+        User user = new User(null,"email@poczta.pl","haslo",true,User.Type.STANDARD);
+        concurrent.add(user);
+
+        StringBuilder csv = new StringBuilder();
+        for(int i = 0; i < ROWS; i++)
+        {
+            if(i % 1000 == 999)
+                csv.append(user.getId()).append(',').append(table.getId()).append(",12:15:00,2019-05-01\n");
+            else
+                csv.append(user.getId()).append(',').append(table.getId()).append(',')
+                        .append(String.format("%02d:%02d:00", (i / 2) % 23, (i % 2) * 30)).append(",2019-05-01\n");
+        }
+
+        long start = System.nanoTime();
+        ImportReport report = new CsvBulkLoader(concurrent,new ForkJoinPool(4)).loadReservations(new StringReader(csv.toString()));
+        long elapsed = System.nanoTime() - start;
+
+        reporter.publishEntry("rows", String.valueOf(ROWS));
+        reporter.publishEntry("CsvBulkLoader ms", String.valueOf(elapsed / 1000000));
+
+        assertThat(report.getImported("Reservation")).isEqualTo(ROWS - ROWS / 1000);
+        assertThat(concurrent.getAll(Reservation.class)).hasSize(ROWS - ROWS / 1000);
+    }
+}
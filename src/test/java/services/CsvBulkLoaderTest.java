@@ -0,0 +1,148 @@
+package services;
+
+import data.ConcurrentHashMapRepository;
+import data.HashMapRepository;
+import data.Repository;
+import models.Reservation;
+import models.Restaurant;
+import models.Table;
+import models.User;
+import org.joda.time.LocalTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+public class CsvBulkLoaderTest {
+    private Repository repository;
+
+    //Tested
+    private CsvBulkLoader loader;
+
+    @BeforeEach
+    public void setUp()
+    {
+        repository = new HashMapRepository();
+        loader = new CsvBulkLoader(repository);
+    }
+
+    @Test
+    public void validResourcesAreLoaded() throws IOException
+    {
+        ImportReport users = loader.loadUsers(resource("valid_users.csv"));
+        ImportReport restaurants = loader.loadRestaurants(resource("valid_restaurants.csv"));
+
+        assertAll(
+                () -> assertThat(users.getImported("User")).isEqualTo(3),
+                () -> assertThat(users.getRejections()).isEmpty(),
+                () -> assertThat(repository.getUserByEmail("maciek@nowak.pl").getPassword()).isEqualTo("yiodrhgayirh"),
+                () -> assertThat(restaurants.getImported("Restaurant")).isEqualTo(3),
+                () -> assertThat(restaurants.getRejections()).isEmpty(),
+                () -> assertThat(repository.getAll(Restaurant.class))
+                        .extracting(Restaurant::getName)
+                        .containsExactlyInAnyOrder("Restauracja","Nowa restauracja 51","Długo otwarta restauracja")
+        );
+    }
+
+    @Test
+    public void invalidResourcesAreRejectedWithLineNumbers() throws IOException
+    {
+        ImportReport users = loader.loadUsers(resource("invalid_users.csv"));
+        ImportReport restaurants = loader.loadRestaurants(resource("invalid_restaurants.csv"));
+        ImportReport tables = loader.loadTables(resource("invalid_tables.csv"));
+        ImportReport reservations = loader.loadReservations(resource("invalid_reservations.csv"));
+
+        assertAll(
+                () -> assertThat(users.getImportedTotal()).isZero(),
+                () -> assertThat(users.getRejections()).extracting(ImportReport.Rejection::getLine)
+                        .containsExactly(1L,2L,3L,4L,5L,6L,7L,8L,9L),
+                () -> assertThat(users.getRejections().get(7).toString()).isEqualTo("line 8: User: password is not valid"),
+                () -> assertThat(restaurants.getImportedTotal()).isZero(),
+                () -> assertThat(restaurants.getRejections()).hasSize(6),
+                () -> assertThat(tables.getImportedTotal()).isZero(),
+                () -> assertThat(tables.getRejections()).hasSize(4),
+                () -> assertThat(reservations.getImportedTotal()).isZero(),
+                () -> assertThat(reservations.getRejections()).extracting(ImportReport.Rejection::getError)
+                        .containsExactly("Reservation: user id is not valid","Reservation: table id is not valid","Reservation: time is not valid"),
+                () -> assertThat(repository.getAll(User.class)).isEmpty()
+        );
+    }
+
+    @Test
+    public void serviceChecksRejectRowsThatParse() throws IOException
+    {
+        Restaurant restaurant = new Restaurant(null,"Restauracja","adres 1",new LocalTime(9,0),new LocalTime(18,0));
+        repository.add(restaurant);
+
+        ImportReport tables = loader.loadTables(new StringReader("4," + restaurant.getId() + "\n\n2,99\nfour,1\n4,1,5\n"));
+
+        assertAll(
+                () -> assertThat(tables.getImported("Table")).isEqualTo(1),
+                () -> assertThat(tables.getRejections()).extracting(ImportReport.Rejection::getLine).containsExactly(3L,4L,5L),
+                () -> assertThat(tables.getRejections()).extracting(ImportReport.Rejection::getError).containsExactly(
+                        "There is no Restaurant with id 99",
+                        "Table: For input string: \"four\"",
+                        "Table: expected 2 columns but found 3"),
+                () -> assertThat(repository.getRestaurantTables(restaurant.getId())).hasSize(1)
+        );
+    }
+
+    @Test
+    public void quotedFieldsKeepCommasAndQuotes() throws IOException
+    {
+        ImportReport restaurants = loader.loadRestaurants(new StringReader(
+                "\"Bar \"\"Pod Kogutem\"\"\",\"ul. Długa 1, Gdańsk\",\"09:00:00\",\"18:00:00\"\n"));
+
+        Restaurant restaurant = repository.getAll(Restaurant.class).get(0);
+        assertAll(
+                () -> assertThat(restaurants.getImported("Restaurant")).isEqualTo(1),
+                () -> assertThat(restaurant.getName()).isEqualTo("Bar \"Pod Kogutem\""),
+                () -> assertThat(restaurant.getAddress()).isEqualTo("ul. Długa 1, Gdańsk")
+        );
+    }
+
+    @Test
+    public void reservationFeedIsLoadedInParallel() throws IOException
+    {
+        int rows = 5000;
+        Repository concurrent = new ConcurrentHashMapRepository();
+        Restaurant restaurant = new Restaurant(null,"Restauracja","adres 1",new LocalTime(0,0),new LocalTime(23,30));
+        concurrent.add(restaurant);
+        Table table = new Table(null,4,restaurant.getId());
+        concurrent.add(table);
+        User user = new User(null,"email@poczta.pl","haslo",true,User.Type.STANDARD);
+        concurrent.add(user);
+
+        StringBuilder csv = new StringBuilder();
+        for(int i = 0; i < rows; i++)
+        {
+            if(i % 1000 == 999)
+                csv.append(user.getId()).append(',').append(table.getId()).append(",12:15:00,2019-05-01\n");
+            else
+                csv.append(user.getId()).append(',').append(table.getId()).append(',')
+                        .append(String.format("%02d:%02d:00", (i / 2) % 23, (i % 2) * 30)).append(",2019-05-01\n");
+        }
+
+        ImportReport report = new CsvBulkLoader(concurrent,new ForkJoinPool(4)).loadReservations(new StringReader(csv.toString()));
+
+        assertAll(
+                () -> assertThat(report.getRejections()).hasSize(rows / 1000),
+                () -> assertThat(report.getRejections().get(0).getLine()).isEqualTo(1000L),
+                () -> assertThat(report.getImported("Reservation")).isEqualTo(rows - rows / 1000),
+                () -> assertThat(concurrent.getAll(Reservation.class)).hasSize(rows - rows / 1000)
+        );
+    }
+
+    private Reader resource(String name)
+    {
+        return new InputStreamReader(getClass().getResourceAsStream("../" + name),StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,118 @@
+package services;
+
+import data.HashMapRepository;
+import data.Repository;
+import models.Reservation;
+import models.Restaurant;
+import models.Table;
+import models.User;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+public class JsonDumpServiceTest {
+    private Repository source;
+
+    @BeforeEach
+    public void setUp()
+    {
+        source = new HashMapRepository();
+    }
+
+    @Test
+    public void exportedDumpImportsIntoEmptyRepository() throws Exception
+    {
+        Restaurant restaurant = new Restaurant(null,"Restauracja","Gdańsk gdzieś",new LocalTime(9,0),new LocalTime(18,0));
+        source.add(new Restaurant(null,"Usunięta","adres 2",new LocalTime(9,0),new LocalTime(18,0)));
+        new RestaurantService(source).add(restaurant);
+        Table table = new Table(null,4,restaurant.getId());
+        new TableService(source).add(table);
+        User user = new User(null,"email@poczta.pl","haslo1",true,User.Type.MODERATOR);
+        new UserService(source).add(user);
+        Reservation reservation = new Reservation(null,user.getId(),table.getId(),new LocalTime(12,30),new LocalDate(2019,5,1));
+        new ReservationService(source).add(reservation);
+        source.delete(source.get(1L,Restaurant.class));
+
+        ByteArrayOutputStream dump = new ByteArrayOutputStream();
+        new JsonDumpService(source).exportTo(dump);
+
+        Repository target = new HashMapRepository();
+        ImportReport report = new JsonDumpService(target).importFrom(new ByteArrayInputStream(dump.toByteArray()));
+
+        Restaurant importedRestaurant = target.getAll(Restaurant.class).get(0);
+        Table importedTable = target.getRestaurantTables(importedRestaurant.getId()).get(0);
+        User importedUser = target.getUserByEmail("email@poczta.pl");
+        assertAll(
+                () -> assertThat(dump.toString("UTF-8")).doesNotContain("valid"),
+                () -> assertThat(report.getRejections()).isEmpty(),
+                () -> assertThat(report.getImportedTotal()).isEqualTo(4),
+                () -> assertThat(importedRestaurant).isEqualTo(restaurant),
+                () -> assertThat(importedTable.getSeats()).isEqualTo(4),
+                () -> assertThat(importedUser).isEqualTo(user),
+                () -> assertThat(importedUser.getUserType()).isEqualTo(User.Type.MODERATOR),
+                () -> assertThat(target.getUserReservations(importedUser.getId()))
+                        .extracting(Reservation::getTableId,Reservation::getTime,Reservation::getDate)
+                        .containsExactly(tuple(importedTable.getId(),reservation.getTime(),reservation.getDate()))
+        );
+    }
+
+    @Test
+    public void invalidRecordsAreReportedWithTheirLine() throws IOException
+    {
+        String dump = "{\n" +
+                "\"Restaurant\" : [\n" +
+                "  { \"id\" : 7, \"name\" : \"Restauracja\", \"address\" : \"adres 1\", \"openHour\" : \"09:00:00\", \"closeHour\" : \"18:00:00\" },\n" +
+                "  { \"id\" : 8, \"name\" : \"\", \"address\" : \"adres 2\", \"openHour\" : \"09:00:00\", \"closeHour\" : \"18:00:00\" }\n" +
+                "],\n" +
+                "\"Table\" : [\n" +
+                "  { \"id\" : 1, \"seats\" : 4, \"restaurantId\" : 7 },\n" +
+                "  { \"id\" : 2, \"seats\" : 4, \"restaurantId\" : 8 },\n" +
+                "  { \"id\" : 3, \"seats\" : \"cztery\", \"restaurantId\" : 7 }\n" +
+                "],\n" +
+                "\"User\" : [\n" +
+                "  { \"id\" : 5, \"email\" : \"email@poczta.pl\", \"password\" : \"haslo\", \"active\" : true, \"userType\" : \"STANDARD\" },\n" +
+                "  { \"id\" : 6, \"email\" : \"EMAIL@poczta.pl\", \"password\" : \"haslo\", \"active\" : true, \"userType\" : \"STANDARD\" }\n" +
+                "],\n" +
+                "\"Reservation\" : [\n" +
+                "  { \"userId\" : 5, \"tableId\" : 1, \"time\" : \"12:00:00\", \"date\" : \"2019-05-01\" },\n" +
+                "  { \"userId\" : 5, \"tableId\" : 1, \"time\" : \"20:00:00\", \"date\" : \"2019-05-01\" }\n" +
+                "]\n" +
+                "}";
+
+        ImportReport report = new JsonDumpService(source).importFrom(new ByteArrayInputStream(dump.getBytes(StandardCharsets.UTF_8)));
+
+        assertAll(
+                () -> assertThat(report.getImported("Restaurant")).isEqualTo(1),
+                () -> assertThat(report.getImported("Table")).isEqualTo(1),
+                () -> assertThat(report.getImported("User")).isEqualTo(1),
+                () -> assertThat(report.getImported("Reservation")).isEqualTo(1),
+                () -> assertThat(report.getRejections()).extracting(ImportReport.Rejection::getLine).containsExactly(4L,8L,9L,13L,17L),
+                () -> assertThat(report.getRejections()).extracting(ImportReport.Rejection::getModel)
+                        .containsExactly("Restaurant","Table","Table","User","Reservation"),
+                () -> assertThat(report.getRejections().get(1).getError()).isEqualTo("There is no Restaurant with id 8"),
+                () -> assertThat(report.getRejections().get(3).toString()).isEqualTo("line 13: User: email is already taken"),
+                () -> assertThat(source.getAll(Reservation.class)).hasSize(1)
+        );
+    }
+
+    @Test
+    public void malformedDumpIsRejected()
+    {
+        String dump = "[ { \"id\" : 1 } ]";
+
+        assertThatExceptionOfType(IOException.class).isThrownBy(
+                () -> new JsonDumpService(source).importFrom(new ByteArrayInputStream(dump.getBytes(StandardCharsets.UTF_8)))
+        );
+    }
+}
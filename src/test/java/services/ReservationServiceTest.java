@@ -13,6 +13,15 @@ import org.joda.time.LocalTime;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -111,6 +120,131 @@ public class ReservationServiceTest {
         ).withMessageContaining("Table");
     }
 
+    @Test
+    public void tableDeletedDuringTheChecksIsNotBooked()
+    {
+        AtomicBoolean deleted = new AtomicBoolean();
+        // the table goes away right after the service has looked at it
+        Repository racing = new HashMapRepository() {
+            @Override
+            public <T> T get(long id, Class<T> modelClass) {
+                T model = super.get(id,modelClass);
+                if(modelClass==Table.class && model!=null && deleted.compareAndSet(false,true))
+                    delete(model);
+                return model;
+            }
+        };
+        racing.add(user);
+        Restaurant restaurant = repository.get(table.getRestaurantId(),Restaurant.class);
+        racing.add(restaurant);
+        racing.add(new Table(null,4,restaurant.getId()));
+        reservation.setTableId(1L);
+
+        assertThatExceptionOfType(EntryNotFoundException.class).isThrownBy(
+                () -> new ReservationService(racing).add(reservation)
+        ).withMessageContaining("Table");
+
+        assertThat(deleted).isTrue();
+        assertThat(racing.getAll(Reservation.class)).isEmpty();
+    }
+
+    @Test
+    public void addAsyncLooksUpTheUserAndTheTableAtTheSameTime() throws Exception
+    {
+        CountDownLatch tableRead = new CountDownLatch(1);
+        AtomicBoolean overlapped = new AtomicBoolean();
+        // the user lookup only returns once the table lookup has started
+        Repository slow = new HashMapRepository() {
+            @Override
+            public <T> T get(long id, Class<T> modelClass) {
+                if(modelClass==Table.class)
+                    tableRead.countDown();
+                else if(modelClass==User.class)
+                {
+                    try
+                    {
+                        overlapped.set(tableRead.await(10,TimeUnit.SECONDS));
+                    }
+                    catch(InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.get(id,modelClass);
+            }
+        };
+        copyInto(slow);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        Long id = new ReservationService(slow,executor).addAsync(reservation).get(10,TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(overlapped).isTrue();
+        assertThat(slow.get(id,Reservation.class)).isEqualTo(reservation);
+    }
+
+    @Test
+    public void addAsyncFailsLikeAdd()
+    {
+        Reservation withoutUser = new Reservation(null,5L,reservation.getTableId(),reservation.getTime(),reservation.getDate());
+        Reservation tooEarly = new Reservation(null,reservation.getUserId(),reservation.getTableId(),new LocalTime(8,0,0),reservation.getDate());
+
+        assertThatExceptionOfType(ExecutionException.class).isThrownBy(
+                () -> reservationService.addAsync(withoutUser).get()
+        ).withCauseInstanceOf(EntryNotFoundException.class).withMessageContaining("User");
+        assertThatExceptionOfType(ExecutionException.class).isThrownBy(
+                () -> reservationService.addAsync(tooEarly).get()
+        ).withCauseInstanceOf(ValidationException.class).withMessageContaining("working hours");
+        assertThat(repository.getAll(Reservation.class)).isEmpty();
+    }
+
+    @Test
+    public void updateAsyncFailsItsFutureOnInvalidReservations()
+    {
+        repository.add(reservation);
+        Reservation withoutUser = new Reservation(reservation.getId(),null,reservation.getTableId(),reservation.getTime(),reservation.getDate());
+        Reservation withoutId = new Reservation(null,reservation.getUserId(),reservation.getTableId(),reservation.getTime(),reservation.getDate());
+
+        CompletableFuture<Void> invalid = reservationService.updateAsync(withoutUser);
+        CompletableFuture<Void> missing = reservationService.updateAsync(withoutId);
+
+        assertThatExceptionOfType(ExecutionException.class).isThrownBy(invalid::get)
+                .withCauseInstanceOf(ValidationException.class).withMessageContaining("user id");
+        assertThatExceptionOfType(ExecutionException.class).isThrownBy(missing::get)
+                .withCauseInstanceOf(EntryNotFoundException.class);
+        assertThat(repository.get(reservation.getId(),Reservation.class).getUserId()).isEqualTo(reservation.getUserId());
+    }
+
+    @Test
+    public void addAsyncChecksAgainWhenTheTableChanged() throws Exception
+    {
+        AtomicInteger tableReads = new AtomicInteger();
+        // the table gets more seats right after the first lookup
+        Repository racing = new HashMapRepository() {
+            @Override
+            public <T> T get(long id, Class<T> modelClass) {
+                T model = super.get(id,modelClass);
+                if(modelClass==Table.class && tableReads.incrementAndGet()==1)
+                    update(new Table(id,6,((Table)model).getRestaurantId()));
+                return model;
+            }
+        };
+        copyInto(racing);
+
+        new ReservationService(racing).addAsync(reservation).get(10,TimeUnit.SECONDS);
+
+        // a lookup and the commit check for each of the two attempts
+        assertThat(tableReads.get()).isEqualTo(4);
+        assertThat(racing.getAll(Reservation.class)).containsExactly(reservation);
+    }
+
+    private void copyInto(Repository other)
+    {
+        other.add(user);
+        other.add(repository.get(table.getRestaurantId(),Restaurant.class));
+        other.add(table);
+    }
+
     @Test
     public void deleteExistingReservation()
     {
@@ -1,5 +1,6 @@
 package services;
 
+import data.Query;
 import data.Repository;
 import errors.EntryNotFoundException;
 import errors.ValidationException;
@@ -11,6 +12,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -185,37 +187,23 @@ public class RestaurantServiceTest {
     public void getTables() throws Exception
     {
         Table table1 = createMock(Table.class);
-        Table table2 = createMock(Table.class);
-        Restaurant restaurant2 = createMock(Restaurant.class);
-
-        expect(restaurant.getId()).andReturn(1L);
-        expect(table1.getId()).andReturn(1L);
-        expect(table2.getId()).andReturn(2L);
-        expect(table1.getRestaurantId()).andReturn(1L);
-        expect(table2.getRestaurantId()).andReturn(2L);
 
-        expect(repository.get(1L,Restaurant.class)).andReturn(restaurant).times(2);
-        expect(repository.get(2L,Restaurant.class)).andReturn(restaurant2);
-        expect(repository.get(1L,Table.class)).andReturn(table1);
-        expect(repository.get(2L,Table.class)).andReturn(table2);
+        expect(restaurant.getId()).andReturn(1L).times(2);
 
-        expect(repository.getAll(Table.class)).andReturn(Arrays.asList(table1,table2));
+        expect(repository.get(1L,Restaurant.class)).andReturn(restaurant);
+        expect(repository.getRestaurantTables(1L)).andReturn(Arrays.asList(table1));
 
         replay(repository);
         replay(restaurant);
-        replay(restaurant2);
         replay(table1);
-        replay(table2);
 
         List<Table> tables = restaurantService.getTables(restaurant);
 
-        assertThat(tables.size()).isEqualTo(1);
+        assertThat(tables).containsExactly(table1);
 
         verify(repository);
         verify(restaurant);
-        verify(restaurant2);
         verify(table1);
-        verify(table2);
     }
 
     @Test
@@ -223,62 +211,58 @@ public class RestaurantServiceTest {
     {
         Table table1 = createMock(Table.class);
         Table table2 = createMock(Table.class);
-        Table table3 = createMock(Table.class);
         Reservation reservation1 = createMock(Reservation.class);
         Reservation reservation2 = createMock(Reservation.class);
         Reservation reservation3 = createMock(Reservation.class);
-        Restaurant restaurant2 = createMock(Restaurant.class);
 
         expect(restaurant.getId()).andReturn(1L).times(2);
         expect(table1.getId()).andReturn(1L);
         expect(table2.getId()).andReturn(2L);
-        expect(table3.getId()).andReturn(3L);
-        expect(table1.getRestaurantId()).andReturn(1L);
-        expect(table2.getRestaurantId()).andReturn(1L);
-        expect(table3.getRestaurantId()).andReturn(2L);
-        expect(reservation1.getId()).andReturn(1L);
-        expect(reservation2.getId()).andReturn(2L);
-        expect(reservation3.getId()).andReturn(3L);
-        expect(reservation1.getTableId()).andReturn(1L);
-        expect(reservation2.getTableId()).andReturn(2L);
-        expect(reservation3.getTableId()).andReturn(3L);
-
-        expect(repository.get(1L,Restaurant.class)).andReturn(restaurant).times(4);
-        expect(repository.get(2L,Restaurant.class)).andReturn(restaurant2);
-        expect(repository.get(1L,Table.class)).andReturn(table1).times(2);
-        expect(repository.get(2L,Table.class)).andReturn(table2).times(2);
-        expect(repository.get(3L,Table.class)).andReturn(table3).times(2);
-        expect(repository.get(1L,Reservation.class)).andReturn(reservation1);
-        expect(repository.get(2L,Reservation.class)).andReturn(reservation2);
-        expect(repository.get(3L,Reservation.class)).andReturn(reservation3);
-        expect(repository.getAll(Table.class)).andReturn(Arrays.asList(table1,table2,table3));
-        expect(repository.getAll(Reservation.class)).andReturn(Arrays.asList(reservation1,reservation2,reservation3));
+
+        expect(repository.get(1L,Restaurant.class)).andReturn(restaurant);
+        expect(repository.getRestaurantTables(1L)).andReturn(Arrays.asList(table1,table2));
+        expect(repository.find(eq(Reservation.class),anyObject(Query.class))).andReturn(Arrays.asList(reservation1,reservation2));
 
         replay(repository);
         replay(restaurant);
-        replay(restaurant2);
         replay(reservation1);
         replay(reservation2);
         replay(reservation3);
         replay(table1);
         replay(table2);
-        replay(table3);
 
         List<Reservation> reservations = restaurantService.getReservations(restaurant);
 
-        assertThat(reservations.size()).isEqualTo(2);
+        assertThat(reservations).containsExactly(reservation1,reservation2);
 
         verify(repository);
         verify(restaurant);
-        verify(restaurant2);
         verify(table1);
         verify(table2);
-        verify(table3);
         verify(reservation1);
         verify(reservation2);
         verify(reservation3);
     }
 
+    @Test
+    public void getReservationsOfRestaurantWithoutTables() throws Exception
+    {
+        expect(restaurant.getId()).andReturn(1L).times(2);
+
+        expect(repository.get(1L,Restaurant.class)).andReturn(restaurant);
+        expect(repository.getRestaurantTables(1L)).andReturn(Collections.emptyList());
+
+        replay(repository);
+        replay(restaurant);
+
+        List<Reservation> reservations = restaurantService.getReservations(restaurant);
+
+        assertThat(reservations).isEmpty();
+
+        verify(repository);
+        verify(restaurant);
+    }
+
     @Test
     public void getUsers() throws Exception
     {
@@ -286,36 +270,28 @@ public class RestaurantServiceTest {
         Table table2 = createMock(Table.class);
         Reservation reservation1 = createMock(Reservation.class);
         Reservation reservation2 = createMock(Reservation.class);
+        Reservation reservation3 = createMock(Reservation.class);
         User user1 = createMock(User.class);
         User user2 = createMock(User.class);
 
-        expect(restaurant.getId()).andReturn(1L).times(3);
+        expect(restaurant.getId()).andReturn(1L).times(2);
         expect(table1.getId()).andReturn(1L);
         expect(table2.getId()).andReturn(2L);
-        expect(table1.getRestaurantId()).andReturn(1L);
-        expect(table2.getRestaurantId()).andReturn(1L);
-        expect(reservation1.getId()).andReturn(1L).times(2);
-        expect(reservation2.getId()).andReturn(2L).times(2);
-        expect(reservation1.getTableId()).andReturn(1L);
-        expect(reservation2.getTableId()).andReturn(2L);
         expect(reservation1.getUserId()).andReturn(1L);
         expect(reservation2.getUserId()).andReturn(2L);
+        expect(reservation3.getUserId()).andReturn(1L);
 
-
-        expect(repository.get(1L,Restaurant.class)).andReturn(restaurant).times(5);
-        expect(repository.get(1L,Table.class)).andReturn(table1).times(2);
-        expect(repository.get(2L,Table.class)).andReturn(table2).times(2);
-        expect(repository.get(1L,Reservation.class)).andReturn(reservation1).times(2);
-        expect(repository.get(2L,Reservation.class)).andReturn(reservation2).times(2);
+        expect(repository.get(1L,Restaurant.class)).andReturn(restaurant);
         expect(repository.get(1L,User.class)).andReturn(user1);
-        expect(repository.get(2L,User.class)).andReturn(user1);
-        expect(repository.getAll(Table.class)).andReturn(Arrays.asList(table1,table2));
-        expect(repository.getAll(Reservation.class)).andReturn(Arrays.asList(reservation1,reservation2));
+        expect(repository.get(2L,User.class)).andReturn(user2);
+        expect(repository.getRestaurantTables(1L)).andReturn(Arrays.asList(table1,table2));
+        expect(repository.find(eq(Reservation.class),anyObject(Query.class))).andReturn(Arrays.asList(reservation1,reservation2,reservation3));
 
         replay(repository);
         replay(restaurant);
         replay(reservation1);
         replay(reservation2);
+        replay(reservation3);
         replay(table1);
         replay(table2);
         replay(user1);
@@ -323,7 +299,7 @@ public class RestaurantServiceTest {
 
         List<User> users = restaurantService.getUsers(restaurant);
 
-        assertThat(users.size()).isEqualTo(2);
+        assertThat(users).containsExactly(user1,user2,user1);
 
         verify(repository);
         verify(restaurant);
@@ -331,10 +307,53 @@ public class RestaurantServiceTest {
         verify(table2);
         verify(reservation1);
         verify(reservation2);
+        verify(reservation3);
         verify(user1);
         verify(user2);
     }
 
+    @Test
+    public void getDistinctUsers() throws Exception
+    {
+        Table table1 = createMock(Table.class);
+        Reservation reservation1 = createMock(Reservation.class);
+        Reservation reservation2 = createMock(Reservation.class);
+        Reservation reservation3 = createMock(Reservation.class);
+        User user1 = createMock(User.class);
+
+        expect(restaurant.getId()).andReturn(1L).times(2);
+        expect(table1.getId()).andReturn(1L);
+        expect(reservation1.getUserId()).andReturn(1L);
+        expect(reservation2.getUserId()).andReturn(1L);
+        expect(reservation3.getUserId()).andReturn(2L);
+
+        expect(repository.get(1L,Restaurant.class)).andReturn(restaurant);
+        expect(repository.get(1L,User.class)).andReturn(user1);
+        expect(repository.get(2L,User.class)).andReturn(null);
+        expect(repository.getRestaurantTables(1L)).andReturn(Arrays.asList(table1));
+        expect(repository.find(eq(Reservation.class),anyObject(Query.class))).andReturn(Arrays.asList(reservation1,reservation2,reservation3));
+
+        replay(repository);
+        replay(restaurant);
+        replay(reservation1);
+        replay(reservation2);
+        replay(reservation3);
+        replay(table1);
+        replay(user1);
+
+        List<User> users = restaurantService.getDistinctUsers(restaurant);
+
+        assertThat(users).containsExactly(user1);
+
+        verify(repository);
+        verify(restaurant);
+        verify(table1);
+        verify(reservation1);
+        verify(reservation2);
+        verify(reservation3);
+        verify(user1);
+    }
+
     @Test
     public void getTablesOfNonExistingRestaurant()
     {
@@ -369,6 +388,23 @@ public class RestaurantServiceTest {
         verify(restaurant);
     }
 
+    @Test
+    public void getDistinctUsersOfNonExistingRestaurant()
+    {
+        expect(restaurant.getId()).andReturn(1L).times(2);
+        expect(repository.get(1L,Restaurant.class)).andReturn(null);
+
+        replay(restaurant);
+        replay(repository);
+
+        assertThatExceptionOfType(EntryNotFoundException.class).isThrownBy(
+                () -> restaurantService.getDistinctUsers(restaurant)
+        ).withMessageContaining("Restaurant");
+
+        verify(repository);
+        verify(restaurant);
+    }
+
     @Test
     public void getUsersOfNonExistingRestaurant()
     {
@@ -1,14 +1,17 @@
 package services;
 
+import data.BatchResult;
 import data.Repository;
+import errors.DuplicateEntryException;
 import errors.EntryNotFoundException;
 import errors.ValidationException;
+import errors.VersionConflictException;
 import models.Reservation;
 import models.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -181,24 +184,39 @@ public class UserServiceTest {
 
         doReturn(1L).when(user).getId();
         doReturn(user).when(repository).get(1L,User.class);
-        doReturn(Arrays.asList(reservation1,reservation2)).when(repository).getAll(Reservation.class);
-
-        doReturn(1L).when(reservation1).getUserId();
-        doReturn(1L).when(reservation2).getUserId();
+        doReturn(Arrays.asList(reservation1,reservation2)).when(repository).getUserReservations(1L);
 
         List<Reservation> reservations = userService.getReservations(user);
 
         assertThat(reservations.size()).isEqualTo(2);
 
-        verify(repository).getAll(Reservation.class);
-        verify(user,times(3)).getId();
+        verify(repository).getUserReservations(1L);
+        verify(user,times(2)).getId();
         verify(repository).get(1L,User.class);
-        verify(reservation1).getUserId();
-        verify(reservation2).getUserId();
+        verifyNoMoreInteractions(reservation1);
+        verifyNoMoreInteractions(reservation2);
         verifyNoMoreInteractions(repository);
         verifyNoMoreInteractions(user);
     }
 
+    @Test
+    public void getReservationsPage() throws Exception
+    {
+        Reservation reservation = mock(Reservation.class);
+
+        doReturn(1L).when(user).getId();
+        doReturn(user).when(repository).get(1L,User.class);
+        doReturn(Arrays.asList(reservation)).when(repository).getUserReservations(1L,20L,10);
+
+        List<Reservation> reservations = userService.getReservations(user,20L,10);
+
+        assertThat(reservations).containsExactly(reservation);
+
+        verify(repository).get(1L,User.class);
+        verify(repository).getUserReservations(1L,20L,10);
+        verifyNoMoreInteractions(repository);
+    }
+
     @Test
     public void getReservationsOfNonExistingUser()
     {
@@ -230,35 +248,115 @@ public class UserServiceTest {
     }
 
     @Test
-    public void changePassword()
+    public void registerUserWithTakenEmail()
+    {
+        doThrow(new DuplicateEntryException("User","email","email@poczta.pl")).when(repository).add(any());
+
+        assertThatExceptionOfType(ValidationException.class).isThrownBy(
+                () -> userService.register("email@poczta.pl","haslo1")
+        ).withMessageContaining("email is already taken");
+
+        verify(repository).add(any());
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    public void updateUserWithTakenEmail()
     {
-        doReturn(user).when(repository).get(1L,User.class);
         doReturn(1L).when(user).getId();
-        doReturn("old_password").when(user).getPassword();
         doReturn(true).when(user).isValid();
-        doAnswer((a)->null).when(repository).update(user);
-        doAnswer((a)->null).when(user).setPassword("new_password");
+        doReturn(user).when(repository).get(1L,User.class);
+        doThrow(new DuplicateEntryException("User","email","email@poczta.pl")).when(repository).update(user);
+
+        assertThatExceptionOfType(ValidationException.class).isThrownBy(
+                () -> userService.update(user)
+        ).withMessageContaining("email is already taken");
+
+        verify(repository).get(1L,User.class);
+        verify(repository).update(user);
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    public void loginWrongPassword()
+    {
+        String email = "email@poczta.pl";
+
+        doReturn("password").when(user).getPassword();
+        doReturn(user).when(repository).getUserByEmail(email);
+
+        User u = userService.login(email,"wrong_password");
+
+        assertThat(u).isNull();
+
+        verify(user).getPassword();
+        verify(repository).getUserByEmail(email);
+        verifyNoMoreInteractions(repository);
+        verifyNoMoreInteractions(user);
+    }
+
+    @Test
+    public void changePassword()
+    {
+        User stored = storedUser(3);
+        doReturn(stored).when(repository).get(1L,User.class);
+        doReturn(1L).when(user).getId();
+        ArgumentCaptor<User> written = ArgumentCaptor.forClass(User.class);
 
         assertThatCode(
                 () -> userService.changePassword(user,"old_password","new_password")
         ).doesNotThrowAnyException();
 
-        verify(repository,times(2)).get(1L,User.class);
-        verify(user,times(2)).getId();
-        verify(user).getPassword();
-        verify(user).isValid();
-        verify(repository).update(user);
-        verify(user).setPassword("new_password");
+        verify(repository).get(1L,User.class);
+        verify(repository).compareAndUpdate(written.capture());
+        verify(user).getId();
         verifyNoMoreInteractions(repository);
         verifyNoMoreInteractions(user);
+
+        assertThat(written.getValue()).isNotSameAs(stored);
+        assertThat(written.getValue().getPassword()).isEqualTo("new_password");
+        assertThat(written.getValue().getVersion()).isEqualTo(3);
+        assertThat(stored.getPassword()).isEqualTo("old_password");
+    }
+
+    @Test
+    public void changePasswordRetriesAfterAConflict()
+    {
+        doReturn(storedUser(3)).doReturn(storedUser(4)).when(repository).get(1L,User.class);
+        doReturn(1L).when(user).getId();
+        doThrow(new VersionConflictException("User",1L,3,4)).doNothing().when(repository).compareAndUpdate(any(User.class));
+        ArgumentCaptor<User> written = ArgumentCaptor.forClass(User.class);
+
+        assertThatCode(
+                () -> userService.changePassword(user,"old_password","new_password")
+        ).doesNotThrowAnyException();
+
+        verify(repository,times(2)).get(1L,User.class);
+        verify(repository,times(2)).compareAndUpdate(written.capture());
+        verifyNoMoreInteractions(repository);
+
+        assertThat(written.getAllValues()).extracting(User::getVersion).containsExactly(3L,4L);
+    }
+
+    @Test
+    public void changePasswordGivesUpAfterRepeatedConflicts()
+    {
+        doAnswer((a)->storedUser(3)).when(repository).get(1L,User.class);
+        doReturn(1L).when(user).getId();
+        doThrow(new VersionConflictException("User",1L,3,4)).when(repository).compareAndUpdate(any(User.class));
+
+        assertThatExceptionOfType(VersionConflictException.class).isThrownBy(
+                () -> userService.changePassword(user,"old_password","new_password")
+        ).withMessageContaining("User");
+
+        verify(repository,atLeast(2)).compareAndUpdate(any(User.class));
     }
 
     @Test
     public void changePasswordPasswordsDoesNotMatch()
     {
-        doReturn(user).when(repository).get(1L,User.class);
+        doReturn(storedUser(1)).when(repository).get(1L,User.class);
         doReturn(1L).when(user).getId();
-        doReturn("old_password").when(user).getPassword();
 
         assertThatExceptionOfType(ValidationException.class).isThrownBy(
                 () -> userService.changePassword(user,"wrong_password","new_password")
@@ -266,7 +364,6 @@ public class UserServiceTest {
 
         verify(repository).get(1L,User.class);
         verify(user).getId();
-        verify(user).getPassword();
         verifyNoMoreInteractions(repository);
         verifyNoMoreInteractions(user);
     }
@@ -282,7 +379,7 @@ public class UserServiceTest {
         ).withMessageContaining("User");
 
         verify(repository).get(1L,User.class);
-        verify(user,times(2)).getId();
+        verify(user).getId();
         verifyNoMoreInteractions(repository);
         verifyNoMoreInteractions(user);
     }
@@ -290,23 +387,24 @@ public class UserServiceTest {
     @Test
     public void activateUser()
     {
-        doReturn(user).when(repository).get(1L,User.class);
+        User stored = storedUser(1);
+        stored.setActive(false);
+        doReturn(stored).when(repository).get(1L,User.class);
         doReturn(1L).when(user).getId();
-        doReturn(true).when(user).isValid();
-        doAnswer((a)->null).when(repository).update(user);
-        doAnswer((a)->null).when(user).setActive(true);
+        ArgumentCaptor<User> written = ArgumentCaptor.forClass(User.class);
 
         assertThatCode(
                 () -> userService.activate(user)
         ).doesNotThrowAnyException();
 
-        verify(repository,times(2)).get(1L,User.class);
-        verify(user,times(2)).getId();
-        verify(user).isValid();
-        verify(repository).update(user);
-        verify(user).setActive(true);
+        verify(repository).get(1L,User.class);
+        verify(repository).compareAndUpdate(written.capture());
+        verify(user).getId();
         verifyNoMoreInteractions(repository);
         verifyNoMoreInteractions(user);
+
+        assertThat(written.getValue().isActive()).isTrue();
+        assertThat(stored.isActive()).isFalse();
     }
 
     @Test
@@ -320,7 +418,7 @@ public class UserServiceTest {
         ).withMessageContaining("User");
 
         verify(repository).get(1L,User.class);
-        verify(user,times(2)).getId();
+        verify(user).getId();
         verifyNoMoreInteractions(repository);
         verifyNoMoreInteractions(user);
     }
@@ -332,16 +430,14 @@ public class UserServiceTest {
         String password = "password";
 
         doReturn(password).when(user).getPassword();
-        doReturn(email).when(user).getEmail();
-        doReturn(Arrays.asList(user)).when(repository).getAll(User.class);
+        doReturn(user).when(repository).getUserByEmail(email);
 
         User u = userService.login(email,password);
 
         assertThat(u).isEqualTo(user);
 
         verify(user).getPassword();
-        verify(user).getEmail();
-        verify(repository).getAll(User.class);
+        verify(repository).getUserByEmail(email);
         verifyNoMoreInteractions(repository);
         verifyNoMoreInteractions(user);
     }
@@ -352,13 +448,13 @@ public class UserServiceTest {
         String email = "email@poczta.pl";
         String password = "password";
 
-        doReturn(new ArrayList<User>()).when(repository).getAll(User.class);
+        doReturn(null).when(repository).getUserByEmail(email);
 
         User u = userService.login(email,password);
 
         assertThat(u).isNull();
 
-        verify(repository).getAll(User.class);
+        verify(repository).getUserByEmail(email);
         verifyNoMoreInteractions(repository);
         verifyNoMoreInteractions(user);
     }
@@ -366,23 +462,45 @@ public class UserServiceTest {
     @Test
     public void changeUserType()
     {
-        doReturn(user).when(repository).get(1L,User.class);
+        doReturn(storedUser(2)).when(repository).get(1L,User.class);
         doReturn(1L).when(user).getId();
-        doReturn(true).when(user).isValid();
-        doAnswer((a)->null).when(repository).update(user);
-        doAnswer((a)->null).when(user).setUserType(User.Type.MODERATOR);
+        ArgumentCaptor<User> written = ArgumentCaptor.forClass(User.class);
 
         assertThatCode(
                 () -> userService.changeType(user,User.Type.MODERATOR)
         ).doesNotThrowAnyException();
 
-        verify(repository,times(2)).get(1L,User.class);
-        verify(user,times(2)).getId();
-        verify(user).isValid();
-        verify(repository).update(user);
-        verify(user).setUserType(User.Type.MODERATOR);
+        verify(repository).get(1L,User.class);
+        verify(repository).compareAndUpdate(written.capture());
+        verify(user).getId();
         verifyNoMoreInteractions(repository);
         verifyNoMoreInteractions(user);
+
+        assertThat(written.getValue().getUserType()).isEqualTo(User.Type.MODERATOR);
+    }
+
+    @Test
+    public void addAllReportsInvalidAndTakenUsers()
+    {
+        User invalid = mock(User.class);
+        User taken = mock(User.class);
+        doReturn(true).when(user).isValid();
+        doReturn(false).when(invalid).isValid();
+        doReturn("email is not valid").when(invalid).getValidationError();
+        doReturn(true).when(taken).isValid();
+
+        BatchResult<User> stored = new BatchResult<>(2);
+        stored.failed(1,taken,new DuplicateEntryException("User","email","zajety@poczta.pl"));
+        doReturn(stored).when(repository).addAll(User.class,Arrays.asList(user,taken));
+
+        BatchResult<User> result = userService.addAll(Arrays.asList(user,invalid,taken));
+
+        assertThat(result.getSucceeded()).isEqualTo(1);
+        assertThat(result.getFailures()).extracting(BatchResult.Failure::getIndex).containsExactly(1,2);
+        assertThat(result.getFailures()).extracting(f -> f.getError().getMessage())
+                .containsExactly("User: email is not valid","User: email is already taken");
+        verify(repository).addAll(User.class,Arrays.asList(user,taken));
+        verifyNoMoreInteractions(repository);
     }
 
     @Test
@@ -396,9 +514,16 @@ public class UserServiceTest {
         ).withMessageContaining("User");
 
         verify(repository).get(1L,User.class);
-        verify(user,times(2)).getId();
+        verify(user).getId();
         verifyNoMoreInteractions(repository);
         verifyNoMoreInteractions(user);
     }
 
+    private static User storedUser(long version)
+    {
+        User stored = new User(1L,"email@poczta.pl","old_password",true,User.Type.STANDARD);
+        stored.setVersion(version);
+        return stored;
+    }
+
 }